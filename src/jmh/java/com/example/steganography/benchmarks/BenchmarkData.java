@@ -0,0 +1,80 @@
+package com.example.steganography.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Dados sintéticos gerados no setup dos benchmarks: imagens com ruído (o pior caso para o PNG)
+ * e pastas de payload com conteúdo aleatório e texto.
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    // imagem 4:3 com aproximadamente a quantidade de megapixels pedida
+    static BufferedImage createImage(int megapixels, int type) {
+        long pixels = megapixels * 1_000_000L;
+        int width = (int) Math.round(Math.sqrt(pixels * 4.0 / 3.0));
+        int height = (int) (pixels / width);
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(SEED);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = random.nextInt();
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    static Path createCarrier(Path directory, int megapixels) throws IOException {
+        Path path = directory.resolve("carrier-" + megapixels + "mp.png");
+        ImageIO.write(createImage(megapixels, BufferedImage.TYPE_3BYTE_BGR), "PNG", path.toFile());
+        return path;
+    }
+
+    static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(SEED).nextBytes(bytes);
+        return bytes;
+    }
+
+    // metade dos bytes aleatórios (incompressíveis), metade texto repetitivo, em alguns arquivos e uma subpasta
+    static Path createPayload(Path directory, int sizeKb) throws IOException {
+        Path payload = directory.resolve("payload-" + sizeKb + "kb");
+        Files.createDirectories(payload.resolve("sub"));
+        int half = sizeKb * 1024 / 2;
+        Files.write(payload.resolve("random.bin"), randomBytes(half));
+        StringBuilder text = new StringBuilder();
+        while (text.length() < half) {
+            text.append("linha de texto para o payload de benchmark ").append(text.length()).append('\n');
+        }
+        Files.writeString(payload.resolve("sub").resolve("text.txt"), text.substring(0, half));
+        return payload;
+    }
+
+    static Path createTempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix);
+    }
+
+    static void deleteRecursively(Path path) throws IOException {
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
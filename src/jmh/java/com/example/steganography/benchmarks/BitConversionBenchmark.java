@@ -0,0 +1,63 @@
+package com.example.steganography.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.steganography.BitReader;
+import com.example.steganography.BitWriter;
+import com.example.steganography.DataConverter;
+import com.example.steganography.exceptions.SteganographyException;
+
+/**
+ * Conversão byte <-> bit de DataConverter (BitReader/BitWriter), percorrendo todos os bits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BitConversionBenchmark {
+
+    @Param({ "64", "1024", "16384" })
+    public int payloadKb;
+
+    private final DataConverter dataConverter = new DataConverter();
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        payload = BenchmarkData.randomBytes(payloadKb * 1024);
+    }
+
+    @Benchmark
+    public long bytesToBits() {
+        BitReader bits = dataConverter.bytesToBits(payload);
+        long ones = 0;
+        while (bits.hasRemaining()) {
+            ones += bits.readBit();
+        }
+        return ones;
+    }
+
+    @Benchmark
+    public byte[] bitsToBytes() throws SteganographyException {
+        BitReader source = new BitReader(payload);
+        BitWriter bits = new BitWriter(payload.length);
+        while (source.hasRemaining()) {
+            bits.writeBit(source.readBit());
+        }
+        return dataConverter.bitsToBytes(bits);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.steganography.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.steganography.DataConverter;
+import com.example.steganography.ImageProcessor;
+import com.example.steganography.SteganographyUtils;
+import com.example.steganography.exceptions.SteganographyException;
+
+/**
+ * Fluxo completo de SteganographyUtils: carregar PNG, compactar, gravar os bits e salvar (embed);
+ * carregar, ler os bits e descompactar (extract).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EmbedExtractBenchmark {
+
+    @Param({ "1", "8", "24", "50" })
+    public int megapixels;
+
+    @Param({ "64", "1024" })
+    public int payloadKb;
+
+    // 0 = número de processadores disponíveis
+    @Param({ "1", "0" })
+    public int parallelism;
+
+    private SteganographyUtils steganography;
+    private Path workDir;
+    private Path carrier;
+    private Path payload;
+    private Path stegoImage;
+
+    @Setup
+    public void setup() throws IOException, SteganographyException {
+        int threads = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter(), threads);
+        workDir = BenchmarkData.createTempDirectory("embed-bench");
+        carrier = BenchmarkData.createCarrier(workDir, megapixels);
+        payload = BenchmarkData.createPayload(workDir, payloadKb);
+        stegoImage = workDir.resolve("stego.png");
+        steganography.embedData(carrier.toString(), payload.toString(), stegoImage.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public void embedData() throws SteganographyException {
+        steganography.embedData(carrier.toString(), payload.toString(), workDir.resolve("out.png").toString());
+    }
+
+    @Benchmark
+    public void extractData() throws SteganographyException {
+        steganography.extractData(stegoImage.toString(), workDir.resolve("extracted").toString());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.steganography.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.steganography.ImageProcessor;
+import com.example.steganography.exceptions.SteganographyException;
+
+/**
+ * Leitura e gravação de PNG pelo ImageProcessor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImageIoBenchmark {
+
+    @Param({ "1", "8", "24", "50" })
+    public int megapixels;
+
+    private final ImageProcessor imageProcessor = new ImageProcessor();
+    private Path workDir;
+    private Path carrier;
+    private BufferedImage image;
+
+    @Setup
+    public void setup() throws IOException, SteganographyException {
+        workDir = BenchmarkData.createTempDirectory("image-bench");
+        carrier = BenchmarkData.createCarrier(workDir, megapixels);
+        image = imageProcessor.loadImage(carrier.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public BufferedImage loadImage() throws SteganographyException {
+        return imageProcessor.loadImage(carrier.toString());
+    }
+
+    @Benchmark
+    public void saveImage() throws SteganographyException {
+        imageProcessor.saveImage(image, workDir.resolve("saved.png").toString());
+    }
+}
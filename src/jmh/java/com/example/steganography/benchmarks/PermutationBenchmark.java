@@ -0,0 +1,80 @@
+package com.example.steganography.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.steganography.BitReader;
+import com.example.steganography.BitWriter;
+import com.example.steganography.CarrierRaster;
+import com.example.steganography.PixelPermutation;
+import com.example.steganography.StegoHeader;
+
+/**
+ * Custo de espalhar os dados com chave: a mesma passada pelos pixels do {@link RasterBenchmark}, em ordem de
+ * linha e na ordem da {@link PixelPermutation}, ocupando fill% da capacidade da imagem.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermutationBenchmark {
+
+    @Param({ "1", "24" })
+    public int megapixels;
+
+    @Param({ "10", "100" })
+    public int fill;
+
+    @Param({ "INT_RGB", "3BYTE_BGR" })
+    public String imageType;
+
+    private CarrierRaster sequential;
+    private CarrierRaster scattered;
+    private byte[] data;
+    private long startBit;
+
+    @Setup
+    public void setup() {
+        BufferedImage image = BenchmarkData.createImage(megapixels,
+                imageType.equals("INT_RGB") ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_3BYTE_BGR);
+        sequential = CarrierRaster.wrap(image);
+        scattered = sequential.withPermutation(PixelPermutation.random("benchmark", StegoHeader.HEADER_PIXELS,
+                (long) image.getWidth() * image.getHeight()));
+        startBit = (long) StegoHeader.HEADER_PIXELS * sequential.getBitsPerPixel();
+        data = BenchmarkData.randomBytes((int) ((sequential.getCapacityBits() - startBit) / 8 * fill / 100));
+    }
+
+    @Benchmark
+    public long embedSequential() {
+        return sequential.embedBits(new BitReader(data), startBit);
+    }
+
+    @Benchmark
+    public long embedScattered() {
+        return scattered.embedBits(new BitReader(data), startBit);
+    }
+
+    @Benchmark
+    public long extractSequential() {
+        return sequential.extractBits(new BitWriter(data.length), startBit);
+    }
+
+    @Benchmark
+    public long extractScattered() {
+        return scattered.extractBits(new BitWriter(data.length), startBit);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.steganography.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.steganography.BitReader;
+import com.example.steganography.BitWriter;
+import com.example.steganography.CarrierRaster;
+import com.example.steganography.ParallelLsbEngine;
+
+/**
+ * Só a passada pelos pixels (sem PNG nem ZIP), preenchendo toda a capacidade com 1 LSB por canal:
+ * getRGB/setRGB por pixel (como era antes), CarrierRaster sequencial e ParallelLsbEngine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RasterBenchmark {
+
+    @Param({ "1", "24" })
+    public int megapixels;
+
+    private BufferedImage image;
+    private CarrierRaster carrier;
+    private byte[] data;
+    private ParallelLsbEngine parallelEngine;
+
+    @Setup
+    public void setup() {
+        image = BenchmarkData.createImage(megapixels, BufferedImage.TYPE_3BYTE_BGR);
+        carrier = CarrierRaster.wrap(image);
+        data = BenchmarkData.randomBytes((int) (carrier.getCapacityBits() / 8));
+        parallelEngine = new ParallelLsbEngine(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public int embedGetSetRgb() {
+        BitReader bits = new BitReader(data);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int pixel = image.getRGB(x, y);
+                int red = (pixel >> 16) & 0xFF;
+                int green = (pixel >> 8) & 0xFF;
+                int blue = pixel & 0xFF;
+                if (bits.hasRemaining()) red = (red & 0xFE) | bits.readBit();
+                if (bits.hasRemaining()) green = (green & 0xFE) | bits.readBit();
+                if (bits.hasRemaining()) blue = (blue & 0xFE) | bits.readBit();
+                image.setRGB(x, y, (pixel & 0xFF000000) | (red << 16) | (green << 8) | blue);
+            }
+        }
+        return image.getRGB(0, 0);
+    }
+
+    @Benchmark
+    public long embedRaster() {
+        return carrier.embedBits(new BitReader(data));
+    }
+
+    @Benchmark
+    public long extractRaster() {
+        return carrier.extractBits(new BitWriter(data.length));
+    }
+
+    @Benchmark
+    public int embedParallel() {
+        parallelEngine.embed(carrier, data, 0, data.length, 0);
+        return data.length;
+    }
+
+    @Benchmark
+    public byte[] extractParallel() {
+        byte[] dest = new byte[data.length];
+        parallelEngine.extract(carrier, dest, 0, dest.length, 0);
+        return dest;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.steganography.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.steganography.DataConverter;
+import com.example.steganography.exceptions.SteganographyException;
+
+/**
+ * Compactação (zipFolder) e descompactação (unzipToFolder) do payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipBenchmark {
+
+    @Param({ "256", "4096", "32768" })
+    public int payloadKb;
+
+    private final DataConverter dataConverter = new DataConverter();
+    private Path workDir;
+    private Path payload;
+    private byte[] zipBytes;
+
+    @Setup
+    public void setup() throws IOException, SteganographyException {
+        workDir = BenchmarkData.createTempDirectory("zip-bench");
+        payload = BenchmarkData.createPayload(workDir, payloadKb);
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        dataConverter.zipFolder(payload.toString(), zip);
+        zipBytes = zip.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public long zipFolder() throws SteganographyException {
+        return dataConverter.zipFolder(payload.toString(), OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void unzipToFolder() throws SteganographyException {
+        dataConverter.unzipToFolder(zipBytes, workDir.resolve("unzipped").toString());
+    }
+}
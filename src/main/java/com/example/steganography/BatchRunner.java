@@ -0,0 +1,385 @@
+package com.example.steganography;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import com.example.steganography.exceptions.SteganographyException;
+import com.example.steganography.metrics.StageTimer;
+
+/**
+ * Modo em lote: lê um manifesto com várias operações e executa os jobs em paralelo, sem interação.
+ * <p>
+ * Cada linha do manifesto é um job, em CSV ou em JSON (um objeto por linha). Linhas vazias e começadas
+ * com '#' são ignoradas.
+ * <pre>
+ * embed,carrier.png,pasta_ou_arquivo,saida.png
+ * extract,imagem_oculta.png,diretorio_saida
+ * update,imagem_oculta.png,pasta_ou_arquivo,saida.png
+ * verify,imagem_oculta.png
+ * {"op": "embed", "carrier": "carrier.png", "payload": "dados", "output": "saida.png", "bitsPerChannel": 2, "useAlpha": false, "pngLevel": 1}
+ * {"op": "extract", "carrier": "imagem_oculta.png", "output": "diretorio_saida", "tiled": true}
+ * {"op": "embed", "carrier": "carrier.png", "payload": "dados", "output": "saida.png", "key": "segredo"}
+ * </pre>
+ * "tiled": true processa a imagem por faixas de linhas ({@link TiledCarrierProcessor}), para imagens muito grandes.
+ * update regrava só os trechos do ZIP que mudaram ({@link SteganographyUtils#updateData}).
+ * "key" espalha os dados pela imagem ({@link PixelPermutation}); a mesma chave vai no extract, update e verify.
+ * verify confere os blocos e o ZIP sem gravar nada ({@link SteganographyUtils#verify}).
+ * Os jobs rodam em threads virtuais (a maior parte do tempo é leitura/gravação de PNG), com no máximo
+ * maxConcurrentJobs ao mesmo tempo para limitar a memória usada pelas imagens carregadas. Com uma instrumentação
+ * ligada, rodam em um pool de maxConcurrentJobs threads de plataforma: nas threads virtuais a JVM não informa os
+ * bytes alocados, que o {@link StageTimer} mede por etapa.
+ */
+public class BatchRunner {
+
+    private final SteganographyUtils steganography;
+    private final int maxConcurrentJobs;
+    private final int threadsPerJob;
+    private final PrintStream out;
+
+    public BatchRunner(SteganographyUtils steganography, int maxConcurrentJobs, PrintStream out) {
+        this(steganography, maxConcurrentJobs, 1, out);
+    }
+
+    /**
+     * @param threadsPerJob entradas do ZIP comprimidas ao mesmo tempo em cada job; com vários jobs ao mesmo tempo,
+     *                      o padrão do ZipOptions (um por núcleo) multiplicaria as threads e os buffers do ZIP.
+     */
+    public BatchRunner(SteganographyUtils steganography, int maxConcurrentJobs, int threadsPerJob, PrintStream out) {
+        if (maxConcurrentJobs < 1 || threadsPerJob < 1) {
+            throw new IllegalArgumentException("A quantidade de jobs simultâneos e de threads por job deve ser pelo menos 1: "
+                    + maxConcurrentJobs + ", " + threadsPerJob);
+        }
+        this.steganography = steganography;
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.threadsPerJob = threadsPerJob;
+        this.out = out;
+    }
+
+    public static final class Job {
+        final int line;
+        final String operation;
+        final String carrier;
+        final String payload;
+        final String output;
+        final EmbedOptions options;
+        final boolean tiled;
+
+        Job(int line, String operation, String carrier, String payload, String output, EmbedOptions options,
+                boolean tiled) {
+            this.line = line;
+            this.operation = operation;
+            this.carrier = carrier;
+            this.payload = payload;
+            this.output = output;
+            this.options = options;
+            this.tiled = tiled;
+        }
+    }
+
+    public static final class JobResult {
+        final Job job;
+        final boolean success;
+        final long payloadBytes;
+        final long pixels;
+        final long nanos;
+        final String error;
+
+        JobResult(Job job, boolean success, long payloadBytes, long pixels, long nanos, String error) {
+            this.job = job;
+            this.success = success;
+            this.payloadBytes = payloadBytes;
+            this.pixels = pixels;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+    }
+
+    /**
+     * Executa todos os jobs do manifesto e imprime o status de cada um e o resumo no final.
+     *
+     * @return resultados na ordem do manifesto.
+     */
+    public List<JobResult> run(String manifestPath) throws SteganographyException {
+        List<Job> jobs = readManifest(manifestPath);
+        for (Job job : jobs) {
+            job.options.getZipOptions().setParallelism(threadsPerJob);
+        }
+        out.println("Manifesto carregado: " + jobs.size() + " job(s), até " + maxConcurrentJobs + " ao mesmo tempo.");
+
+        Semaphore slots = new Semaphore(maxConcurrentJobs);
+        List<Future<JobResult>> futures = new ArrayList<>(jobs.size());
+        long start = System.nanoTime();
+
+        boolean measureAllocation = steganography.getInstrumentation().isEnabled() && StageTimer.measuresAllocation();
+        try (ExecutorService executor = measureAllocation ? Executors.newFixedThreadPool(maxConcurrentJobs)
+                : Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Job job : jobs) {
+                slots.acquireUninterruptibly(); // não enfileira mais jobs do que o limite
+                futures.add(executor.submit(() -> {
+                    try {
+                        JobResult result = execute(job);
+                        printStatus(result);
+                        return result;
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+        }
+
+        List<JobResult> results = new ArrayList<>(futures.size());
+        for (Future<JobResult> future : futures) {
+            results.add(future.resultNow());
+        }
+        printSummary(results, System.nanoTime() - start);
+        return results;
+    }
+
+    private JobResult execute(Job job) {
+        long start = System.nanoTime();
+        try {
+            StegoHeader header;
+            if (job.operation.equals("embed")) {
+                header = job.tiled
+                        ? steganography.embedDataTiled(job.carrier, job.payload, job.output, job.options)
+                        : steganography.embedData(job.carrier, job.payload, job.output, job.options);
+            } else if (job.operation.equals("update")) {
+                header = steganography.updateData(job.carrier, job.payload, job.output, job.options);
+            } else if (job.operation.equals("verify")) {
+                header = steganography.verify(job.carrier, job.options.getKey()).getHeader();
+            } else {
+                header = job.tiled
+                        ? steganography.extractDataTiled(job.carrier, job.output)
+                        : steganography.extractData(job.carrier, job.output, job.options.getKey());
+            }
+            boolean readOnly = job.operation.equals("extract") || job.operation.equals("verify");
+            long pixels = imagePixels(readOnly ? job.carrier : job.output);
+            return new JobResult(job, true, header.getPayloadSize(), pixels, System.nanoTime() - start, null);
+        } catch (SteganographyException e) {
+            String message = e.getMessage() + (e.getCause() != null ? " Causa: " + e.getCause().getMessage() : "");
+            return new JobResult(job, false, 0, 0, System.nanoTime() - start, message);
+        } catch (RuntimeException e) {
+            return new JobResult(job, false, 0, 0, System.nanoTime() - start, "Erro inesperado: " + e);
+        }
+    }
+
+    // largura x altura lidas do IHDR do PNG (sem decodificar a imagem), só para as estatísticas
+    private static long imagePixels(String pngPath) {
+        try (InputStream in = Files.newInputStream(Paths.get(pngPath))) {
+            byte[] ihdr = in.readNBytes(24);
+            if (ihdr.length < 24) {
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(ihdr);
+            return (long) buffer.getInt(16) * buffer.getInt(20);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void printStatus(JobResult result) {
+        Job job = result.job;
+        String description = "linha " + job.line + " " + job.operation + " " + job.carrier
+                + (job.output != null ? " -> " + job.output : "");
+        if (result.success) {
+            out.println("[OK] " + description + " (" + result.nanos / 1_000_000 + " ms, " + result.payloadBytes + " bytes de ZIP)");
+        } else {
+            out.println("[FALHA] " + description + " (" + result.nanos / 1_000_000 + " ms): " + result.error);
+        }
+    }
+
+    private void printSummary(List<JobResult> results, long elapsedNanos) {
+        long ok = results.stream().filter(JobResult::isSuccess).count();
+        long payloadBytes = results.stream().mapToLong(r -> r.payloadBytes).sum();
+        long pixels = results.stream().mapToLong(r -> r.pixels).sum();
+        double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+
+        out.println();
+        out.println("--- RESUMO DO LOTE ---");
+        out.println("Jobs: " + results.size() + ", sucesso: " + ok + ", falha: " + (results.size() - ok));
+        out.printf("Tempo total: %.2f s%n", seconds);
+        out.printf("Vazão: %.2f jobs/s, %.2f MB/s de ZIP, %.2f megapixels/s%n",
+                ok / seconds, payloadBytes / seconds / (1024 * 1024), pixels / seconds / 1e6);
+    }
+
+    List<Job> readManifest(String manifestPath) throws SteganographyException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Path.of(manifestPath), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SteganographyException("Erro ao ler o manifesto: " + manifestPath, e);
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Map<String, String> fields = line.startsWith("{") ? parseJsonLine(line, i + 1) : parseCsvLine(line, i + 1);
+            jobs.add(toJob(fields, i + 1));
+        }
+        return jobs;
+    }
+
+    private static Map<String, String> parseCsvLine(String line, int lineNumber) throws SteganographyException {
+        String[] parts = line.split(",", -1);
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("op", parts[0].trim());
+        if (parts.length > 1) fields.put("carrier", parts[1].trim());
+        if (parts[0].trim().equals("verify")) {
+            if (parts.length != 2) {
+                throw new SteganographyException("Linha " + lineNumber + " do manifesto: esperado verify,imagem");
+            }
+        } else if (parts[0].trim().equals("extract")) {
+            if (parts.length != 3) {
+                throw new SteganographyException("Linha " + lineNumber + " do manifesto: esperado extract,imagem,diretorio_saida");
+            }
+            fields.put("output", parts[2].trim());
+        } else {
+            if (parts.length != 4) {
+                throw new SteganographyException("Linha " + lineNumber + " do manifesto: esperado " + parts[0].trim() + ",imagem,dados,saida");
+            }
+            fields.put("payload", parts[2].trim());
+            fields.put("output", parts[3].trim());
+        }
+        return fields;
+    }
+
+    // objeto JSON "plano" (sem aninhamento): valores string, número ou booleano
+    private static Map<String, String> parseJsonLine(String line, int lineNumber) throws SteganographyException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        int[] pos = { 1 };
+        try {
+            skipSpaces(line, pos);
+            while (line.charAt(pos[0]) != '}') {
+                String key = readJsonString(line, pos);
+                skipSpaces(line, pos);
+                expect(line, pos, ':');
+                skipSpaces(line, pos);
+                String value;
+                if (line.charAt(pos[0]) == '"') {
+                    value = readJsonString(line, pos);
+                } else {
+                    int start = pos[0];
+                    while (",} \t".indexOf(line.charAt(pos[0])) < 0) {
+                        pos[0]++;
+                    }
+                    value = line.substring(start, pos[0]);
+                }
+                fields.put(key, value);
+                skipSpaces(line, pos);
+                if (line.charAt(pos[0]) == ',') {
+                    pos[0]++;
+                    skipSpaces(line, pos);
+                }
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new SteganographyException("Linha " + lineNumber + " do manifesto: JSON inválido.", e);
+        }
+        return fields;
+    }
+
+    private static String readJsonString(String line, int[] pos) {
+        expect(line, pos, '"');
+        StringBuilder value = new StringBuilder();
+        while (line.charAt(pos[0]) != '"') {
+            char c = line.charAt(pos[0]++);
+            if (c == '\\') {
+                char escaped = line.charAt(pos[0]++);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        value.append((char) Integer.parseInt(line.substring(pos[0], pos[0] + 4), 16));
+                        pos[0] += 4;
+                    }
+                    default -> value.append(escaped); // \" \\ \/
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        pos[0]++;
+        return value.toString();
+    }
+
+    private static void expect(String line, int[] pos, char expected) {
+        if (line.charAt(pos[0]) != expected) {
+            throw new IllegalArgumentException("Esperado '" + expected + "' na posição " + pos[0]);
+        }
+        pos[0]++;
+    }
+
+    private static void skipSpaces(String line, int[] pos) {
+        while (Character.isWhitespace(line.charAt(pos[0]))) {
+            pos[0]++;
+        }
+    }
+
+    private static Job toJob(Map<String, String> fields, int lineNumber) throws SteganographyException {
+        String operation = fields.getOrDefault("op", "");
+        String carrier = fields.get("carrier");
+        String payload = fields.get("payload");
+        String output = fields.get("output");
+        if (!operation.equals("embed") && !operation.equals("extract") && !operation.equals("update")
+                && !operation.equals("verify")) {
+            throw new SteganographyException("Linha " + lineNumber + " do manifesto: operação inválida '" + operation
+                    + "' (use embed, extract, update ou verify).");
+        }
+        if (operation.equals("verify")) {
+            if (carrier == null) {
+                throw new SteganographyException("Linha " + lineNumber + " do manifesto: falta a imagem para a operação verify.");
+            }
+        } else if (carrier == null || output == null || (!operation.equals("extract") && payload == null)) {
+            throw new SteganographyException("Linha " + lineNumber + " do manifesto: faltam caminhos para a operação " + operation + ".");
+        }
+
+        EmbedOptions options = EmbedOptions.defaults();
+        try {
+            if (fields.containsKey("bitsPerChannel")) {
+                options.setBitsPerChannel(Integer.parseInt(fields.get("bitsPerChannel")));
+            }
+            if (fields.containsKey("useAlpha")) {
+                options.setUseAlpha(Boolean.parseBoolean(fields.get("useAlpha")));
+            }
+            if (fields.containsKey("zipLevel")) {
+                options.setZipOptions(ZipOptions.defaults().setCompressionLevel(Integer.parseInt(fields.get("zipLevel"))));
+            }
+            if (fields.containsKey("pngLevel")) {
+                options.setPngOptions(PngWriteOptions.defaults().setCompressionLevel(Integer.parseInt(fields.get("pngLevel"))));
+            }
+            if (fields.containsKey("key")) {
+                options.setKey(fields.get("key"));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new SteganographyException("Linha " + lineNumber + " do manifesto: " + e.getMessage());
+        }
+        boolean tiled = Boolean.parseBoolean(fields.getOrDefault("tiled", "false"));
+        if (tiled && operation.equals("update")) {
+            throw new SteganographyException("Linha " + lineNumber + " do manifesto: update não tem modo por faixas.");
+        }
+        if (tiled && options.getKey() != null) {
+            throw new SteganographyException("Linha " + lineNumber + " do manifesto: o modo por faixas não usa chave.");
+        }
+        return new Job(lineNumber, operation, carrier, payload, output, options, tiled);
+    }
+}
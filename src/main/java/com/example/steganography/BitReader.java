@@ -0,0 +1,51 @@
+package com.example.steganography;
+
+/**
+ * Leitura sequencial de bits empacotados em um array de bytes, do bit mais significativo de cada byte
+ * para o menos significativo (mesma ordem usada na imagem).
+ * <p>
+ * Substitui o antigo boolean[] (1 byte por bit): os dados continuam no próprio array de bytes.
+ */
+public final class BitReader {
+
+    private final byte[] data;
+    private final int offset;
+    private final long limitBits;
+    private long position; // em bits, relativo a offset
+
+    public BitReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public BitReader(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new IndexOutOfBoundsException("Intervalo inválido: offset=" + offset + ", length=" + length);
+        }
+        this.data = data;
+        this.offset = offset;
+        this.limitBits = (long) length * 8;
+    }
+
+    public boolean hasRemaining() {
+        return position < limitBits;
+    }
+
+    public long remaining() {
+        return limitBits - position;
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public long lengthInBits() {
+        return limitBits;
+    }
+
+    // le o próximo bit (0 ou 1); quem chama deve verificar hasRemaining()
+    public int readBit() {
+        int bit = (data[offset + (int) (position >>> 3)] >> (7 - (int) (position & 7))) & 1;
+        position++;
+        return bit;
+    }
+}
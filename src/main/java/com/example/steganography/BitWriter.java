@@ -0,0 +1,52 @@
+package com.example.steganography;
+
+/**
+ * Escrita sequencial de bits empacotados em um array de bytes, do bit mais significativo de cada byte
+ * para o menos significativo (mesma ordem usada na imagem).
+ */
+public final class BitWriter {
+
+    private final byte[] data;
+    private final int offset;
+    private final long limitBits;
+    private long position; // em bits, relativo a offset
+
+    // cria um array novo com espaço para byteCount bytes
+    public BitWriter(int byteCount) {
+        this(new byte[byteCount], 0, byteCount);
+    }
+
+    public BitWriter(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new IndexOutOfBoundsException("Intervalo inválido: offset=" + offset + ", length=" + length);
+        }
+        this.data = data;
+        this.offset = offset;
+        this.limitBits = (long) length * 8;
+    }
+
+    public boolean hasRemaining() {
+        return position < limitBits;
+    }
+
+    public long remaining() {
+        return limitBits - position;
+    }
+
+    public long position() {
+        return position;
+    }
+
+    // grava o próximo bit (0 ou 1); quem chama deve verificar hasRemaining()
+    public void writeBit(int bit) {
+        int index = offset + (int) (position >>> 3);
+        int mask = 1 << (7 - (int) (position & 7));
+        data[index] = (byte) (bit != 0 ? (data[index] | mask) : (data[index] & ~mask));
+        position++;
+    }
+
+    // array de destino (inclui bytes fora do intervalo se o writer foi criado sobre uma parte do array)
+    public byte[] array() {
+        return data;
+    }
+}
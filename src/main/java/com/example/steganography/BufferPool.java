@@ -0,0 +1,82 @@
+package com.example.steganography;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de arrays de trabalho (buffers dos streams de pixels e da descompactação), para não alocar alguns MB
+ * a cada operação. Os arrays são agrupados por tamanho em potências de 2, com no máximo maxPerSize arrays
+ * guardados de cada tamanho.
+ * <p>
+ * Um array devolvido ao pool não pode mais ser usado por quem o devolveu. Os arrays vêm com o conteúdo
+ * antigo; quem pega deve sobrescrever antes de ler.
+ */
+public class BufferPool {
+
+    private static final int MIN_SHIFT = 10; // 1 KB
+    private static final int MAX_SHIFT = 30; // 1 GB
+
+    @SuppressWarnings("unchecked")
+    private final ArrayBlockingQueue<byte[]>[] pools = (ArrayBlockingQueue<byte[]>[]) new ArrayBlockingQueue<?>[MAX_SHIFT + 1];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BufferPool(int maxPerSize) {
+        if (maxPerSize < 1) {
+            throw new IllegalArgumentException("O pool deve guardar pelo menos 1 array por tamanho: " + maxPerSize);
+        }
+        for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+            pools[shift] = new ArrayBlockingQueue<>(maxPerSize);
+        }
+    }
+
+    /**
+     * @return array com pelo menos minSize bytes (o tamanho é arredondado para a potência de 2 seguinte).
+     */
+    public byte[] acquire(int minSize) {
+        int shift = shiftFor(minSize);
+        if (shift > MAX_SHIFT) {
+            misses.increment();
+            return new byte[minSize];
+        }
+        byte[] buffer = pools[shift].poll();
+        if (buffer != null) {
+            hits.increment();
+            return buffer;
+        }
+        misses.increment();
+        return new byte[1 << shift];
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        int shift = Integer.numberOfTrailingZeros(buffer.length);
+        if (buffer.length != (1 << shift) || shift < MIN_SHIFT || shift > MAX_SHIFT || !pools[shift].offer(buffer)) {
+            evictions.increment(); // tamanho fora do pool ou pool cheio: fica para o GC
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // arrays devolvidos que não couberam no pool
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static int shiftFor(int size) {
+        if (size <= 1 << MIN_SHIFT) {
+            return MIN_SHIFT;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
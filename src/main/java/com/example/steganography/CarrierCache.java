@@ -0,0 +1,171 @@
+package com.example.steganography;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+/**
+ * Cache LRU das imagens portadoras já decodificadas, para quem oculta dados várias vezes nas mesmas imagens
+ * de modelo. A chave é o caminho; a data de modificação e o tamanho do arquivo invalidam a entrada quando o
+ * arquivo muda. O limite é a memória ocupada pelos pixels.
+ * <p>
+ * A imagem guardada nunca é alterada: {@link #checkout} devolve uma cópia própria para a ocultação gravar
+ * (a cópia é um arraycopy dos pixels, bem mais barato que decodificar o PNG de novo).
+ */
+public class CarrierCache {
+
+    private static final class Entry {
+        final BufferedImage image;
+        final long lastModified;
+        final long fileSize;
+        final long bytes;
+
+        Entry(BufferedImage image, long lastModified, long fileSize) {
+            this.image = image;
+            this.lastModified = lastModified;
+            this.fileSize = fileSize;
+            DataBuffer buffer = image.getRaster().getDataBuffer();
+            this.bytes = (long) buffer.getSize() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // ordem de acesso
+    private long currentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes memória máxima ocupada pelos pixels das imagens guardadas.
+     */
+    public CarrierCache(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("O tamanho do cache deve ser positivo: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Devolve uma cópia da imagem (já normalizada para o acesso direto do {@link CarrierRaster}), decodificando
+     * o arquivo só se ele não estiver no cache ou tiver mudado.
+     */
+    public BufferedImage checkout(String imagePath, ImageProcessor imageProcessor) throws SteganographyException {
+        Path path = Paths.get(imagePath).toAbsolutePath().normalize();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // o loadImage dá a mensagem de erro adequada (arquivo inexistente, sem permissão...)
+            return imageProcessor.loadImage(imagePath);
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(path);
+            if (entry != null && (entry.lastModified != lastModified || entry.fileSize != attributes.size())) {
+                remove(path); // arquivo mudou desde que foi guardado
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            hits.increment();
+            return copyOf(entry.image);
+        }
+
+        misses.increment();
+        BufferedImage image = CarrierRaster.wrap(imageProcessor.loadImage(imagePath)).getImage();
+        Entry loaded = new Entry(image, lastModified, attributes.size());
+        if (loaded.bytes <= maxBytes) {
+            synchronized (this) {
+                if (entries.containsKey(path)) {
+                    remove(path); // outra thread carregou ao mesmo tempo; fica a mais recente
+                }
+                entries.put(path, loaded);
+                currentBytes += loaded.bytes;
+                evictToLimit();
+            }
+        }
+        return copyOf(image);
+    }
+
+    // descarta as imagens usadas há mais tempo até caber no limite
+    private void evictToLimit() {
+        Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            currentBytes -= it.next().getValue().bytes;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(Path path) {
+        Entry removed = entries.remove(path);
+        if (removed != null) {
+            currentBytes -= removed.bytes;
+            evictions.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // entradas descartadas pelo limite de memória ou porque o arquivo mudou
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    // cópia independente dos pixels, com o mesmo layout
+    static BufferedImage copyOf(BufferedImage image) {
+        WritableRaster source = image.getRaster();
+        WritableRaster target = source.createCompatibleWritableRaster();
+        DataBuffer from = source.getDataBuffer();
+        DataBuffer to = target.getDataBuffer();
+        if (from.getNumBanks() == 1 && from.getSize() == to.getSize() && from.getOffset() == 0
+                && source.getSampleModelTranslateX() == 0 && source.getSampleModelTranslateY() == 0) {
+            if (from instanceof DataBufferInt intFrom && to instanceof DataBufferInt intTo) {
+                System.arraycopy(intFrom.getData(), 0, intTo.getData(), 0, from.getSize());
+            } else if (from instanceof DataBufferByte byteFrom && to instanceof DataBufferByte byteTo) {
+                System.arraycopy(byteFrom.getData(), 0, byteTo.getData(), 0, from.getSize());
+            } else {
+                target.setRect(source);
+            }
+        } else {
+            target.setRect(source);
+        }
+        return new BufferedImage(image.getColorModel(), target, image.isAlphaPremultiplied(), null);
+    }
+}
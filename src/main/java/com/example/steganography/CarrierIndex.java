@@ -0,0 +1,262 @@
+package com.example.steganography;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+/**
+ * Índice das imagens PNG de um diretório, montado só com o IHDR de cada arquivo (os primeiros 33 bytes), sem
+ * decodificar nenhuma imagem. Com ele dá para escolher a menor imagem em que um ZIP cabe antes de carregar a
+ * imagem e de compactar os dados, em vez de descobrir que ela é pequena demais no meio da ocultação.
+ * <p>
+ * As imagens ficam ordenadas pela quantidade de pixels (e pelo tamanho do arquivo, no empate), então a capacidade
+ * em uma mesma profundidade cresce ao longo da lista e a escolha é uma busca binária. Uma imagem com paleta é
+ * tratada como sem alfa, mesmo que tenha um chunk tRNS (que só aparece depois do IHDR).
+ */
+public final class CarrierIndex {
+
+    private static final int IHDR_BUFFER_SIZE = 64;
+
+    private static final Comparator<Entry> BY_SIZE = Comparator.comparingLong(Entry::getPixels)
+            .thenComparingLong(Entry::getFileSize)
+            .thenComparing(entry -> entry.getPath().toString());
+
+    /**
+     * Uma imagem do índice, com os dados do IHDR.
+     */
+    public static final class Entry {
+        private final Path path;
+        private final int width;
+        private final int height;
+        private final int bitDepth;
+        private final int colorType;
+        private final long fileSize;
+
+        Entry(Path path, int width, int height, int bitDepth, int colorType, long fileSize) {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+            this.bitDepth = bitDepth;
+            this.colorType = colorType;
+            this.fileSize = fileSize;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public long getPixels() {
+            return (long) width * height;
+        }
+
+        public int getBitDepth() {
+            return bitDepth;
+        }
+
+        public int getColorType() {
+            return colorType;
+        }
+
+        // bits por pixel do arquivo (profundidade x amostras), não o que a ocultação usa
+        public int getBitsPerPixel() {
+            switch (colorType) {
+                case 2:
+                    return bitDepth * 3;
+                case 4:
+                    return bitDepth * 2;
+                case 6:
+                    return bitDepth * 4;
+                default:
+                    return bitDepth; // cinza ou paleta
+            }
+        }
+
+        public boolean hasAlpha() {
+            return colorType == 4 || colorType == 6;
+        }
+
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        /**
+         * Bytes de dados (ZIP já dividido em blocos) que cabem depois do cabeçalho, ou 0 se a imagem não tiver
+         * alfa e useAlpha for pedido.
+         */
+        public long getCapacityBytes(int bitsPerChannel, boolean useAlpha) {
+            if (useAlpha && !hasAlpha()) {
+                return 0;
+            }
+            long startBit = (long) StegoHeader.HEADER_PIXELS * channels(useAlpha) * bitsPerChannel;
+            return Math.max(0, CarrierRaster.capacityBits(width, height, bitsPerChannel, useAlpha) - startBit) / 8;
+        }
+    }
+
+    /**
+     * Imagem escolhida para um ZIP e a menor quantidade de bits por canal em que ele cabe nela.
+     */
+    public static final class Choice {
+        private final Entry entry;
+        private final int bitsPerChannel;
+        private final boolean useAlpha;
+        private final long containerBytes;
+
+        Choice(Entry entry, int bitsPerChannel, boolean useAlpha, long containerBytes) {
+            this.entry = entry;
+            this.bitsPerChannel = bitsPerChannel;
+            this.useAlpha = useAlpha;
+            this.containerBytes = containerBytes;
+        }
+
+        public Entry getEntry() {
+            return entry;
+        }
+
+        public int getBitsPerChannel() {
+            return bitsPerChannel;
+        }
+
+        public boolean usesAlpha() {
+            return useAlpha;
+        }
+
+        public long getContainerBytes() {
+            return containerBytes;
+        }
+
+        // pixels alterados na ocultação: o cabeçalho e os que recebem os dados
+        public long getPixelsTouched() {
+            return StegoHeader.HEADER_PIXELS + payloadPixels(containerBytes, bitsPerChannel, useAlpha);
+        }
+    }
+
+    private final Path directory;
+    private final List<Entry> entries;
+    private final List<Entry> withAlpha;
+    private final List<String> skipped;
+
+    private CarrierIndex(Path directory, List<Entry> entries, List<String> skipped) {
+        entries.sort(BY_SIZE);
+        List<Entry> alpha = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.hasAlpha()) {
+                alpha.add(entry);
+            }
+        }
+        this.directory = directory;
+        this.entries = Collections.unmodifiableList(entries);
+        this.withAlpha = Collections.unmodifiableList(alpha);
+        this.skipped = Collections.unmodifiableList(skipped);
+    }
+
+    /**
+     * Lê o IHDR de cada arquivo .png do diretório (sem entrar nos subdiretórios). Arquivos que não são PNG
+     * válidos ficam de fora e aparecem em {@link #getSkipped()}.
+     */
+    public static CarrierIndex scan(String directoryPath) throws SteganographyException {
+        Path directory = Paths.get(directoryPath);
+        if (!Files.isDirectory(directory)) {
+            throw new SteganographyException("O diretório de imagens não existe: " + directoryPath);
+        }
+        List<Entry> entries = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{png,PNG}")) {
+            for (Path file : files) {
+                if (!Files.isRegularFile(file)) {
+                    continue;
+                }
+                try {
+                    entries.add(read(file));
+                } catch (IOException e) {
+                    skipped.add(file + ": " + (e.getMessage() != null ? e.getMessage() : "PNG truncado."));
+                }
+            }
+        } catch (IOException e) {
+            throw new SteganographyException("Erro ao listar as imagens de " + directoryPath, e);
+        }
+        return new CarrierIndex(directory, entries, skipped);
+    }
+
+    private static Entry read(Path file) throws IOException {
+        try (PngRowReader reader = new PngRowReader(new BufferedInputStream(Files.newInputStream(file), IHDR_BUFFER_SIZE))) {
+            return new Entry(file, reader.getWidth(), reader.getHeight(), reader.getBitDepth(), reader.getColorType(),
+                    Files.size(file));
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // imagens do índice, da menor para a maior
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    // arquivos .png que não puderam ser lidos, com o motivo
+    public List<String> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Menor imagem em que containerBytes bytes cabem (veja {@link StegoHeader#containerSize(long, int)}).
+     * Com {@link EmbedOptions#AUTO}, vale a menor profundidade em que alguma imagem comporta os dados, como na
+     * ocultação (menos bits = alteração menos perceptível), e dentro dela a menor imagem.
+     *
+     * @return a escolha, ou null se nenhuma imagem do índice comporta os dados.
+     */
+    public Choice select(long containerBytes, int bitsPerChannel, boolean useAlpha) {
+        int first = bitsPerChannel == EmbedOptions.AUTO ? 1 : bitsPerChannel;
+        int last = bitsPerChannel == EmbedOptions.AUTO ? CarrierRaster.MAX_BITS_PER_CHANNEL : bitsPerChannel;
+        List<Entry> candidates = useAlpha ? withAlpha : entries;
+        for (int bits = first; bits <= last; bits++) {
+            long minPixels = StegoHeader.HEADER_PIXELS + payloadPixels(containerBytes, bits, useAlpha);
+            int index = firstWithPixels(candidates, minPixels);
+            if (index < candidates.size()) {
+                return new Choice(candidates.get(index), bits, useAlpha, containerBytes);
+            }
+        }
+        return null;
+    }
+
+    // primeira posição com pelo menos minPixels pixels (busca binária, a lista está ordenada por pixels)
+    private static int firstWithPixels(List<Entry> sorted, long minPixels) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted.get(middle).getPixels() < minPixels) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long payloadPixels(long containerBytes, int bitsPerChannel, boolean useAlpha) {
+        long bitsPerPixel = (long) channels(useAlpha) * bitsPerChannel;
+        return (containerBytes * 8 + bitsPerPixel - 1) / bitsPerPixel;
+    }
+
+    private static int channels(boolean useAlpha) {
+        return useAlpha ? CarrierRaster.CHANNELS + 1 : CarrierRaster.CHANNELS;
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.steganography;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Acesso direto ao array de dados da imagem (DataBufferInt ou DataBufferByte) para a leitura e
+ * escrita dos bits LSB, sem passar pela conversão de modelo de cor de getRGB/setRGB a cada pixel.
+ * <p>
+ * Os bits seguem o mesmo layout de sempre: pixels em ordem de linha (y, depois x) e, em cada pixel,
+ * o LSB do vermelho, do verde e do azul, nessa ordem. Com {@link #withLayout(int, boolean)} cada canal
+ * pode carregar de 1 a 4 bits (o primeiro bit do fluxo vai no bit mais alto dos usados) e o canal alfa
+ * pode ser usado como quarto canal, depois do azul. Com {@link #withPermutation(PixelPermutation)} a ordem dos
+ * pixels passa a ser a da permutação (blocos de pixels seguidos espalhados pela imagem).
+ * <p>
+ * Imagens com modelo de cor que não seja RGB de 8 bits por canal (paleta, tons de cinza, 16 bits...)
+ * são normalizadas para uma cópia TYPE_INT_RGB/TYPE_INT_ARGB; nesse caso {@link #getImage()} devolve a cópia,
+ * que é a imagem que deve ser salva.
+ */
+public final class CarrierRaster {
+
+    public static final int CHANNELS = 3; // R, G, B
+    public static final int MAX_BITS_PER_CHANNEL = 4;
+
+    private final BufferedImage image;
+    private final int width;
+    private final int height;
+
+    // layout empacotado: um int por pixel (TYPE_INT_RGB, TYPE_INT_ARGB...)
+    private final int[] intData;
+    // layout intercalado: bytes por pixel (TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR...)
+    private final byte[] byteData;
+
+    private final int baseOffset;
+    private final int scanlineStride;
+    private final int pixelStride;
+    // deslocamento de bits (layout int) ou offset do byte dentro do pixel (layout byte) de R, G, B e alfa (-1 se não houver)
+    private final int[] channelOffsets;
+
+    private final int bitsPerChannel;
+    private final boolean useAlpha;
+    private final int bitsPerPixel;
+    // para cada bit do pixel (na ordem do fluxo): offset do byte (layout byte) e deslocamento do bit
+    private final int[] bitByteOffsets;
+    private final int[] bitShifts;
+    private final PixelPermutation permutation; // null = ordem de linha
+
+    private CarrierRaster(BufferedImage image, int[] intData, byte[] byteData, int baseOffset,
+            int scanlineStride, int pixelStride, int[] channelOffsets, int bitsPerChannel, boolean useAlpha) {
+        this(image, intData, byteData, baseOffset, scanlineStride, pixelStride, channelOffsets, bitsPerChannel, useAlpha,
+                null);
+    }
+
+    private CarrierRaster(BufferedImage image, int[] intData, byte[] byteData, int baseOffset,
+            int scanlineStride, int pixelStride, int[] channelOffsets, int bitsPerChannel, boolean useAlpha,
+            PixelPermutation permutation) {
+        this.image = image;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.intData = intData;
+        this.byteData = byteData;
+        this.baseOffset = baseOffset;
+        this.scanlineStride = scanlineStride;
+        this.pixelStride = pixelStride;
+        this.channelOffsets = channelOffsets;
+        this.bitsPerChannel = bitsPerChannel;
+        this.useAlpha = useAlpha;
+        this.permutation = permutation;
+
+        int channels = useAlpha ? CHANNELS + 1 : CHANNELS;
+        this.bitsPerPixel = channels * bitsPerChannel;
+        this.bitByteOffsets = new int[bitsPerPixel];
+        this.bitShifts = new int[bitsPerPixel];
+        for (int b = 0; b < bitsPerPixel; b++) {
+            int channel = b / bitsPerChannel;
+            int bitInSample = bitsPerChannel - 1 - (b % bitsPerChannel);
+            if (intData != null) {
+                bitShifts[b] = channelOffsets[channel] + bitInSample;
+            } else {
+                bitByteOffsets[b] = channelOffsets[channel];
+                bitShifts[b] = bitInSample;
+            }
+        }
+    }
+
+    /**
+     * Cria o acesso direto para a imagem. Se o layout não for suportado, trabalha sobre uma cópia normalizada.
+     */
+    public static CarrierRaster wrap(BufferedImage image) {
+        CarrierRaster raster = tryWrapDirect(image);
+        if (raster != null) {
+            return raster;
+        }
+        return tryWrapDirect(normalize(image));
+    }
+
+    /**
+     * Acesso direto sem normalização: devolve null se o layout da imagem não for suportado.
+     */
+    public static CarrierRaster wrapDirect(BufferedImage image) {
+        return tryWrapDirect(image);
+    }
+
+    private static CarrierRaster tryWrapDirect(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getNumBanks() != 1 || image.isAlphaPremultiplied()) {
+            return null;
+        }
+
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+
+        if (image.getColorModel() instanceof DirectColorModel colorModel
+                && sampleModel instanceof SinglePixelPackedSampleModel packed
+                && dataBuffer instanceof DataBufferInt intBuffer
+                && colorModel.getColorSpace().isCS_sRGB()) {
+            int[] masks = packed.getBitMasks();
+            int[] bitOffsets = packed.getBitOffsets();
+            if (masks.length < CHANNELS) {
+                return null;
+            }
+            for (int c = 0; c < masks.length; c++) {
+                if (masks[c] != (0xFF << bitOffsets[c])) {
+                    return null;
+                }
+            }
+            int alphaOffset = masks.length > CHANNELS ? bitOffsets[CHANNELS] : -1;
+            return new CarrierRaster(image, intBuffer.getData(), null, intBuffer.getOffset(),
+                    packed.getScanlineStride(), 1,
+                    new int[] { bitOffsets[0], bitOffsets[1], bitOffsets[2], alphaOffset }, 1, false);
+        }
+
+        if (image.getColorModel() instanceof ComponentColorModel colorModel
+                && sampleModel instanceof ComponentSampleModel component
+                && dataBuffer instanceof DataBufferByte byteBuffer
+                && colorModel.getColorSpace().getType() == ColorSpace.TYPE_RGB
+                && colorModel.getColorSpace().isCS_sRGB()
+                && component.getNumBands() >= CHANNELS) {
+            int[] bandOffsets = component.getBandOffsets();
+            int[] bankIndices = component.getBankIndices();
+            for (int c = 0; c < component.getNumBands(); c++) {
+                if (bankIndices[c] != 0 || component.getSampleSize(c) != 8) {
+                    return null;
+                }
+            }
+            int alphaOffset = component.getNumBands() > CHANNELS ? bandOffsets[CHANNELS] : -1;
+            return new CarrierRaster(image, null, byteBuffer.getData(), byteBuffer.getOffset(),
+                    component.getScanlineStride(), component.getPixelStride(),
+                    new int[] { bandOffsets[0], bandOffsets[1], bandOffsets[2], alphaOffset }, 1, false);
+        }
+
+        return null;
+    }
+
+    // copia a imagem para um layout int RGB/ARGB usando a mesma conversão de getRGB
+    private static BufferedImage normalize(BufferedImage source) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), type);
+        int[] row = new int[source.getWidth()];
+        for (int y = 0; y < source.getHeight(); y++) {
+            source.getRGB(0, y, row.length, 1, row, 0, row.length);
+            copy.setRGB(0, y, row.length, 1, row, 0, row.length);
+        }
+        return copy;
+    }
+
+    /**
+     * Visão sobre os mesmos pixels com outra quantidade de bits por canal e, opcionalmente, o canal alfa.
+     * As posições de bit passam a ser contadas nesse novo layout.
+     */
+    public CarrierRaster withLayout(int bitsPerChannel, boolean useAlpha) {
+        if (bitsPerChannel < 1 || bitsPerChannel > MAX_BITS_PER_CHANNEL) {
+            throw new IllegalArgumentException("Bits por canal deve estar entre 1 e " + MAX_BITS_PER_CHANNEL + ": " + bitsPerChannel);
+        }
+        if (useAlpha && !hasAlpha()) {
+            throw new IllegalArgumentException("A imagem não tem canal alfa.");
+        }
+        if (bitsPerChannel == this.bitsPerChannel && useAlpha == this.useAlpha) {
+            return this;
+        }
+        return new CarrierRaster(image, intData, byteData, baseOffset, scanlineStride, pixelStride, channelOffsets,
+                bitsPerChannel, useAlpha, permutation);
+    }
+
+    /**
+     * Visão sobre os mesmos pixels e o mesmo layout, percorridos na ordem da permutação. As posições de bit
+     * continuam contadas do mesmo jeito (pixel * bits por pixel); só muda o pixel onde cada uma fica.
+     */
+    public CarrierRaster withPermutation(PixelPermutation permutation) {
+        if (permutation.getTotalPixels() != (long) width * height) {
+            throw new IllegalArgumentException("A permutação é de uma imagem com outra quantidade de pixels.");
+        }
+        return new CarrierRaster(image, intData, byteData, baseOffset, scanlineStride, pixelStride, channelOffsets,
+                bitsPerChannel, useAlpha, permutation);
+    }
+
+    public boolean isPermuted() {
+        return permutation != null;
+    }
+
+    // capacidade em bits de uma imagem com as dimensões e o layout informados
+    public static long capacityBits(int width, int height, int bitsPerChannel, boolean useAlpha) {
+        return (long) width * height * (useAlpha ? CHANNELS + 1 : CHANNELS) * bitsPerChannel;
+    }
+
+    public boolean hasAlpha() {
+        return channelOffsets[CHANNELS] >= 0;
+    }
+
+    public int getBitsPerChannel() {
+        return bitsPerChannel;
+    }
+
+    public boolean usesAlpha() {
+        return useAlpha;
+    }
+
+    public int getBitsPerPixel() {
+        return bitsPerPixel;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // capacidade em bits no layout atual (1 LSB por canal RGB por padrão)
+    public long getCapacityBits() {
+        return (long) width * height * bitsPerPixel;
+    }
+
+    /**
+     * Copia as amostras de 8 bits da linha y para dest, na ordem R, G, B (e A, se withAlpha),
+     * que é a ordem usada pelo PNG.
+     */
+    public void copyRowSamples(int y, byte[] dest, boolean withAlpha) {
+        int rowStart = baseOffset + y * scanlineStride;
+        int r = channelOffsets[0];
+        int g = channelOffsets[1];
+        int b = channelOffsets[2];
+        int a = channelOffsets[CHANNELS];
+        int i = 0;
+        if (intData != null) {
+            for (int x = 0; x < width; x++) {
+                int pixel = intData[rowStart + x];
+                dest[i++] = (byte) (pixel >> r);
+                dest[i++] = (byte) (pixel >> g);
+                dest[i++] = (byte) (pixel >> b);
+                if (withAlpha) {
+                    dest[i++] = (byte) (pixel >> a);
+                }
+            }
+        } else {
+            for (int x = 0; x < width; x++) {
+                int pixelOffset = rowStart + x * pixelStride;
+                dest[i++] = byteData[pixelOffset + r];
+                dest[i++] = byteData[pixelOffset + g];
+                dest[i++] = byteData[pixelOffset + b];
+                if (withAlpha) {
+                    dest[i++] = byteData[pixelOffset + a];
+                }
+            }
+        }
+    }
+
+    /**
+     * Grava os bits restantes do leitor nos LSBs, a partir do primeiro pixel.
+     *
+     * @return quantidade de bits gravados.
+     */
+    public long embedBits(BitReader bits) {
+        return embedBits(bits, 0);
+    }
+
+    /**
+     * Grava os bits restantes do leitor nos LSBs, começando na posição startBit da imagem
+     * (pixel startBit / bitsPorPixel), sem percorrer os pixels anteriores.
+     *
+     * @return quantidade de bits gravados.
+     */
+    public long embedBits(BitReader bits, long startBit) {
+        long start = bits.position();
+        long pixel = startBit / bitsPerPixel;
+        int bitInPixel = (int) (startBit % bitsPerPixel);
+        long totalPixels = (long) width * height;
+        if (permutation == null) {
+            embedRun(bits, pixel, bitInPixel, totalPixels - pixel);
+        } else {
+            // um trecho de pixels seguidos por vez
+            for (; pixel < totalPixels && bits.hasRemaining(); bitInPixel = 0) {
+                long run = permutation.runLength(pixel);
+                embedRun(bits, permutation.map(pixel), bitInPixel, run);
+                pixel += run;
+            }
+        }
+        return bits.position() - start;
+    }
+
+    // grava em count pixels seguidos (em ordem de linha) a partir de firstPixel
+    private void embedRun(BitReader bits, long firstPixel, int bitInPixel, long count) {
+        // o raster é indexado por int, então a posição do pixel também cabe em um int
+        int pixelIndex = (int) firstPixel;
+        int x = pixelIndex % width;
+        int rowStart = baseOffset + pixelIndex / width * scanlineStride;
+        for (long i = 0; i < count && bits.hasRemaining(); i++, bitInPixel = 0) {
+            int pixelOffset = rowStart + x * pixelStride;
+            if (intData != null) {
+                int pixel = intData[pixelOffset];
+                for (int b = bitInPixel; b < bitsPerPixel && bits.hasRemaining(); b++) {
+                    int shift = bitShifts[b];
+                    pixel = (pixel & ~(1 << shift)) | (bits.readBit() << shift);
+                }
+                intData[pixelOffset] = pixel;
+            } else {
+                for (int b = bitInPixel; b < bitsPerPixel && bits.hasRemaining(); b++) {
+                    int index = pixelOffset + bitByteOffsets[b];
+                    int shift = bitShifts[b];
+                    byteData[index] = (byte) ((byteData[index] & ~(1 << shift)) | (bits.readBit() << shift));
+                }
+            }
+            if (++x == width) {
+                x = 0;
+                rowStart += scanlineStride;
+            }
+        }
+    }
+
+    /**
+     * Lê os LSBs a partir do primeiro pixel até preencher o writer.
+     *
+     * @return quantidade de bits lidos (menor que o espaço do writer se a imagem acabar antes).
+     */
+    public long extractBits(BitWriter bits) {
+        return extractBits(bits, 0);
+    }
+
+    /**
+     * Lê os LSBs a partir da posição startBit da imagem até preencher o writer. Permite continuar
+     * a leitura de onde uma chamada anterior parou (ex.: cabeçalho e depois o ZIP) sem reler pixels.
+     *
+     * @return quantidade de bits lidos (menor que o espaço do writer se a imagem acabar antes).
+     */
+    public long extractBits(BitWriter bits, long startBit) {
+        long start = bits.position();
+        long pixel = startBit / bitsPerPixel;
+        int bitInPixel = (int) (startBit % bitsPerPixel);
+        long totalPixels = (long) width * height;
+        if (permutation == null) {
+            extractRun(bits, pixel, bitInPixel, totalPixels - pixel);
+        } else {
+            for (; pixel < totalPixels && bits.hasRemaining(); bitInPixel = 0) {
+                long run = permutation.runLength(pixel);
+                extractRun(bits, permutation.map(pixel), bitInPixel, run);
+                pixel += run;
+            }
+        }
+        return bits.position() - start;
+    }
+
+    // lê count pixels seguidos (em ordem de linha) a partir de firstPixel
+    private void extractRun(BitWriter bits, long firstPixel, int bitInPixel, long count) {
+        // o raster é indexado por int, então a posição do pixel também cabe em um int
+        int pixelIndex = (int) firstPixel;
+        int x = pixelIndex % width;
+        int rowStart = baseOffset + pixelIndex / width * scanlineStride;
+        for (long i = 0; i < count && bits.hasRemaining(); i++, bitInPixel = 0) {
+            int pixelOffset = rowStart + x * pixelStride;
+            if (intData != null) {
+                int pixel = intData[pixelOffset];
+                for (int b = bitInPixel; b < bitsPerPixel && bits.hasRemaining(); b++) {
+                    bits.writeBit((pixel >> bitShifts[b]) & 1);
+                }
+            } else {
+                for (int b = bitInPixel; b < bitsPerPixel && bits.hasRemaining(); b++) {
+                    bits.writeBit((byteData[pixelOffset + bitByteOffsets[b]] >> bitShifts[b]) & 1);
+                }
+            }
+            if (++x == width) {
+                x = 0;
+                rowStart += scanlineStride;
+            }
+        }
+    }
+}
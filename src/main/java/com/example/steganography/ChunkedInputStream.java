@@ -0,0 +1,151 @@
+package com.example.steganography;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * Lê os blocos gravados pelo {@link ChunkedOutputStream} e entrega só os dados, conferindo o tamanho e o checksum
+ * de cada bloco antes de liberar os bytes dele. Um bloco corrompido gera IOException logo na leitura dele, sem
+ * que os dados ruins cheguem ao descompactador. Com o fim marcado por um bloco vazio, o tamanho informado é só o
+ * máximo, e os dados terminam no bloco vazio.
+ */
+public final class ChunkedInputStream extends FilterInputStream {
+
+    private final long payloadSize;
+    private final byte[] chunk;
+    private final byte[] frame = new byte[StegoHeader.CHUNK_FRAME_BYTES];
+    private final Checksum crc;
+    private final boolean terminated;
+    private boolean ended;
+    private boolean shortChunk; // o último bloco lido foi menor que os outros: só falta o bloco vazio
+    private long remaining; // bytes de dados ainda não lidos do stream de origem
+    private long chunkIndex;
+    private int position;
+    private int limit;
+
+    /**
+     * @param payloadSize total de dados (sem o tamanho/checksum dos blocos), como está no cabeçalho.
+     */
+    public ChunkedInputStream(InputStream in, long payloadSize, int chunkSize) {
+        this(in, payloadSize, chunkSize, StegoHeader.CHECKSUM_CRC32C);
+    }
+
+    // lê os blocos no formato indicado pelo cabeçalho
+    public ChunkedInputStream(InputStream in, StegoHeader header) {
+        this(in, header.getPayloadSize(), header.getChunkSize(), header.getChecksum(), header.isTerminated());
+    }
+
+    public ChunkedInputStream(InputStream in, long payloadSize, int chunkSize, int checksum) {
+        this(in, payloadSize, chunkSize, checksum, false);
+    }
+
+    /**
+     * @param terminated true se o fim é marcado por um bloco vazio; payloadSize passa a ser o máximo.
+     */
+    public ChunkedInputStream(InputStream in, long payloadSize, int chunkSize, int checksum, boolean terminated) {
+        super(in);
+        if (chunkSize < 1 || chunkSize > StegoHeader.MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Tamanho de bloco inválido: " + chunkSize);
+        }
+        this.payloadSize = payloadSize;
+        this.chunk = new byte[(int) Math.min(chunkSize, Math.max(payloadSize, 1))];
+        this.remaining = payloadSize;
+        this.crc = StegoHeader.newChecksum(checksum);
+        this.terminated = terminated;
+    }
+
+    // quantidade de blocos já lidos e conferidos
+    public long getChunksRead() {
+        return chunkIndex;
+    }
+
+    public long getPayloadSize() {
+        return payloadSize;
+    }
+
+    // false quando os dados acabaram
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        if (ended || (remaining == 0 && !terminated)) {
+            return false;
+        }
+        int expected = (int) Math.min(chunk.length, remaining);
+        if (in.readNBytes(frame, 0, frame.length) != frame.length) {
+            throw new IOException("Os dados terminaram antes do bloco " + chunkIndex + ".");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        int length = buffer.getInt();
+        int storedCrc = buffer.getInt();
+        if (terminated && length == 0) {
+            crc.reset();
+            if ((int) crc.getValue() != storedCrc) {
+                throw new IOException("Bloco final corrompido: o checksum não confere.");
+            }
+            ended = true;
+            return false;
+        }
+        if (terminated ? shortChunk || length < 1 || length > expected : length != expected) {
+            throw new IOException("Bloco " + chunkIndex + " inválido: tamanho " + length + ", esperado "
+                    + (!terminated ? String.valueOf(expected) : shortChunk ? "0" : "até " + expected) + ".");
+        }
+        shortChunk = length < chunk.length;
+        if (in.readNBytes(chunk, 0, length) != length) {
+            throw new IOException("Os dados terminaram no meio do bloco " + chunkIndex + ".");
+        }
+        crc.reset();
+        crc.update(chunk, 0, length);
+        if ((int) crc.getValue() != storedCrc) {
+            throw new IOException("Bloco " + chunkIndex + " corrompido: o checksum não confere.");
+        }
+        chunkIndex++;
+        remaining -= length;
+        position = 0;
+        limit = length;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? chunk[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(chunk, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && fill()) {
+            int step = (int) Math.min(n - skipped, limit - position);
+            position += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
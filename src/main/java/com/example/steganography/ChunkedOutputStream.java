@@ -0,0 +1,116 @@
+package com.example.steganography;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * Divide os bytes recebidos em blocos de tamanho fixo e grava cada bloco precedido do seu tamanho e checksum
+ * (formato da versão 2 do {@link StegoHeader}, CRC32C por padrão). O último bloco pode ser menor; se o tamanho
+ * não vai no cabeçalho ({@link StegoHeader#isTerminated()}), um bloco vazio marca o fim.
+ * <p>
+ * Cada bloco fica em memória até estar completo, porque o checksum vai antes dos dados.
+ */
+public final class ChunkedOutputStream extends FilterOutputStream {
+
+    private final byte[] chunk;
+    private final byte[] frame = new byte[StegoHeader.CHUNK_FRAME_BYTES];
+    private final Checksum crc;
+    private final boolean terminated;
+    private int buffered;
+    private long payloadBytes;
+    private boolean finished;
+
+    public ChunkedOutputStream(OutputStream out, int chunkSize) {
+        this(out, chunkSize, StegoHeader.CHECKSUM_CRC32C);
+    }
+
+    /**
+     * @param checksum algoritmo do checksum, como no cabeçalho ({@link StegoHeader#CHECKSUM_CRC32C}).
+     */
+    public ChunkedOutputStream(OutputStream out, int chunkSize, int checksum) {
+        this(out, chunkSize, checksum, false);
+    }
+
+    /**
+     * @param terminated true para gravar um bloco vazio depois do último (o leitor não sabe o tamanho).
+     */
+    public ChunkedOutputStream(OutputStream out, int chunkSize, int checksum, boolean terminated) {
+        super(out);
+        if (chunkSize < 1 || chunkSize > StegoHeader.MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Tamanho de bloco inválido: " + chunkSize);
+        }
+        this.chunk = new byte[chunkSize];
+        this.crc = StegoHeader.newChecksum(checksum);
+        this.terminated = terminated;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (buffered == chunk.length) {
+            writeChunk();
+        }
+        chunk[buffered++] = (byte) b;
+        payloadBytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (buffered == chunk.length) {
+                writeChunk();
+            }
+            int n = Math.min(len, chunk.length - buffered);
+            System.arraycopy(b, off, chunk, buffered, n);
+            buffered += n;
+            off += n;
+            len -= n;
+            payloadBytes += n;
+        }
+    }
+
+    // bytes recebidos, sem o tamanho/CRC dos blocos
+    public long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    /**
+     * Grava o último bloco (e o bloco vazio do fim) sem fechar o stream de destino.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        writeChunk();
+        if (terminated) {
+            crc.reset();
+            ByteBuffer.wrap(frame).putInt(0).putInt((int) crc.getValue());
+            out.write(frame);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeChunk() throws IOException {
+        if (buffered == 0) {
+            return;
+        }
+        crc.reset();
+        crc.update(chunk, 0, buffered);
+        ByteBuffer.wrap(frame).putInt(buffered).putInt((int) crc.getValue());
+        out.write(frame);
+        out.write(chunk, 0, buffered);
+        buffered = 0;
+    }
+}
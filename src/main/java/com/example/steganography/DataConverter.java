@@ -1,9 +1,13 @@
 package com.example.steganography;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -13,50 +17,39 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 import com.example.steganography.exceptions.SteganographyException;
 
 public class DataConverter {
 
     private static final int HEADER_SIZE_BYTES = 4; // tamanho do cabeçalho em bytes
+    private static final int UNZIP_BUFFER_SIZE = 64 * 1024; // buffer de cópia na descompactação
+    // cabeçalho local + descritor de dados + entrada do diretório central + campos extras, por entrada
+    private static final int ZIP_ENTRY_OVERHEAD = 30 + 24 + 46 + 64;
+    private static final int ZIP_END_OVERHEAD = 22;
+
+    private final BufferPool bufferPool; // pode ser null
+
+    public DataConverter() {
+        this(null);
+    }
+
+    /**
+     * @param bufferPool pool de onde vem o buffer de cópia da descompactação (null = aloca a cada chamada).
+     */
+    public DataConverter(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
 
     public byte[] zipFolder(String sourcePath, String outputPath) throws SteganographyException {
-        Path source = Paths.get(sourcePath);
         Path output = Paths.get(outputPath);
 
-        if (!Files.exists(source)) {
+        if (!Files.exists(Paths.get(sourcePath))) {
             throw new SteganographyException("A pasta/arquivo a ser compactado não existe: " + sourcePath);
         }
 
-        try (FileOutputStream fos = new FileOutputStream(output.toFile());
-            ZipOutputStream zipOut = new ZipOutputStream(fos)) {
-
-            if (Files.isRegularFile(source)) {
-                addToZip(source, source.getFileName().toString(), zipOut);
-            } else if (Files.isDirectory(source)) {
-                Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                        String entryName = source.relativize(dir).toString();
-                        if (!entryName.isEmpty()) { // nao cria entrada para o próprio diretório raiz
-                            zipOut.putNextEntry(new ZipEntry(entryName + "/"));
-                            zipOut.closeEntry();
-                        }
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                        String entryName = source.relativize(file).toString();
-                        addToZip(file, entryName, zipOut);
-                        return FileVisitResult.CONTINUE;
-                    }
-                });
-            } else {
-                throw new SteganographyException("Caminho inválido: " + sourcePath + ". Deve ser um arquivo ou diretório.");
-            }
-
+        try (FileOutputStream fos = new FileOutputStream(output.toFile())) {
+            zipFolder(sourcePath, fos);
         } catch (IOException e) {
             throw new SteganographyException("Erro ao compactar o arquivo/pasta em ZIP: " + sourcePath, e);
         }
@@ -69,21 +62,92 @@ public class DataConverter {
         }
     }
 
-    private void addToZip(Path file, String entryName, ZipOutputStream zipOut) throws IOException {
-        ZipEntry zipEntry = new ZipEntry(entryName);
-        zipOut.putNextEntry(zipEntry);
-        Files.copy(file, zipOut);
-        zipOut.closeEntry();
+    /**
+     * Compacta o arquivo/pasta em ZIP escrevendo direto no stream informado (que não é fechado), com as
+     * opções padrão (entradas comprimidas em paralelo, arquivos já comprimidos sem compressão).
+     *
+     * @return quantidade de bytes do ZIP gerado.
+     */
+    public long zipFolder(String sourcePath, OutputStream out) throws SteganographyException {
+        return zipFolder(sourcePath, out, ZipOptions.defaults());
+    }
+
+    public long zipFolder(String sourcePath, OutputStream out, ZipOptions options) throws SteganographyException {
+        Path source = Paths.get(sourcePath);
+
+        if (!Files.exists(source)) {
+            throw new SteganographyException("A pasta/arquivo a ser compactado não existe: " + sourcePath);
+        }
+        if (!Files.isRegularFile(source) && !Files.isDirectory(source)) {
+            throw new SteganographyException("Caminho inválido: " + sourcePath + ". Deve ser um arquivo ou diretório.");
+        }
+
+        CountingOutputStream counter = new CountingOutputStream(out);
+        try {
+            new ParallelZipWriter(options).write(source, counter);
+        } catch (IOException e) {
+            throw new SteganographyException("Erro ao compactar o arquivo/pasta em ZIP: " + sourcePath, e);
+        }
+        return counter.count;
+    }
+
+    /**
+     * Limite superior do tamanho do ZIP que {@link #zipFolder(String, OutputStream)} vai gerar, calculado só
+     * com os tamanhos dos arquivos (sem compactar). Usado para escolher o layout antes de gravar.
+     */
+    public long estimateZipSize(String sourcePath) throws SteganographyException {
+        Path source = Paths.get(sourcePath);
+        if (!Files.exists(source)) {
+            throw new SteganographyException("A pasta/arquivo a ser compactado não existe: " + sourcePath);
+        }
+
+        long[] total = { ZIP_END_OVERHEAD };
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    total[0] += ZIP_ENTRY_OVERHEAD + 2L * source.relativize(dir).toString().length() * 3;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    long size = attrs.size();
+                    // pior caso do deflate (dados incompressíveis), como o deflateBound do zlib
+                    long deflated = size + (size >> 12) + (size >> 14) + (size >> 25) + 13;
+                    String name = file.equals(source) ? file.getFileName().toString() : source.relativize(file).toString();
+                    total[0] += deflated + ZIP_ENTRY_OVERHEAD + 2L * name.length() * 3;
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new SteganographyException("Erro ao calcular o tamanho do arquivo/pasta: " + sourcePath, e);
+        }
+        return total[0];
     }
 
     public void unzipToFolder(byte[] zipBytes, String outputDirectory) throws SteganographyException {
+        unzipToFolder(zipBytes, 0, zipBytes.length, outputDirectory);
+    }
+
+    // descompacta o ZIP que está em zipBytes[offset, offset + length), sem copiar o trecho
+    public void unzipToFolder(byte[] zipBytes, int offset, int length, String outputDirectory) throws SteganographyException {
+        unzipToFolder(new ByteArrayInputStream(zipBytes, offset, length), outputDirectory);
+    }
+
+    /**
+     * Descompacta o ZIP lido do stream conforme ele chega (o stream é fechado no final), então os arquivos
+     * vão sendo gravados sem o ZIP inteiro em memória.
+     */
+    public void unzipToFolder(InputStream zipStream, String outputDirectory) throws SteganographyException {
         File destDir = new File(outputDirectory);
         if (!destDir.exists()) {
             destDir.mkdirs();
         }
 
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(zipBytes);
-            ZipInputStream zipIn = new ZipInputStream(bais)) {
+        // um único buffer para todas as entradas
+        byte[] buffer = bufferPool != null ? bufferPool.acquire(UNZIP_BUFFER_SIZE) : new byte[UNZIP_BUFFER_SIZE];
+        try (ZipInputStream zipIn = new ZipInputStream(new BufferedInputStream(zipStream, UNZIP_BUFFER_SIZE))) {
 
             ZipEntry entry = zipIn.getNextEntry();
             while (entry != null) {
@@ -91,7 +155,6 @@ public class DataConverter {
                 if (!entry.isDirectory()) {
                     new File(filePath).getParentFile().mkdirs();
                     try (FileOutputStream fos = new FileOutputStream(filePath)) {
-                        byte[] buffer = new byte[1024];
                         int len;
                         while ((len = zipIn.read(buffer)) > 0) {
                             fos.write(buffer, 0, len);
@@ -106,52 +169,73 @@ public class DataConverter {
             }
         } catch (IOException e) {
             throw new SteganographyException("Erro ao descompactar o arquivo ZIP.", e);
+        } finally {
+            if (bufferPool != null) {
+                bufferPool.release(buffer);
+            }
         }
     }
 
     /**
-     * @param bytes array de bytes a ser convertido.
-     * @return array de booleanos representando a sequência de bits.
+     * Lê o ZIP do stream sem gravar nada, só conferindo o CRC de cada entrada (o ZipInputStream confere ao
+     * chegar no fim dela). O stream não é fechado.
+     *
+     * @return quantidade de entradas lidas.
      */
-    public boolean[] bytesToBits(byte[] bytes) {
-        boolean[] bits = new boolean[bytes.length * 8];
-        for (int i = 0; i < bytes.length; i++) {
-            for (int j = 0; j < 8; j++) {
-                // extrai o bit j (0 a 7, da esquerda para a direita) do byte i
-                // (byte >> (7 - j)) & 1 extrai o bit mais significativo primeiro
-                bits[i * 8 + j] = ((bytes[i] >> (7 - j)) & 1) == 1;
+    public long verifyZip(InputStream zipStream) throws SteganographyException {
+        byte[] buffer = bufferPool != null ? bufferPool.acquire(UNZIP_BUFFER_SIZE) : new byte[UNZIP_BUFFER_SIZE];
+        try {
+            ZipInputStream zipIn = new ZipInputStream(new BufferedInputStream(zipStream, UNZIP_BUFFER_SIZE));
+            long entries = 0;
+            while (zipIn.getNextEntry() != null) {
+                while (zipIn.read(buffer) > 0) {
+                    // só para o CRC ser calculado
+                }
+                entries++;
+            }
+            return entries;
+        } catch (IOException e) {
+            throw new SteganographyException("Dados corrompidos: " + e.getMessage(), e);
+        } finally {
+            if (bufferPool != null) {
+                bufferPool.release(buffer);
             }
         }
-        return bits;
     }
 
-    //onverte uma sequência de bits em um array de bytes
-    public byte[] bitsToBytes(boolean[] bits) throws SteganographyException {
-        if (bits.length % 8 != 0) {
-            throw new SteganographyException("A sequência de bits não tem um número de bits que é um múltiplo de 8.");
-        }
+    /**
+     * @param bytes array de bytes a ser convertido.
+     * @return leitor da sequência de bits (MSB primeiro), sem copiar os bytes.
+     */
+    public BitReader bytesToBits(byte[] bytes) {
+        return new BitReader(bytes);
+    }
 
-        // coloca o bit na posição correta
-        byte[] bytes = new byte[bits.length / 8];
-        for (int i = 0; i < bytes.length; i++) {
-            byte currentByte = 0;
-            for (int j = 0; j < 8; j++) {
-                if (bits[i * 8 + j]) {
-                    currentByte |= (1 << (7 - j));
-                }
-            }
-            bytes[i] = currentByte;
+    //converte a sequência de bits gravada no writer de volta em bytes
+    public byte[] bitsToBytes(BitWriter bits) throws SteganographyException {
+        if (bits.hasRemaining()) {
+            throw new SteganographyException("A sequência de bits está incompleta. Faltam " + bits.remaining() + " bits.");
         }
-        return bytes;
+        return bits.array();
     }
 
-    // gera um cabeçalho de 4 bytes com o tamanho dos dados
+    /**
+     * Gera um cabeçalho de 4 bytes com o tamanho dos dados (formato legado).
+     *
+     * @deprecated limitado a 2 GB; o cabeçalho gravado nas imagens agora é o {@link StegoHeader}, com tamanho long.
+     */
+    @Deprecated
     public byte[] generateHeader(int dataSize) {
         //converter int para 4 bytes
         return ByteBuffer.allocate(HEADER_SIZE_BYTES).putInt(dataSize).array();
     }
 
-    //extrai o tamanho dos dados do array de bytes que seria o cabecalho
+    /**
+     * Extrai o tamanho dos dados do array de bytes que seria o cabecalho (formato legado).
+     *
+     * @deprecated use {@link StegoHeader#readFrom(CarrierRaster)}, que reconhece todos os formatos.
+     */
+    @Deprecated
     public int extractHeader(byte[] headerBytes) throws SteganographyException {
         if (headerBytes.length != HEADER_SIZE_BYTES) {
             throw new SteganographyException("O cabeçalho tem um tamanho inválido. Esperado " + HEADER_SIZE_BYTES + " bytes.");
@@ -159,8 +243,39 @@ public class DataConverter {
         return ByteBuffer.wrap(headerBytes).getInt();
     }
 
-    //tamanho do cabecalho em bits
+    /**
+     * Tamanho do cabecalho legado em bits.
+     *
+     * @deprecated veja {@link StegoHeader#reservedBits()}.
+     */
+    @Deprecated
     public int getHeaderSizeInBits() {
         return HEADER_SIZE_BYTES * 8;
     }
-}
\ No newline at end of file
+
+    // conta os bytes que passam para o stream de destino
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush(); // o stream de destino é de quem chamou
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.steganography;
+
+/**
+ * Opções da ocultação. O padrão escolhe automaticamente a menor quantidade de bits por canal
+ * em que os dados cabem, sem usar o canal alfa.
+ */
+public class EmbedOptions {
+
+    public static final int AUTO = 0;
+
+    private int bitsPerChannel = AUTO;
+    private boolean useAlpha;
+    private PngWriteOptions pngOptions = PngWriteOptions.defaults();
+    private ZipOptions zipOptions = ZipOptions.defaults();
+    private int chunkSize = StegoHeader.DEFAULT_CHUNK_SIZE;
+    private String key;
+
+    public static EmbedOptions defaults() {
+        return new EmbedOptions();
+    }
+
+    public int getBitsPerChannel() {
+        return bitsPerChannel;
+    }
+
+    /**
+     * @param bitsPerChannel de 1 a 4, ou {@link #AUTO} para escolher pela capacidade da imagem.
+     */
+    public EmbedOptions setBitsPerChannel(int bitsPerChannel) {
+        if (bitsPerChannel != AUTO && (bitsPerChannel < 1 || bitsPerChannel > CarrierRaster.MAX_BITS_PER_CHANNEL)) {
+            throw new IllegalArgumentException("Bits por canal deve estar entre 1 e " + CarrierRaster.MAX_BITS_PER_CHANNEL
+                    + " (ou automático): " + bitsPerChannel);
+        }
+        this.bitsPerChannel = bitsPerChannel;
+        return this;
+    }
+
+    public boolean isUseAlpha() {
+        return useAlpha;
+    }
+
+    // usa o canal alfa como quarto canal (só em imagens ARGB)
+    public EmbedOptions setUseAlpha(boolean useAlpha) {
+        this.useAlpha = useAlpha;
+        return this;
+    }
+
+    public PngWriteOptions getPngOptions() {
+        return pngOptions;
+    }
+
+    // compressão usada ao gravar a imagem de saída
+    public EmbedOptions setPngOptions(PngWriteOptions pngOptions) {
+        this.pngOptions = pngOptions;
+        return this;
+    }
+
+    public ZipOptions getZipOptions() {
+        return zipOptions;
+    }
+
+    // compactação do payload (nível, STORED, paralelismo)
+    public EmbedOptions setZipOptions(ZipOptions zipOptions) {
+        this.zipOptions = zipOptions;
+        return this;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    // tamanho dos blocos do ZIP na imagem; cada bloco tem seu CRC, conferido na extração
+    public EmbedOptions setChunkSize(int chunkSize) {
+        if (chunkSize < 1 || chunkSize > StegoHeader.MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Tamanho de bloco deve estar entre 1 e " + StegoHeader.MAX_CHUNK_SIZE + ": " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @param key se não for null, os dados são espalhados pela imagem na ordem de uma {@link PixelPermutation}
+     *            gerada por esta chave, em vez de ocupar as primeiras linhas; a mesma chave é pedida na extração.
+     */
+    public EmbedOptions setKey(String key) {
+        if (key != null && key.isEmpty()) {
+            throw new IllegalArgumentException("A chave não pode ser vazia.");
+        }
+        this.key = key;
+        return this;
+    }
+}
@@ -1,18 +1,33 @@
 package com.example.steganography;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import com.example.steganography.exceptions.SteganographyException;
 
 public class ImageProcessor {
+
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+    private static final int PROBE_BUFFER_SIZE = 16 * 1024;
+
     public BufferedImage loadImage(String imagePath) throws SteganographyException {
         Path imageFilePath = Paths.get(imagePath); // usar path para files.newInputStream
         File imageFile = imageFilePath.toFile(); // manter file para verificação de existência/tipo
@@ -41,7 +56,91 @@ public class ImageProcessor {
         }
     }
 
+    /**
+     * Primeiras linhas da imagem e as dimensões da imagem inteira.
+     */
+    public static final class TopRows {
+        private final BufferedImage rows;
+        private final int imageWidth;
+        private final int imageHeight;
+
+        TopRows(BufferedImage rows, int imageWidth, int imageHeight) {
+            this.rows = rows;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+        }
+
+        public BufferedImage getRows() {
+            return rows;
+        }
+
+        public int getImageWidth() {
+            return imageWidth;
+        }
+
+        public int getImageHeight() {
+            return imageHeight;
+        }
+    }
+
+    /**
+     * Decodifica só as primeiras linhas da imagem (as que contêm pelo menos minPixels pixels), sem carregar o resto.
+     * PNGs RGB/RGBA de 8 bits são lidos pelo {@link PngRowReader}, que para de descomprimir na última linha
+     * pedida; os demais formatos usam um ImageReader com região de origem.
+     */
+    public TopRows loadTopRows(String imagePath, int minPixels) throws SteganographyException {
+        Path imageFilePath = Paths.get(imagePath);
+        if (!Files.isRegularFile(imageFilePath)) {
+            throw new SteganographyException("Arquivo de imagem não encontrado: " + imagePath);
+        }
+
+        try {
+            if (PngRowReader.isPng(imageFilePath)) {
+                try (PngRowReader reader = new PngRowReader(new BufferedInputStream(Files.newInputStream(imageFilePath), PROBE_BUFFER_SIZE))) {
+                    int rows = rowsFor(minPixels, reader.getWidth(), reader.getHeight());
+                    if (reader.isSupported()) {
+                        return new TopRows(reader.readRows(rows), reader.getWidth(), reader.getHeight());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new SteganographyException("Erro ao ler o início da imagem: " + imagePath, e);
+        }
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(imageFilePath.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new SteganographyException("O arquivo não pôde ser lido como uma imagem PNG válida: " + imagePath);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle(0, 0, width, rowsFor(minPixels, width, height)));
+                return new TopRows(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new SteganographyException("Erro ao ler o início da imagem: " + imagePath, e);
+        }
+    }
+
+    private static int rowsFor(int minPixels, int width, int height) {
+        return (int) Math.min(height, Math.max(1, ((long) minPixels + width - 1) / width));
+    }
+
     public void saveImage(BufferedImage image, String outputPath) throws SteganographyException {
+        saveImage(image, outputPath, PngWriteOptions.defaults());
+    }
+
+    /**
+     * Salva a imagem como PNG com as opções de compressão indicadas. Imagens RGB/ARGB de 8 bits vão pelo
+     * {@link PngEncoder}, gravando por um canal NIO com buffer; outros layouts caem no ImageIO.
+     */
+    public void saveImage(BufferedImage image, String outputPath, PngWriteOptions options) throws SteganographyException {
         try {
             File outputFile = new File(outputPath);
             // garante que o diretório de saída exista
@@ -49,8 +148,21 @@ public class ImageProcessor {
             if (parentDir != null && !parentDir.exists()) {
                 parentDir.mkdirs(); // cria diretórios pais se não existirem
             }
-            ImageIO.write(image, "PNG", outputFile);
+            if (!PngEncoder.supports(image)) {
+                ImageIO.write(image, "PNG", outputFile);
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE)) {
+                new PngEncoder().write(image, out, options);
+            }
         } catch (IOException e) {
+            try {
+                Files.deleteIfExists(Paths.get(outputPath)); // não deixa um PNG truncado no lugar da saída
+            } catch (IOException deleteError) {
+                e.addSuppressed(deleteError);
+            }
             throw new SteganographyException("Erro ao salvar a imagem em: " + outputPath, e);
         }
     }
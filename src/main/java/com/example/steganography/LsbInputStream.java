@@ -0,0 +1,142 @@
+package com.example.steganography;
+
+import java.io.InputStream;
+
+/**
+ * InputStream que lê os bytes sob demanda dos LSBs da imagem, a partir de uma posição de bit e com
+ * tamanho conhecido (o valor do cabeçalho).
+ * <p>
+ * Entregue direto ao ZipInputStream na extração: os arquivos vão sendo gravados enquanto os pixels são
+ * lidos e o ZIP inteiro nunca fica em memória.
+ */
+public final class LsbInputStream extends InputStream {
+
+    private static final int PARALLEL_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final CarrierRaster carrier;
+    private final ParallelLsbEngine parallelEngine; // pode ser null
+    private final BufferPool bufferPool; // pode ser null
+    private final long length;
+    private long nextBit;
+    private long bytesRead;
+    private long pixelNanos;
+    private boolean closed;
+
+    // usado só no modo paralelo: blocos grandes lidos de uma vez
+    private final byte[] buffer;
+    private int bufferPos;
+    private int bufferLimit;
+    private final byte[] single = new byte[1]; // read() no modo sequencial
+
+    public LsbInputStream(CarrierRaster carrier, long startBit, long length) {
+        this(carrier, startBit, length, null);
+    }
+
+    /**
+     * @param parallelEngine se não for null, os bytes são lidos em blocos grandes em paralelo; nesse caso
+     *                       startBit precisa ser múltiplo de 8.
+     */
+    public LsbInputStream(CarrierRaster carrier, long startBit, long length, ParallelLsbEngine parallelEngine) {
+        this(carrier, startBit, length, parallelEngine, null);
+    }
+
+    /**
+     * @param bufferPool se não for null, o buffer do modo paralelo vem do pool e volta para ele no close().
+     */
+    public LsbInputStream(CarrierRaster carrier, long startBit, long length, ParallelLsbEngine parallelEngine,
+            BufferPool bufferPool) {
+        if (startBit + length * 8 > carrier.getCapacityBits()) {
+            throw new IllegalArgumentException("Os dados ultrapassam a capacidade da imagem: " + (startBit + length * 8)
+                    + " bits, capacidade " + carrier.getCapacityBits());
+        }
+        if (parallelEngine != null && startBit % 8 != 0) {
+            throw new IllegalArgumentException("A posição inicial deve ser múltiplo de 8 bits no modo paralelo: " + startBit);
+        }
+        this.carrier = carrier;
+        this.parallelEngine = parallelEngine;
+        this.length = length;
+        this.nextBit = startBit;
+        this.bufferPool = bufferPool;
+        int size = (int) Math.min(PARALLEL_BUFFER_SIZE, length);
+        if (parallelEngine == null) {
+            this.buffer = null;
+        } else {
+            this.buffer = bufferPool != null ? bufferPool.acquire(size) : new byte[size];
+        }
+    }
+
+    @Override
+    public int read() {
+        if (bytesRead == length) {
+            return -1;
+        }
+        if (buffer != null) {
+            if (bufferPos == bufferLimit) {
+                fillBuffer();
+            }
+            bytesRead++;
+            return buffer[bufferPos++] & 0xFF;
+        }
+        read(single, 0, 1);
+        return single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (bytesRead == length) {
+            return -1;
+        }
+        int n = (int) Math.min(len, length - bytesRead);
+        if (buffer != null) {
+            if (bufferPos == bufferLimit) {
+                fillBuffer();
+            }
+            n = Math.min(n, bufferLimit - bufferPos);
+            System.arraycopy(buffer, bufferPos, b, off, n);
+            bufferPos += n;
+        } else {
+            long start = System.nanoTime();
+            carrier.extractBits(new BitWriter(b, off, n), nextBit);
+            pixelNanos += System.nanoTime() - start;
+            nextBit += (long) n * 8;
+        }
+        bytesRead += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, length - bytesRead);
+    }
+
+    // bytes já entregues por este stream
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() {
+        if (bufferPool != null && buffer != null && !closed) {
+            bufferPool.release(buffer);
+        }
+        closed = true;
+    }
+
+    // tempo gasto lendo dos pixels
+    public long getPixelNanos() {
+        return pixelNanos;
+    }
+
+    private void fillBuffer() {
+        int n = (int) Math.min(buffer.length, length - bytesRead);
+        long start = System.nanoTime();
+        parallelEngine.extract(carrier, buffer, 0, n, nextBit);
+        pixelNanos += System.nanoTime() - start;
+        nextBit += (long) n * 8;
+        bufferPos = 0;
+        bufferLimit = n;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.steganography;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * OutputStream que grava os bytes recebidos diretamente nos LSBs da imagem, a partir de uma posição de bit.
+ * <p>
+ * Usado para que o ZipOutputStream escreva direto nos pixels, sem arquivo ZIP temporário nem cópias do
+ * ZIP inteiro em memória. Os bytes passam por um buffer pequeno antes de irem para a imagem.
+ */
+public final class LsbOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PARALLEL_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final CarrierRaster carrier;
+    private final ParallelLsbEngine parallelEngine; // pode ser null
+    private final BufferPool bufferPool; // pode ser null
+    private final byte[] buffer;
+    private int buffered;
+    private long nextBit;
+    private long bytesWritten;
+    private boolean overflowed;
+    private long pixelNanos;
+    private boolean closed;
+
+    public LsbOutputStream(CarrierRaster carrier, long startBit) {
+        this(carrier, startBit, null);
+    }
+
+    /**
+     * @param parallelEngine se não for null, cada bloco do buffer é gravado em paralelo; nesse caso
+     *                       startBit precisa ser múltiplo de 8.
+     */
+    public LsbOutputStream(CarrierRaster carrier, long startBit, ParallelLsbEngine parallelEngine) {
+        this(carrier, startBit, parallelEngine, null);
+    }
+
+    /**
+     * @param bufferPool se não for null, o buffer vem do pool e volta para ele no close().
+     */
+    public LsbOutputStream(CarrierRaster carrier, long startBit, ParallelLsbEngine parallelEngine, BufferPool bufferPool) {
+        if (parallelEngine != null && startBit % 8 != 0) {
+            throw new IllegalArgumentException("A posição inicial deve ser múltiplo de 8 bits no modo paralelo: " + startBit);
+        }
+        this.carrier = carrier;
+        this.parallelEngine = parallelEngine;
+        this.bufferPool = bufferPool;
+        int size = parallelEngine != null ? PARALLEL_BUFFER_SIZE : BUFFER_SIZE;
+        this.buffer = bufferPool != null ? bufferPool.acquire(size) : new byte[size];
+        this.nextBit = startBit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (buffered == buffer.length) {
+            flushBuffer();
+        }
+        buffer[buffered++] = (byte) b;
+        bytesWritten++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (buffered == buffer.length) {
+                flushBuffer();
+            }
+            int n = Math.min(len, buffer.length - buffered);
+            System.arraycopy(b, off, buffer, buffered, n);
+            buffered += n;
+            off += n;
+            len -= n;
+            bytesWritten += n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            // depois de estourar a capacidade o resto do buffer não cabe: o erro já foi dado no write
+            if (!overflowed) {
+                flushBuffer();
+            }
+        } finally {
+            closed = true;
+            if (bufferPool != null) {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+
+    // quantidade de bytes recebidos pelo stream
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    // próxima posição de bit livre na imagem
+    public long getNextBit() {
+        return nextBit + (long) buffered * 8;
+    }
+
+    // tempo gasto gravando nos pixels (o resto do tempo de quem escreve é dele mesmo, ex.: o deflate)
+    public long getPixelNanos() {
+        return pixelNanos;
+    }
+
+    // true se algum write tentou passar da capacidade da imagem
+    public boolean hasOverflowed() {
+        return overflowed;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (buffered == 0) {
+            return;
+        }
+        long bits = (long) buffered * 8;
+        if (nextBit + bits > carrier.getCapacityBits()) {
+            overflowed = true;
+            throw new IOException("Capacidade da imagem excedida: " + (nextBit + bits) + " bits necessários, "
+                    + carrier.getCapacityBits() + " disponíveis.");
+        }
+        long start = System.nanoTime();
+        if (parallelEngine != null) {
+            parallelEngine.embed(carrier, buffer, 0, buffered, nextBit);
+        } else {
+            carrier.embedBits(new BitReader(buffer, 0, buffered), nextBit);
+        }
+        pixelNanos += System.nanoTime() - start;
+        nextBit += bits;
+        buffered = 0;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.steganography;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * OutputStream que compara os bytes recebidos com os que já estão nos LSBs da imagem (a partir de uma posição
+ * de bit) e grava só os trechos diferentes.
+ * <p>
+ * Usado na atualização de uma imagem que já tem dados ocultos: o ZIP novo passa por aqui e, se poucos bytes
+ * mudaram, poucos pixels são alterados. A comparação lê os bits antigos em blocos, do mesmo tamanho do buffer.
+ */
+public final class LsbPatchOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PARALLEL_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final CarrierRaster carrier;
+    private final ParallelLsbEngine parallelEngine; // pode ser null
+    private final byte[] buffer;
+    private final byte[] current; // bytes que já estão na imagem, na mesma posição do buffer
+    private int buffered;
+    private long nextBit;
+    private long bytesWritten;
+    private long bytesChanged;
+    private long runs;
+    private boolean overflowed;
+    private long pixelNanos;
+
+    /**
+     * @param parallelEngine se não for null, os bits antigos são lidos em paralelo; nesse caso startBit precisa
+     *                       ser múltiplo de 8.
+     */
+    public LsbPatchOutputStream(CarrierRaster carrier, long startBit, ParallelLsbEngine parallelEngine) {
+        if (parallelEngine != null && startBit % 8 != 0) {
+            throw new IllegalArgumentException("A posição inicial deve ser múltiplo de 8 bits no modo paralelo: " + startBit);
+        }
+        this.carrier = carrier;
+        this.parallelEngine = parallelEngine;
+        int size = parallelEngine != null ? PARALLEL_BUFFER_SIZE : BUFFER_SIZE;
+        this.buffer = new byte[size];
+        this.current = new byte[size];
+        this.nextBit = startBit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (buffered == buffer.length) {
+            flushBuffer();
+        }
+        buffer[buffered++] = (byte) b;
+        bytesWritten++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (buffered == buffer.length) {
+                flushBuffer();
+            }
+            int n = Math.min(len, buffer.length - buffered);
+            System.arraycopy(b, off, buffer, buffered, n);
+            buffered += n;
+            off += n;
+            len -= n;
+            bytesWritten += n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+    }
+
+    // quantidade de bytes recebidos pelo stream
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    // bytes que eram diferentes e foram regravados na imagem
+    public long getBytesChanged() {
+        return bytesChanged;
+    }
+
+    // quantidade de trechos contínuos regravados
+    public long getRuns() {
+        return runs;
+    }
+
+    // próxima posição de bit na imagem
+    public long getNextBit() {
+        return nextBit + (long) buffered * 8;
+    }
+
+    // tempo gasto lendo e gravando nos pixels
+    public long getPixelNanos() {
+        return pixelNanos;
+    }
+
+    // true se algum write tentou passar da capacidade da imagem
+    public boolean hasOverflowed() {
+        return overflowed;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (buffered == 0) {
+            return;
+        }
+        long bits = (long) buffered * 8;
+        if (nextBit + bits > carrier.getCapacityBits()) {
+            overflowed = true;
+            throw new IOException("Capacidade da imagem excedida: " + (nextBit + bits) + " bits necessários, "
+                    + carrier.getCapacityBits() + " disponíveis.");
+        }
+        long start = System.nanoTime();
+        if (parallelEngine != null) {
+            parallelEngine.extract(carrier, current, 0, buffered, nextBit);
+        } else {
+            carrier.extractBits(new BitWriter(current, 0, buffered), nextBit);
+        }
+
+        // grava cada trecho diferente de uma vez
+        int i = 0;
+        while (i < buffered) {
+            if (buffer[i] == current[i]) {
+                i++;
+                continue;
+            }
+            int runStart = i;
+            while (i < buffered && buffer[i] != current[i]) {
+                i++;
+            }
+            carrier.embedBits(new BitReader(buffer, runStart, i - runStart), nextBit + (long) runStart * 8);
+            bytesChanged += i - runStart;
+            runs++;
+        }
+        pixelNanos += System.nanoTime() - start;
+        nextBit += bits;
+        buffered = 0;
+    }
+}
@@ -1,18 +1,51 @@
 package com.example.steganography;
 
 import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 import com.example.steganography.exceptions.SteganographyException;
+import com.example.steganography.metrics.HistogramInstrumentation;
+import com.example.steganography.metrics.JfrInstrumentation;
 
 public class MainApplication {
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(runBatch(args));
+        }
+        if (args.length > 0 && args[0].equals("--probe")) {
+            System.exit(runProbe(args));
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            int status = runServe(args);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return; // o serviço continua rodando nas threads do servidor
+        }
+        if (args.length > 0 && args[0].equals("--verify")) {
+            System.exit(runVerify(args));
+        }
+        if (args.length > 0 && args[0].equals("--pick")) {
+            System.exit(runPick(args));
+        }
+        if (args.length > 0 && args[0].equals("--stripe-embed")) {
+            System.exit(runStripeEmbed(args));
+        }
+        if (args.length > 0 && args[0].equals("--stripe-extract")) {
+            System.exit(runStripeExtract(args));
+        }
+
         Scanner scanner = new Scanner(System.in);
         ImageProcessor imageProcessor = new ImageProcessor();
         DataConverter dataConverter = new DataConverter();
-        SteganographyUtils steganography = new SteganographyUtils(imageProcessor, dataConverter);
+        SteganographyUtils steganography = new SteganographyUtils(imageProcessor, dataConverter,
+                Runtime.getRuntime().availableProcessors());
 
         System.out.println("Bem-vindo à Aplicação de Esteganografia LSB!");
         System.out.println("Escolha uma opção:");
@@ -36,17 +69,26 @@ public class MainApplication {
                             System.out.print("Caminho da pasta/arquivo a ser ocultado (e.g., /caminho/para/pasta_secreta ou /caminho/para/arquivo.txt): ");
                             String dataToHidePath = scanner.nextLine();
 
-                            System.out.print("Caminho temporário para o arquivo ZIP gerado (e.g., ./temp/hidden_data.zip): ");
-                            String zipTempPath = scanner.nextLine();
-
                             System.out.print("Caminho para salvar a imagem com dados ocultos (e.g., ./output/imagem_oculta.png): ");
                             String outputImagePath = scanner.nextLine();
 
-                            // garante a existencia do diretorio
-                            File tempZipFile = new File(zipTempPath);
-                            File tempDir = tempZipFile.getParentFile();
-                            if (tempDir != null && !tempDir.exists()) {
-                                tempDir.mkdirs();
+                            System.out.print("Bits por canal de cor (1 a 4, Enter para escolher automaticamente): ");
+                            String bitsPerChannel = scanner.nextLine().trim();
+
+                            System.out.print("Usar também o canal alfa, se a imagem tiver? (s/N): ");
+                            boolean useAlpha = scanner.nextLine().trim().equalsIgnoreCase("s");
+
+                            System.out.print("Chave para espalhar os dados pela imagem (Enter para gravar em sequência): ");
+                            String key = scanner.nextLine();
+
+                            EmbedOptions options = EmbedOptions.defaults().setUseAlpha(useAlpha)
+                                    .setKey(key.isEmpty() ? null : key);
+                            if (!bitsPerChannel.isEmpty()) {
+                                try {
+                                    options.setBitsPerChannel(Integer.parseInt(bitsPerChannel));
+                                } catch (IllegalArgumentException e) {
+                                    throw new SteganographyException("Valor inválido para bits por canal: " + bitsPerChannel);
+                                }
                             }
 
                             // existencia do diretorio oculto
@@ -57,7 +99,7 @@ public class MainApplication {
                             }
 
                             System.out.println("Iniciando ocultação de dados...");
-                            steganography.embedData(originalImagePath, dataToHidePath, zipTempPath, outputImagePath);
+                            steganography.embedData(originalImagePath, dataToHidePath, outputImagePath, options);
                             System.out.println("Ocultação concluída com sucesso!");
 
                         } catch (NoSuchElementException e) {
@@ -83,6 +125,9 @@ public class MainApplication {
                             System.out.print("Caminho do diretório para salvar os dados extraídos (e.g., ./extracted_files): ");
                             String outputDirectory = scanner.nextLine();
 
+                            System.out.print("Chave usada na ocultação (Enter se não houver): ");
+                            String key = scanner.nextLine();
+
                             // verifica a existencia do diretorio de saida
                             File extractDir = new File(outputDirectory);
                             if (!extractDir.exists()) {
@@ -90,7 +135,7 @@ public class MainApplication {
                             }
 
                             System.out.println("Iniciando extração de dados...");
-                            steganography.extractData(stegoImagePath, outputDirectory);
+                            steganography.extractData(stegoImagePath, outputDirectory, key.isEmpty() ? null : key);
                             System.out.println("Extração concluída com sucesso! Verifique a pasta: " + outputDirectory);
 
                         } catch (NoSuchElementException e) {
@@ -123,4 +168,320 @@ public class MainApplication {
             scanner.close();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Consulta rápida: --probe imagem... imprime, para cada imagem, o tamanho do ZIP oculto e o layout,
+     * lendo só o cabeçalho.
+     */
+    private static int runProbe(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Uso: --probe <imagem> [<imagem>...]");
+            return 2;
+        }
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter());
+        boolean allFound = true;
+        for (int i = 1; i < args.length; i++) {
+            try {
+                StegoHeader header = steganography.probe(args[i]);
+                System.out.println(args[i] + ": " + (header.isTerminated() ? "até " : "") + header.getPayloadSize() + " bytes de ZIP"
+                        + (header.isLegacy() ? " (formato legado)" : " (" + header.getBitsPerChannel() + " bit(s) por canal"
+                                + (header.usesAlpha() ? ", com alfa" : "")
+                                + (header.getCodec() == StegoHeader.CODEC_STORED ? ", sem compressão" : "")
+                                + (header.isScattered() ? ", espalhado com chave" : "") + ")")
+                        + (header.isStriped() ? ", parte " + header.getStripeIndex() + " de " + header.getStripeCount()
+                                + " do conjunto " + Long.toHexString(header.getSetId()) : ""));
+            } catch (SteganographyException e) {
+                System.out.println(args[i] + ": sem dados ocultos (" + e.getMessage() + ")");
+                allFound = false;
+            }
+        }
+        return allFound ? 0 : 1;
+    }
+
+    /**
+     * Verificação: --verify [--key chave] imagem... confere o checksum de cada bloco e o CRC de cada arquivo do ZIP
+     * sem extrair nada; para cada imagem, para no primeiro bloco corrompido.
+     */
+    private static int runVerify(String[] args) {
+        int first = 1;
+        String key = null;
+        if (args.length > 2 && args[1].equals("--key")) {
+            key = args[2];
+            first = 3;
+        }
+        if (args.length <= first || key != null && key.isEmpty()) {
+            System.err.println("Uso: --verify [--key <chave>] <imagem> [<imagem>...]");
+            return 2;
+        }
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter());
+        boolean allValid = true;
+        for (int i = first; i < args.length; i++) {
+            try {
+                SteganographyUtils.VerifyResult result = steganography.verify(args[i], key);
+                System.out.println(args[i] + ": OK (" + (result.getHeader().isTerminated() ? "até " : "")
+                        + result.getHeader().getPayloadSize() + " bytes"
+                        + (result.getChunksChecked() > 0 ? ", " + result.getChunksChecked() + " bloco(s)" : "")
+                        + (result.getZipEntries() >= 0 ? ", " + result.getZipEntries() + " arquivo(s)" : ", parte de conjunto")
+                        + ")");
+            } catch (SteganographyException e) {
+                System.out.println(args[i] + ": FALHA (" + e.getMessage() + ")");
+                allValid = false;
+            }
+        }
+        return allValid ? 0 : 1;
+    }
+
+    /**
+     * Escolha da imagem: --pick [--bits N] [--alpha] pasta_imagens dados [imagem_saida] indexa os PNGs da pasta
+     * só pelo IHDR e mostra a menor imagem que comporta os dados; com a imagem de saída, já oculta os dados nela.
+     */
+    private static int runPick(String[] args) {
+        EmbedOptions options = EmbedOptions.defaults();
+        List<String> positional = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--bits":
+                        options.setBitsPerChannel(Integer.parseInt(args[++i]));
+                        break;
+                    case "--alpha":
+                        options.setUseAlpha(true);
+                        break;
+                    default:
+                        positional.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            positional.clear();
+        }
+        if (positional.size() < 2 || positional.size() > 3) {
+            System.err.println("Uso: --pick [--bits N] [--alpha] <pasta_imagens> <dados> [<imagem_saida>]");
+            return 2;
+        }
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter());
+        try {
+            CarrierIndex carriers = CarrierIndex.scan(positional.get(0));
+            for (String skipped : carriers.getSkipped()) {
+                System.err.println("Ignorada: " + skipped);
+            }
+            steganography.setVerbose(false);
+            CarrierIndex.Choice choice = steganography.chooseCarrier(carriers, positional.get(1), options);
+            CarrierIndex.Entry entry = choice.getEntry();
+            System.out.println(entry.getPath() + ": " + entry.getWidth() + "x" + entry.getHeight() + ", "
+                    + choice.getBitsPerChannel() + " bit(s) por canal" + (choice.usesAlpha() ? ", com alfa" : "")
+                    + ", até " + choice.getContainerBytes() + " bytes de dados em " + choice.getPixelsTouched()
+                    + " pixels (escolhida entre " + carriers.getEntries().size() + " imagem(ns))");
+            if (positional.size() == 3) {
+                steganography.setVerbose(true);
+                steganography.embedData(entry.getPath().toString(), positional.get(1), positional.get(2), options);
+            }
+            return 0;
+        } catch (SteganographyException e) {
+            System.err.println("Erro ao escolher a imagem: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Ocultação em várias imagens: --stripe-embed dados diretorio_saida imagem... divide o ZIP entre as imagens
+     * (gravadas ao mesmo tempo); cada imagem de saída tem o mesmo nome da original, no diretório de saída.
+     */
+    private static int runStripeEmbed(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Uso: --stripe-embed <dados> <diretorio_saida> <imagem> [<imagem>...]");
+            return 2;
+        }
+        List<String> carriers = new ArrayList<>();
+        List<String> outputs = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            carriers.add(args[i]);
+            outputs.add(new File(args[2], new File(args[i]).getName()).getPath());
+        }
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter());
+        try {
+            steganography.embedDataStriped(carriers, args[1], outputs, EmbedOptions.defaults());
+            return 0;
+        } catch (SteganographyException e) {
+            System.err.println("Erro ao ocultar dados: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    // extração de um conjunto: --stripe-extract diretorio_saida imagem... (as imagens em qualquer ordem)
+    private static int runStripeExtract(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Uso: --stripe-extract <diretorio_saida> <imagem> [<imagem>...]");
+            return 2;
+        }
+        List<String> images = new ArrayList<>(List.of(args).subList(2, args.length));
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter());
+        try {
+            steganography.extractDataStriped(images, args[1]);
+            return 0;
+        } catch (SteganographyException e) {
+            System.err.println("Erro ao extrair dados: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Modo serviço: --serve [--port N] [--jobs N] [--threads N] [--wait-ms N] [--max-mb N] atende por HTTP em 127.0.0.1
+     * (ver {@link StegoServer}) até o processo ser interrompido.
+     * --jobs: requisições processadas ao mesmo tempo (padrão: número de processadores);
+     * --threads: threads por requisição na gravação/leitura dos bits e na compressão do ZIP (padrão: 1);
+     * --wait-ms: quanto uma requisição espera por uma vaga antes de receber 503 (padrão: 30000);
+     * --max-mb: maior corpo aceito, em MB; acima disso a resposta é 413 (padrão: 256).
+     */
+    private static int runServe(String[] args) {
+        int port = 8765;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        int threads = 1;
+        long waitMillis = 30_000;
+        long maxBodyMb = StegoServer.DEFAULT_MAX_BODY_BYTES / (1024 * 1024);
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Falta o valor de " + args[i]);
+                }
+                switch (args[i]) {
+                    case "--port":
+                        port = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--jobs":
+                        jobs = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--wait-ms":
+                        waitMillis = Long.parseLong(args[i + 1]);
+                        break;
+                    case "--max-mb":
+                        maxBodyMb = Long.parseLong(args[i + 1]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+            if (jobs < 1 || threads < 1 || waitMillis < 0 || maxBodyMb < 1 || maxBodyMb > Long.MAX_VALUE / (1024 * 1024)) {
+                throw new IllegalArgumentException("--jobs, --threads e --max-mb devem ser pelo menos 1 e --wait-ms não pode ser "
+                        + "negativo.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Argumentos inválidos: " + e.getMessage());
+            System.err.println("Uso: --serve [--port N] [--jobs N] [--threads N] [--wait-ms N] [--max-mb N]");
+            return 2;
+        }
+
+        // buffers reaproveitados entre as requisições
+        BufferPool bufferPool = new BufferPool(jobs * 2);
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter(bufferPool), threads);
+        steganography.setVerbose(false);
+        steganography.setBufferPool(bufferPool);
+        try {
+            StegoServer server = new StegoServer(steganography,
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), port), jobs, threads, waitMillis,
+                    maxBodyMb * 1024 * 1024);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(5);
+                System.out.println("Serviço encerrado: " + server.getServed() + " requisição(ões) atendida(s), "
+                        + server.getRejected() + " recusada(s) por falta de vaga.");
+            }));
+            System.out.println("Serviço escutando em http://" + server.getAddress().getHostString() + ":"
+                    + server.getAddress().getPort() + " (até " + jobs + " requisições ao mesmo tempo). Ctrl+C para sair.");
+            return 0;
+        } catch (SteganographyException e) {
+            System.err.println("Erro ao iniciar o serviço: " + e.getMessage()
+                    + (e.getCause() != null ? " Causa: " + e.getCause().getMessage() : ""));
+            return 1;
+        }
+    }
+
+    /**
+     * Modo em lote: --batch manifesto [--jobs N] [--threads N] [--metrics histogram|jfr] [--cache-mb N]
+     * --jobs: jobs executados ao mesmo tempo (padrão: número de processadores);
+     * --threads: threads por job na gravação/leitura dos bits e na compressão do ZIP (padrão: 1);
+     * --metrics: mede cada etapa e imprime um resumo por etapa no final (histogram) ou publica eventos JFR (jfr);
+     * --cache-mb: guarda até N MB de imagens portadoras decodificadas entre os jobs e reaproveita os buffers (0 = desligado).
+     */
+    private static int runBatch(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Uso: --batch <manifesto> [--jobs N] [--threads N] [--metrics histogram|jfr] [--cache-mb N]");
+            return 2;
+        }
+        String manifestPath = args[1];
+        int jobs = Runtime.getRuntime().availableProcessors();
+        int threads = 1;
+        String metrics = null;
+        int cacheMb = 0;
+        try {
+            for (int i = 2; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Falta o valor de " + args[i]);
+                }
+                switch (args[i]) {
+                    case "--jobs":
+                        jobs = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--metrics":
+                        metrics = args[i + 1];
+                        if (!metrics.equals("histogram") && !metrics.equals("jfr")) {
+                            throw new IllegalArgumentException("Valor inválido para --metrics: " + metrics + " (use histogram ou jfr)");
+                        }
+                        break;
+                    case "--cache-mb":
+                        cacheMb = Integer.parseInt(args[i + 1]);
+                        if (cacheMb < 0) {
+                            throw new IllegalArgumentException("--cache-mb não pode ser negativo: " + cacheMb);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Argumentos inválidos: " + e.getMessage());
+            return 2;
+        }
+
+        // uma única instância de cada componente para todos os jobs
+        BufferPool bufferPool = null;
+        CarrierCache carrierCache = null;
+        if (cacheMb > 0) {
+            bufferPool = new BufferPool(jobs * 2);
+            carrierCache = new CarrierCache(cacheMb * 1024L * 1024L);
+        }
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter(bufferPool), threads);
+        steganography.setVerbose(false);
+        steganography.setCarrierCache(carrierCache);
+        steganography.setBufferPool(bufferPool);
+        HistogramInstrumentation histogram = null;
+        if ("histogram".equals(metrics)) {
+            histogram = new HistogramInstrumentation();
+            steganography.setInstrumentation(histogram);
+        } else if ("jfr".equals(metrics)) {
+            steganography.setInstrumentation(new JfrInstrumentation());
+        }
+        try {
+            List<BatchRunner.JobResult> results = new BatchRunner(steganography, jobs, threads, System.out).run(manifestPath);
+            if (histogram != null) {
+                histogram.report(System.out);
+            }
+            if (carrierCache != null) {
+                System.out.printf("Cache de imagens: %d acertos, %d faltas, %d descartes (%d imagens, %.1f MB)%n",
+                        carrierCache.getHits(), carrierCache.getMisses(), carrierCache.getEvictions(),
+                        carrierCache.size(), carrierCache.getCurrentBytes() / (1024.0 * 1024.0));
+                System.out.printf("Pool de buffers: %d reaproveitados, %d alocados, %d descartados%n",
+                        bufferPool.getHits(), bufferPool.getMisses(), bufferPool.getEvictions());
+            }
+            return results.stream().allMatch(BatchRunner.JobResult::isSuccess) ? 0 : 1;
+        } catch (SteganographyException e) {
+            System.err.println("Erro no modo em lote: " + e.getMessage());
+            return 2;
+        }
+    }
+}
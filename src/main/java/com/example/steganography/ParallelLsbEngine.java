@@ -0,0 +1,129 @@
+package com.example.steganography;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Grava/lê os bits LSB em paralelo, dividindo a imagem em faixas de linhas processadas em um ForkJoinPool.
+ * <p>
+ * Como cada pixel carrega a mesma quantidade de bits em ordem de linha, a posição de bit de qualquer linha
+ * é conhecida de antemão (y * largura * bits por pixel). As faixas têm um número de linhas tal que toda fronteira cai em um
+ * múltiplo de 8 bits, então cada faixa lê/escreve bytes inteiros e nenhuma tarefa compartilha byte com outra.
+ * O resultado é idêntico ao da gravação/leitura sequencial.
+ */
+public final class ParallelLsbEngine {
+
+    // abaixo disso não compensa dividir o trabalho
+    private static final long MIN_BITS_PER_BAND = 1L << 18;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+
+    public ParallelLsbEngine(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("O paralelismo deve ser pelo menos 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Grava data[offset, offset + length) na imagem a partir da posição startBit (múltiplo de 8).
+     */
+    public void embed(CarrierRaster carrier, byte[] data, int offset, int length, long startBit) {
+        run(carrier, data, offset, length, startBit, true);
+    }
+
+    /**
+     * Lê length bytes da imagem, a partir da posição startBit (múltiplo de 8), para dest[offset, offset + length).
+     */
+    public void extract(CarrierRaster carrier, byte[] dest, int offset, int length, long startBit) {
+        run(carrier, dest, offset, length, startBit, false);
+    }
+
+    private void run(CarrierRaster carrier, byte[] data, int offset, int length, long startBit, boolean embed) {
+        if (startBit % 8 != 0) {
+            throw new IllegalArgumentException("A posição inicial deve ser múltiplo de 8 bits: " + startBit);
+        }
+        if (length == 0) {
+            return;
+        }
+        long endBit = startBit + (long) length * 8;
+        if (endBit > carrier.getCapacityBits()) {
+            throw new IllegalArgumentException("Os dados não cabem na imagem: " + endBit + " bits, capacidade "
+                    + carrier.getCapacityBits());
+        }
+
+        long bitsPerRow = (long) carrier.getWidth() * carrier.getBitsPerPixel();
+        // menor quantidade de linhas cuja quantidade de bits é múltiplo de 8
+        int rowAlignment = 8 / gcd((int) (bitsPerRow % 8), 8);
+        long totalRows = (endBit - startBit + bitsPerRow - 1) / bitsPerRow;
+        long rowsPerBand = Math.max((MIN_BITS_PER_BAND + bitsPerRow - 1) / bitsPerRow,
+                (totalRows + parallelism * 4L - 1) / (parallelism * 4L));
+        rowsPerBand = (rowsPerBand + rowAlignment - 1) / rowAlignment * rowAlignment;
+        long bandBits = rowsPerBand * bitsPerRow;
+
+        long firstBand = startBit / bandBits;
+        long lastBand = (endBit - 1) / bandBits;
+        if (firstBand == lastBand) {
+            new BandTask(carrier, data, offset, startBit, endBit, bandBits, firstBand, firstBand + 1, embed).compute();
+        } else {
+            pool.invoke(new BandTask(carrier, data, offset, startBit, endBit, bandBits, firstBand, lastBand + 1, embed));
+        }
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    // divide o intervalo de faixas ao meio até sobrar uma faixa por tarefa
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient CarrierRaster carrier; // a tarefa nunca é serializada
+        private final byte[] data;
+        private final int offset;
+        private final long startBit;
+        private final long endBit;
+        private final long bandBits;
+        private final long fromBand;
+        private final long toBand;
+        private final boolean embed;
+
+        BandTask(CarrierRaster carrier, byte[] data, int offset, long startBit, long endBit, long bandBits,
+                long fromBand, long toBand, boolean embed) {
+            this.carrier = carrier;
+            this.data = data;
+            this.offset = offset;
+            this.startBit = startBit;
+            this.endBit = endBit;
+            this.bandBits = bandBits;
+            this.fromBand = fromBand;
+            this.toBand = toBand;
+            this.embed = embed;
+        }
+
+        @Override
+        protected void compute() {
+            if (toBand - fromBand > 1) {
+                long middle = (fromBand + toBand) >>> 1;
+                invokeAll(new BandTask(carrier, data, offset, startBit, endBit, bandBits, fromBand, middle, embed),
+                        new BandTask(carrier, data, offset, startBit, endBit, bandBits, middle, toBand, embed));
+                return;
+            }
+            long bandStart = Math.max(startBit, fromBand * bandBits);
+            long bandEnd = Math.min(endBit, (fromBand + 1) * bandBits);
+            int byteOffset = offset + (int) ((bandStart - startBit) / 8);
+            int byteLength = (int) ((bandEnd - bandStart) / 8);
+            if (embed) {
+                carrier.embedBits(new BitReader(data, byteOffset, byteLength), bandStart);
+            } else {
+                carrier.extractBits(new BitWriter(data, byteOffset, byteLength), bandStart);
+            }
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package com.example.steganography;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gravador de ZIP que comprime as entradas em paralelo: cada arquivo de até {@link #STREAM_THRESHOLD} bytes é
+ * comprimido em um buffer próprio e as entradas são gravadas na ordem do percurso da pasta, com no máximo
+ * 2 * paralelismo entradas em memória. Arquivos maiores não passam por buffer: são comprimidos aos poucos na
+ * thread que grava, quando chega a vez deles, então a memória usada não depende do tamanho dos arquivos.
+ * <p>
+ * Os tamanhos e o CRC vão no cabeçalho local de cada entrada, então o ZIP é lido normalmente pelo
+ * ZipInputStream, inclusive as entradas STORED. A exceção são os arquivos grandes comprimidos, que levam os
+ * tamanhos e o CRC em um descritor de dados depois dos dados (o ZipInputStream aceita descritor em entradas
+ * DEFLATED). Arquivos grandes gravados sem compressão são lidos duas vezes: uma para o CRC, outra para copiar.
+ * <p>
+ * Não gera ZIP64: o ZIP fica limitado a 4 GB e a 65535 entradas (o cabeçalho da imagem aceitaria mais). Os
+ * limites são conferidos pelos tamanhos dos arquivos antes de gravar qualquer byte.
+ */
+public final class ParallelZipWriter {
+
+    // extensões de formatos que já são comprimidos; deflate neles só gasta tempo
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "jpg", "jpeg", "png", "gif", "webp", "heic", "avif",
+            "mp3", "m4a", "aac", "ogg", "opus", "flac",
+            "mp4", "m4v", "mov", "mkv", "webm", "avi",
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst", "jar", "apk",
+            "docx", "xlsx", "pptx", "odt", "ods", "epub");
+
+    // arquivos maiores que isso são comprimidos aos poucos, sem buffer
+    static final long STREAM_THRESHOLD = 8L * 1024 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+
+    private final ZipOptions options;
+
+    public ParallelZipWriter(ZipOptions options) {
+        this.options = options;
+    }
+
+    private static final class Entry {
+        final Path file;
+        final String name;
+        final long size; // 0 para diretórios
+
+        Entry(Path file, String name, long size) {
+            this.file = file;
+            this.name = name;
+            this.size = size;
+        }
+    }
+
+    private static final class CompressedEntry {
+        byte[] name;
+        boolean directory;
+        int method;
+        int flags = FLAG_UTF8;
+        long crc;
+        long size;
+        long compressedSize;
+        byte[] data;
+        Path streamFrom; // arquivo grande, comprimido na hora de gravar (data fica null)
+        int dosTime;
+        long localHeaderOffset;
+    }
+
+    /**
+     * Compacta o arquivo ou a pasta (com caminhos relativos a ela, como o zipFolder sempre fez) no stream,
+     * que não é fechado.
+     */
+    public void write(Path source, OutputStream out) throws IOException {
+        List<Entry> entries = listEntries(source);
+        checkLimits(entries);
+
+        ZipSink sink = new ZipSink(out);
+        List<CompressedEntry> written = new ArrayList<>(entries.size());
+        int parallelism = options.getParallelism();
+        if (parallelism == 1) {
+            for (Entry entry : entries) {
+                written.add(writeEntry(sink, compress(entry)));
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                // janela limitada de entradas em compressão, gravadas na ordem
+                Deque<Future<CompressedEntry>> pending = new ArrayDeque<>();
+                int next = 0;
+                while (next < entries.size() || !pending.isEmpty()) {
+                    while (next < entries.size() && pending.size() < parallelism * 2) {
+                        Entry entry = entries.get(next++);
+                        pending.add(pool.submit(() -> compress(entry)));
+                    }
+                    written.add(writeEntry(sink, pending.removeFirst().get()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Compactação interrompida.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("Erro ao comprimir uma entrada do ZIP.", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        sink.writeCentralDirectory(written);
+        out.flush();
+    }
+
+    // sem ZIP64: confere antes de gravar qualquer byte, pelo tamanho dos arquivos (antes da compressão)
+    private static void checkLimits(List<Entry> entries) throws IOException {
+        if (entries.size() > MAX_ENTRIES) {
+            throw new IOException("Entradas demais: " + entries.size() + ". O ZIP é limitado a " + MAX_ENTRIES
+                    + " entradas (ZIP64 não é suportado).");
+        }
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.size;
+        }
+        if (total > MAX_32) {
+            throw new IOException("Os arquivos somam " + total + " bytes. O ZIP é limitado a 4 GB "
+                    + "(ZIP64 não é suportado).");
+        }
+    }
+
+    // mesma ordem (e mesmos nomes) do percurso com walkFileTree
+    private static List<Entry> listEntries(Path source) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (Files.isRegularFile(source)) {
+            entries.add(new Entry(source, source.getFileName().toString(), Files.size(source)));
+            return entries;
+        }
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String entryName = source.relativize(dir).toString();
+                if (!entryName.isEmpty()) { // nao cria entrada para o próprio diretório raiz
+                    entries.add(new Entry(dir, entryName + "/", 0));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                entries.add(new Entry(file, source.relativize(file).toString(), attrs.size()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return entries;
+    }
+
+    private CompressedEntry compress(Entry entry) throws IOException {
+        CompressedEntry result = new CompressedEntry();
+        result.name = entry.name.getBytes(StandardCharsets.UTF_8);
+        result.dosTime = dosTime(Files.getLastModifiedTime(entry.file).toMillis());
+        result.directory = entry.name.endsWith("/");
+        if (result.directory) {
+            result.method = METHOD_STORED;
+            result.data = new byte[0];
+            return result;
+        }
+        if (entry.size > STREAM_THRESHOLD) {
+            result.streamFrom = entry.file;
+            return result;
+        }
+
+        byte[] content;
+        try (InputStream in = Files.newInputStream(entry.file)) {
+            content = in.readAllBytes();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        result.crc = crc.getValue();
+        result.size = content.length;
+
+        int level = options.getCompressionLevel();
+        if (level == ZipOptions.STORED || (options.isStoreCompressedFiles() && isAlreadyCompressed(entry.name, content))) {
+            store(result, content);
+            return result;
+        }
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            byte[] output = new byte[Math.max(64, content.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == output.length) {
+                    // não vale a pena passar do tamanho original: grava sem compressão
+                    if (length >= content.length) {
+                        store(result, content);
+                        return result;
+                    }
+                    output = Arrays.copyOf(output, Math.min(output.length * 2, content.length + 64));
+                }
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            if (length >= content.length) {
+                store(result, content);
+                return result;
+            }
+            result.method = METHOD_DEFLATED;
+            result.data = output;
+            result.compressedSize = length;
+        } finally {
+            deflater.end();
+        }
+        return result;
+    }
+
+    private static void store(CompressedEntry entry, byte[] content) {
+        entry.method = METHOD_STORED;
+        entry.data = content;
+        entry.compressedSize = content.length;
+    }
+
+    private CompressedEntry writeEntry(ZipSink sink, CompressedEntry entry) throws IOException {
+        return entry.streamFrom != null ? writeStreamed(sink, entry) : sink.writeLocal(entry);
+    }
+
+    /**
+     * Grava um arquivo grande sem carregá-lo: comprimido com o deflate e o descritor de dados no fim, ou, se for
+     * sem compressão, com o CRC calculado antes em uma primeira leitura (entradas STORED precisam dos tamanhos
+     * no cabeçalho local). Diferente das entradas em buffer, não volta para STORED se o deflate não reduzir.
+     */
+    private CompressedEntry writeStreamed(ZipSink sink, CompressedEntry entry) throws IOException {
+        Path file = entry.streamFrom;
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        byte[] head;
+        try (InputStream in = Files.newInputStream(file)) {
+            head = in.readNBytes(16);
+        }
+        int level = options.getCompressionLevel();
+        if (level == ZipOptions.STORED || (options.isStoreCompressedFiles() && isAlreadyCompressed(new String(entry.name,
+                StandardCharsets.UTF_8), head))) {
+            CRC32 crc = new CRC32();
+            long size = 0;
+            try (InputStream in = Files.newInputStream(file)) {
+                for (int n; (n = in.read(buffer)) > 0; size += n) {
+                    crc.update(buffer, 0, n);
+                }
+            }
+            entry.method = METHOD_STORED;
+            entry.crc = crc.getValue();
+            entry.size = size;
+            entry.compressedSize = size;
+            sink.writeLocalHeader(entry);
+            long copied = 0;
+            try (InputStream in = Files.newInputStream(file)) {
+                for (int n; (n = in.read(buffer)) > 0; copied += n) {
+                    sink.emit(buffer, n);
+                }
+            }
+            if (copied != size) {
+                throw new IOException("O arquivo mudou durante a compactação: " + file);
+            }
+            return entry;
+        }
+
+        entry.method = METHOD_DEFLATED;
+        entry.flags |= FLAG_DATA_DESCRIPTOR;
+        sink.writeLocalHeader(entry);
+        long start = sink.written;
+        CRC32 crc = new CRC32();
+        long size = 0;
+        byte[] output = new byte[STREAM_BUFFER_SIZE];
+        Deflater deflater = new Deflater(level, true);
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int n; (n = in.read(buffer)) > 0; size += n) {
+                crc.update(buffer, 0, n);
+                deflater.setInput(buffer, 0, n);
+                while (!deflater.needsInput()) {
+                    sink.emit(output, deflater.deflate(output));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                sink.emit(output, deflater.deflate(output));
+            }
+        } finally {
+            deflater.end();
+        }
+        entry.crc = crc.getValue();
+        entry.size = size;
+        entry.compressedSize = sink.written - start;
+        sink.writeDataDescriptor(entry);
+        return entry;
+    }
+
+    // pela extensão ou, sem extensão conhecida, pelos primeiros bytes do arquivo (bastam os 16 primeiros)
+    static boolean isAlreadyCompressed(String name, byte[] content) {
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+            return true;
+        }
+        return startsWith(content, 0, 'P', 'K', 3, 4)                         // zip, jar, docx...
+                || startsWith(content, 0, 0x1F, 0x8B)                          // gzip
+                || startsWith(content, 0, 0xFF, 0xD8, 0xFF)                    // jpeg
+                || startsWith(content, 0, 0x89, 'P', 'N', 'G')                 // png
+                || startsWith(content, 0, 'G', 'I', 'F', '8')                  // gif
+                || startsWith(content, 4, 'f', 't', 'y', 'p')                  // mp4, mov, heic
+                || startsWith(content, 0, '7', 'z', 0xBC, 0xAF)                // 7z
+                || startsWith(content, 0, 'R', 'a', 'r', '!')                  // rar
+                || startsWith(content, 0, 'B', 'Z', 'h')                       // bzip2
+                || startsWith(content, 0, 0xFD, '7', 'z', 'X', 'Z')            // xz
+                || startsWith(content, 0, 0x28, 0xB5, 0x2F, 0xFD)              // zstd
+                || startsWith(content, 0, 'O', 'g', 'g', 'S')                  // ogg
+                || startsWith(content, 0, 0x1A, 0x45, 0xDF, 0xA3)              // mkv, webm
+                || (startsWith(content, 0, 'R', 'I', 'F', 'F') && startsWith(content, 8, 'W', 'E', 'B', 'P'));
+    }
+
+    private static boolean startsWith(byte[] content, int offset, int... magic) {
+        if (content.length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((content[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // data/hora no formato do MS-DOS usado pelo ZIP (resolução de 2 segundos, a partir de 1980)
+    private static int dosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    // grava as estruturas do ZIP (little-endian) contando os bytes
+    private static final class ZipSink {
+        private final OutputStream out;
+        private final byte[] scratch = new byte[46];
+        private long written;
+
+        ZipSink(OutputStream out) {
+            this.out = out;
+        }
+
+        CompressedEntry writeLocal(CompressedEntry entry) throws IOException {
+            writeLocalHeader(entry);
+            emit(entry.data, (int) entry.compressedSize);
+            entry.data = null; // libera o buffer; o diretório central só precisa dos metadados
+            return entry;
+        }
+
+        // com o descritor de dados, o CRC e os tamanhos vão zerados e são gravados depois dos dados
+        void writeLocalHeader(CompressedEntry entry) throws IOException {
+            checkSize(entry);
+            boolean descriptor = (entry.flags & FLAG_DATA_DESCRIPTOR) != 0;
+            entry.localHeaderOffset = written;
+            int p = 0;
+            p = putInt(p, LOCAL_HEADER);
+            p = putShort(p, VERSION);
+            p = putShort(p, entry.flags);
+            p = putShort(p, entry.method);
+            p = putInt(p, entry.dosTime);
+            p = putInt(p, descriptor ? 0 : (int) entry.crc);
+            p = putInt(p, descriptor ? 0 : (int) entry.compressedSize);
+            p = putInt(p, descriptor ? 0 : (int) entry.size);
+            p = putShort(p, entry.name.length);
+            p = putShort(p, 0); // campo extra
+            emit(p);
+            emit(entry.name, entry.name.length);
+        }
+
+        void writeDataDescriptor(CompressedEntry entry) throws IOException {
+            checkSize(entry);
+            int p = 0;
+            p = putInt(p, DATA_DESCRIPTOR);
+            p = putInt(p, (int) entry.crc);
+            p = putInt(p, (int) entry.compressedSize);
+            p = putInt(p, (int) entry.size);
+            emit(p);
+        }
+
+        private void checkSize(CompressedEntry entry) throws IOException {
+            if (written > MAX_32 || entry.size > MAX_32 || entry.compressedSize > MAX_32) {
+                throw new IOException("O ZIP passou de 4 GB (ZIP64 não é suportado).");
+            }
+        }
+
+        void writeCentralDirectory(List<CompressedEntry> entries) throws IOException {
+            long start = written;
+            for (CompressedEntry entry : entries) {
+                int p = 0;
+                p = putInt(p, CENTRAL_HEADER);
+                p = putShort(p, VERSION);
+                p = putShort(p, VERSION);
+                p = putShort(p, entry.flags);
+                p = putShort(p, entry.method);
+                p = putInt(p, entry.dosTime);
+                p = putInt(p, (int) entry.crc);
+                p = putInt(p, (int) entry.compressedSize);
+                p = putInt(p, (int) entry.size);
+                p = putShort(p, entry.name.length);
+                p = putShort(p, 0); // campo extra
+                p = putShort(p, 0); // comentário
+                p = putShort(p, 0); // disco
+                p = putShort(p, 0); // atributos internos
+                p = putInt(p, entry.directory ? 0x10 : 0); // atributos externos (MS-DOS)
+                p = putInt(p, (int) entry.localHeaderOffset);
+                emit(p);
+                emit(entry.name, entry.name.length);
+            }
+            long size = written - start;
+            if (written > MAX_32) {
+                throw new IOException("O ZIP passou de 4 GB (ZIP64 não é suportado).");
+            }
+            int p = 0;
+            p = putInt(p, END_OF_CENTRAL_DIRECTORY);
+            p = putShort(p, 0);
+            p = putShort(p, 0);
+            p = putShort(p, entries.size());
+            p = putShort(p, entries.size());
+            p = putInt(p, (int) size);
+            p = putInt(p, (int) start);
+            p = putShort(p, 0); // comentário
+            emit(p);
+        }
+
+        private int putShort(int p, int value) {
+            scratch[p] = (byte) value;
+            scratch[p + 1] = (byte) (value >>> 8);
+            return p + 2;
+        }
+
+        private int putInt(int p, int value) {
+            putShort(p, value);
+            putShort(p + 2, value >>> 16);
+            return p + 4;
+        }
+
+        private void emit(int length) throws IOException {
+            emit(scratch, length);
+        }
+
+        void emit(byte[] data, int length) throws IOException {
+            out.write(data, 0, length);
+            written += length;
+        }
+    }
+}
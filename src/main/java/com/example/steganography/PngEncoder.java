@@ -0,0 +1,423 @@
+package com.example.steganography;
+
+import java.awt.image.BufferedImage;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Gravador PNG (RGB/RGBA, 8 bits por amostra, sem entrelaçamento) com nível/estratégia de deflate e filtro
+ * configuráveis, usado no lugar do ImageIO.write para as imagens que o {@link CarrierRaster} acessa direto.
+ * <p>
+ * No modo paralelo a imagem é dividida em faixas de linhas; cada faixa é filtrada e comprimida em um deflate
+ * independente terminado com SYNC_FLUSH, e as faixas são concatenadas em ordem em um único fluxo zlib
+ * (o Adler-32 final é combinado a partir do de cada faixa). O resultado é um PNG padrão.
+ */
+public final class PngEncoder {
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_RGBA = 6;
+    private static final int IDAT_CHUNK_SIZE = 256 * 1024;
+    // quantidade de bytes de linha filtrados por faixa no modo paralelo
+    private static final int STRIP_TARGET_BYTES = 1024 * 1024;
+    private static final int ADLER_BASE = 65521;
+
+    // true se a imagem pode ser gravada por este encoder (layouts suportados pelo CarrierRaster)
+    public static boolean supports(BufferedImage image) {
+        return CarrierRaster.wrapDirect(image) != null;
+    }
+
+    public void write(BufferedImage image, OutputStream out, PngWriteOptions options) throws IOException {
+        CarrierRaster raster = CarrierRaster.wrapDirect(image);
+        if (raster == null) {
+            throw new IllegalArgumentException("Layout de imagem não suportado pelo gravador PNG: tipo " + image.getType());
+        }
+        boolean alpha = raster.hasAlpha();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+
+        if (options.getParallelism() > 1 && height > 1) {
+            writeParallel(raster, alpha, out, options);
+            return;
+        }
+        try (RowWriter writer = new RowWriter(out, width, height, alpha, options)) {
+            byte[] row = writer.newRowBuffer();
+            for (int y = 0; y < height; y++) {
+                raster.copyRowSamples(y, row, alpha);
+                writer.writeRow(row);
+            }
+        }
+    }
+
+    /**
+     * Gravação sequencial linha a linha, para quem gera a imagem aos poucos (sem ter a imagem inteira em memória).
+     * close() termina o fluxo zlib e grava o IEND, mas não fecha o stream de destino.
+     */
+    public static final class RowWriter implements AutoCloseable {
+        private final OutputStream out;
+        private final int height;
+        private final int bytesPerPixel;
+        private final RowFilter filter;
+        private final Deflater deflater;
+        private final ChunkOutputStream idat;
+        private final DeflaterOutputStream zlib;
+        private byte[] previous;
+        private int rowsWritten;
+        private boolean failed; // uma gravação falhou: close() não mascara a exceção dela
+
+        public RowWriter(OutputStream out, int width, int height, boolean alpha, PngWriteOptions options) throws IOException {
+            this.out = out;
+            this.height = height;
+            this.bytesPerPixel = alpha ? 4 : 3;
+            this.filter = new RowFilter(options.getFilter(), width * bytesPerPixel, bytesPerPixel);
+            this.previous = new byte[width * bytesPerPixel];
+            writeHeader(out, width, height, alpha);
+            this.deflater = new Deflater(options.getCompressionLevel());
+            deflater.setStrategy(options.getStrategy());
+            this.idat = new ChunkOutputStream(out);
+            this.zlib = new DeflaterOutputStream(idat, deflater, 64 * 1024);
+        }
+
+        public byte[] newRowBuffer() {
+            return new byte[previous.length];
+        }
+
+        // row: amostras R, G, B (e A) da próxima linha
+        public void writeRow(byte[] row) throws IOException {
+            if (rowsWritten == height) {
+                throw new IllegalStateException("Todas as " + height + " linhas já foram gravadas.");
+            }
+            try {
+                byte[] filtered = filter.apply(row, rowsWritten == 0 ? null : previous);
+                zlib.write(filtered, 0, filtered.length);
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+            System.arraycopy(row, 0, previous, 0, row.length);
+            rowsWritten++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (rowsWritten != height) {
+                deflater.end();
+                if (failed) {
+                    return; // a exceção da gravação já está sendo propagada
+                }
+                throw new IllegalStateException("Foram gravadas " + rowsWritten + " de " + height + " linhas.");
+            }
+            zlib.finish();
+            deflater.end();
+            idat.flush();
+            writeChunk(out, "IEND", new byte[0], 0, 0);
+            out.flush();
+        }
+    }
+
+    private void writeParallel(CarrierRaster raster, boolean alpha, OutputStream out, PngWriteOptions options)
+            throws IOException {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int rowBytes = width * (alpha ? 4 : 3);
+        int rowsPerStrip = Math.max(1, STRIP_TARGET_BYTES / (rowBytes + 1));
+        int strips = (height + rowsPerStrip - 1) / rowsPerStrip;
+
+        writeHeader(out, width, height, alpha);
+        ChunkOutputStream idat = new ChunkOutputStream(out);
+        idat.write(0x78);
+        idat.write(zlibFlags(options.getCompressionLevel()));
+
+        ForkJoinPool pool = new ForkJoinPool(options.getParallelism());
+        try {
+            // janela limitada de faixas em andamento, gravadas na ordem
+            Deque<Future<CompressedStrip>> pending = new ArrayDeque<>();
+            int window = options.getParallelism() * 2;
+            long adler = 1;
+            int next = 0;
+            while (next < strips || !pending.isEmpty()) {
+                while (next < strips && pending.size() < window) {
+                    int firstRow = next * rowsPerStrip;
+                    int lastRow = Math.min(height, firstRow + rowsPerStrip);
+                    boolean last = next == strips - 1;
+                    pending.add(pool.submit(() -> compressStrip(raster, alpha, firstRow, lastRow, last, options)));
+                    next++;
+                }
+                CompressedStrip strip = pending.removeFirst().get();
+                idat.write(strip.data, 0, strip.length);
+                adler = combineAdler32(adler, strip.adler, strip.rawLength);
+            }
+            idat.write((int) (adler >>> 24));
+            idat.write((int) (adler >>> 16));
+            idat.write((int) (adler >>> 8));
+            idat.write((int) adler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Gravação do PNG interrompida.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Erro ao comprimir uma faixa do PNG.", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        idat.flush();
+        writeChunk(out, "IEND", new byte[0], 0, 0);
+        out.flush();
+    }
+
+    private static final class CompressedStrip {
+        byte[] data;
+        int length;
+        long adler;
+        long rawLength;
+    }
+
+    private static CompressedStrip compressStrip(CarrierRaster raster, boolean alpha, int firstRow, int lastRow,
+            boolean last, PngWriteOptions options) {
+        int bytesPerPixel = alpha ? 4 : 3;
+        int rowBytes = raster.getWidth() * bytesPerPixel;
+        RowFilter filter = new RowFilter(options.getFilter(), rowBytes, bytesPerPixel);
+        byte[] row = new byte[rowBytes];
+        byte[] previous = new byte[rowBytes];
+        if (firstRow > 0) {
+            raster.copyRowSamples(firstRow - 1, previous, alpha); // o filtro da primeira linha usa a linha anterior
+        }
+
+        Deflater deflater = new Deflater(options.getCompressionLevel(), true);
+        deflater.setStrategy(options.getStrategy());
+        Adler32 adler = new Adler32();
+        byte[] output = new byte[(lastRow - firstRow) * (rowBytes + 1) / 2 + 1024];
+        int outputLength = 0;
+        try {
+            for (int y = firstRow; y < lastRow; y++) {
+                raster.copyRowSamples(y, row, alpha);
+                byte[] filtered = filter.apply(row, y == 0 ? null : previous);
+                adler.update(filtered, 0, filtered.length);
+                deflater.setInput(filtered, 0, filtered.length);
+                while (!deflater.needsInput()) {
+                    if (outputLength == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    outputLength += deflater.deflate(output, outputLength, output.length - outputLength, Deflater.NO_FLUSH);
+                }
+                byte[] swap = previous;
+                previous = row;
+                row = swap;
+            }
+            // a última faixa encerra o fluxo; as outras terminam alinhadas em byte para a concatenação
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (outputLength == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    outputLength += deflater.deflate(output, outputLength, output.length - outputLength);
+                }
+            } else {
+                int n;
+                do {
+                    if (outputLength == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    n = deflater.deflate(output, outputLength, output.length - outputLength, Deflater.SYNC_FLUSH);
+                    outputLength += n;
+                } while (outputLength == output.length);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        CompressedStrip strip = new CompressedStrip();
+        strip.data = output;
+        strip.length = outputLength;
+        strip.adler = adler.getValue();
+        strip.rawLength = (long) (lastRow - firstRow) * (rowBytes + 1);
+        return strip;
+    }
+
+    // adler32_combine do zlib: Adler-32 de A+B a partir do Adler-32 de A, do de B e do tamanho de B
+    static long combineAdler32(long adler1, long adler2, long length2) {
+        long rem = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= (ADLER_BASE << 1)) sum2 -= (ADLER_BASE << 1);
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | (sum2 << 16);
+    }
+
+    // segundo byte do cabeçalho zlib (FLEVEL), com FCHECK para (CMF * 256 + FLG) % 31 == 0
+    private static int zlibFlags(int level) {
+        if (level <= 1) {
+            return 0x01;
+        } else if (level <= 5) {
+            return 0x5E;
+        } else if (level == 6) {
+            return 0x9C;
+        }
+        return 0xDA;
+    }
+
+    private static void writeHeader(OutputStream out, int width, int height, boolean alpha) throws IOException {
+        out.write(SIGNATURE);
+        byte[] ihdr = new byte[13];
+        putInt(ihdr, 0, width);
+        putInt(ihdr, 4, height);
+        ihdr[8] = 8; // bits por amostra
+        ihdr[9] = (byte) (alpha ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB);
+        ihdr[10] = 0; // deflate
+        ihdr[11] = 0; // filtragem adaptativa padrão
+        ihdr[12] = 0; // sem entrelaçamento
+        writeChunk(out, "IHDR", ihdr, 0, ihdr.length);
+    }
+
+    private static void writeChunk(OutputStream out, String type, byte[] data, int offset, int length) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(out);
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+        dataOut.writeInt(length);
+        dataOut.write(typeBytes);
+        dataOut.write(data, offset, length);
+        dataOut.writeInt((int) crc.getValue());
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    // agrupa o fluxo zlib em chunks IDAT
+    private static final class ChunkOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[IDAT_CHUNK_SIZE];
+        private int count;
+
+        ChunkOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                writeChunk(out, "IDAT", buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush(); // o stream de destino continua aberto para o IEND
+        }
+    }
+
+    // filtros de linha do PNG; devolve o byte do tipo de filtro seguido da linha filtrada
+    private static final class RowFilter {
+        private final PngWriteOptions.Filter filter;
+        private final int bytesPerPixel;
+        private final byte[] zeros;
+        private byte[] best;
+        private byte[] candidate;
+
+        RowFilter(PngWriteOptions.Filter filter, int rowBytes, int bytesPerPixel) {
+            this.filter = filter;
+            this.bytesPerPixel = bytesPerPixel;
+            this.zeros = new byte[rowBytes];
+            this.best = new byte[rowBytes + 1];
+            this.candidate = new byte[rowBytes + 1];
+        }
+
+        byte[] apply(byte[] row, byte[] previous) {
+            byte[] prev = previous != null ? previous : zeros;
+            if (filter != PngWriteOptions.Filter.ADAPTIVE) {
+                filter(filter.type, row, prev, best);
+                return best;
+            }
+            long bestSum = Long.MAX_VALUE;
+            for (int type = 0; type <= 4; type++) {
+                long sum = filter(type, row, prev, candidate);
+                if (sum < bestSum) {
+                    bestSum = sum;
+                    byte[] swap = best;
+                    best = candidate;
+                    candidate = swap;
+                }
+            }
+            return best;
+        }
+
+        // grava a linha filtrada em out[1..] e devolve a soma dos valores absolutos (como bytes com sinal)
+        private long filter(int type, byte[] row, byte[] prev, byte[] out) {
+            out[0] = (byte) type;
+            int bpp = bytesPerPixel;
+            long sum = 0;
+            for (int i = 0; i < row.length; i++) {
+                int raw = row[i] & 0xFF;
+                int left = i >= bpp ? row[i - bpp] & 0xFF : 0;
+                int up = prev[i] & 0xFF;
+                int value;
+                switch (type) {
+                    case 1 -> value = raw - left;
+                    case 2 -> value = raw - up;
+                    case 3 -> value = raw - ((left + up) >>> 1);
+                    case 4 -> value = raw - paeth(left, up, i >= bpp ? prev[i - bpp] & 0xFF : 0);
+                    default -> value = raw;
+                }
+                byte filtered = (byte) value;
+                out[i + 1] = filtered;
+                sum += Math.abs((int) filtered);
+            }
+            return sum;
+        }
+
+        private static int paeth(int a, int b, int c) {
+            int p = a + b - c;
+            int pa = Math.abs(p - a);
+            int pb = Math.abs(p - b);
+            int pc = Math.abs(p - c);
+            if (pa <= pb && pa <= pc) {
+                return a;
+            }
+            return pb <= pc ? b : c;
+        }
+    }
+}
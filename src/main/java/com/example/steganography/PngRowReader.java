@@ -0,0 +1,259 @@
+package com.example.steganography;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Leitor de PNG linha a linha: descomprime os IDAT só até a última linha pedida, sem decodificar a imagem
+ * inteira. Suporta o que o {@link PngEncoder} grava (RGB/RGBA, 8 bits por amostra, sem entrelaçamento);
+ * para os outros formatos {@link #isSupported()} devolve false e quem chama usa o ImageIO.
+ * <p>
+ * Os CRCs dos chunks não são verificados; o deflate ainda confere a integridade do fluxo ao final.
+ */
+public final class PngRowReader implements AutoCloseable {
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final int IHDR = 0x49484452;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+
+    private final DataInputStream in;
+    private final int width;
+    private final int height;
+    private final int bitDepth;
+    private final int colorType;
+    private final int interlace;
+    private final int bytesPerPixel;
+
+    private InflaterInputStream pixels;
+    private Inflater inflater;
+    private byte[] current;
+    private byte[] previous;
+    private int rowsRead;
+
+    public PngRowReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        byte[] signature = new byte[SIGNATURE.length];
+        this.in.readFully(signature);
+        if (!Arrays.equals(signature, SIGNATURE)) {
+            throw new IOException("O arquivo não é um PNG (assinatura inválida).");
+        }
+        int length = this.in.readInt();
+        if (this.in.readInt() != IHDR || length != 13) {
+            throw new IOException("PNG inválido: o primeiro chunk não é o IHDR.");
+        }
+        width = this.in.readInt();
+        height = this.in.readInt();
+        bitDepth = this.in.readUnsignedByte();
+        colorType = this.in.readUnsignedByte();
+        this.in.readUnsignedByte(); // método de compressão
+        this.in.readUnsignedByte(); // método de filtragem
+        interlace = this.in.readUnsignedByte();
+        this.in.readInt(); // CRC
+        if (width <= 0 || height <= 0) {
+            throw new IOException("PNG inválido: dimensões " + width + "x" + height);
+        }
+        bytesPerPixel = colorType == 6 ? 4 : 3;
+    }
+
+    // true se o arquivo começa com a assinatura do PNG
+    public static boolean isPng(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return Arrays.equals(in.readNBytes(SIGNATURE.length), SIGNATURE);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean hasAlpha() {
+        return colorType == 6;
+    }
+
+    public int getBitDepth() {
+        return bitDepth;
+    }
+
+    // tipo de cor do IHDR: 0 cinza, 2 RGB, 3 paleta, 4 cinza com alfa, 6 RGBA
+    public int getColorType() {
+        return colorType;
+    }
+
+    public int getRowsRead() {
+        return rowsRead;
+    }
+
+    public boolean isSupported() {
+        return bitDepth == 8 && (colorType == 2 || colorType == 6) && interlace == 0;
+    }
+
+    // bytes de amostras por linha (R, G, B e A, se houver)
+    public int getRowBytes() {
+        return width * bytesPerPixel;
+    }
+
+    /**
+     * Lê a próxima linha, já sem o filtro, em dest: amostras R, G, B (e A) de 8 bits.
+     */
+    public void readRow(byte[] dest) throws IOException {
+        if (!isSupported()) {
+            throw new IOException("Formato de PNG não suportado pelo leitor de linhas (profundidade " + bitDepth
+                    + ", tipo de cor " + colorType + ", entrelaçamento " + interlace + ").");
+        }
+        if (rowsRead == height) {
+            throw new EOFException("Todas as " + height + " linhas já foram lidas.");
+        }
+        if (pixels == null) {
+            current = new byte[getRowBytes() + 1];
+            previous = new byte[getRowBytes() + 1];
+            inflater = new Inflater();
+            pixels = new InflaterInputStream(new IdatInputStream(in), inflater, 64 * 1024);
+        }
+        byte[] swap = previous;
+        previous = current;
+        current = swap;
+        int read = pixels.readNBytes(current, 0, current.length);
+        if (read != current.length) {
+            throw new EOFException("PNG truncado: faltam dados da linha " + rowsRead + ".");
+        }
+        unfilter(current, previous, bytesPerPixel);
+        System.arraycopy(current, 1, dest, 0, dest.length);
+        rowsRead++;
+    }
+
+    /**
+     * Lê as próximas count linhas em uma imagem INT_RGB (ou INT_ARGB, se o PNG tiver alfa).
+     */
+    public BufferedImage readRows(int count) throws IOException {
+        BufferedImage image = new BufferedImage(width, count, hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        byte[] row = new byte[getRowBytes()];
+        boolean alpha = hasAlpha();
+        for (int y = 0; y < count; y++) {
+            readRow(row);
+            int i = 0;
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int pixel = (row[i++] & 0xFF) << 16 | (row[i++] & 0xFF) << 8 | (row[i++] & 0xFF);
+                data[offset + x] = alpha ? pixel | (row[i++] & 0xFF) << 24 : pixel;
+            }
+        }
+        return image;
+    }
+
+    // desfaz o filtro da linha (row[0] é o tipo de filtro); prev é a linha anterior já sem filtro
+    private static void unfilter(byte[] row, byte[] prev, int bpp) throws IOException {
+        int type = row[0];
+        int length = row.length;
+        switch (type) {
+            case 0:
+                break;
+            case 1:
+                for (int i = 1 + bpp; i < length; i++) {
+                    row[i] += row[i - bpp];
+                }
+                break;
+            case 2:
+                for (int i = 1; i < length; i++) {
+                    row[i] += prev[i];
+                }
+                break;
+            case 3:
+                for (int i = 1; i < length; i++) {
+                    int left = i > bpp ? row[i - bpp] & 0xFF : 0;
+                    row[i] += (byte) ((left + (prev[i] & 0xFF)) >>> 1);
+                }
+                break;
+            case 4:
+                for (int i = 1; i < length; i++) {
+                    int a = i > bpp ? row[i - bpp] & 0xFF : 0;
+                    int b = prev[i] & 0xFF;
+                    int c = i > bpp ? prev[i - bpp] & 0xFF : 0;
+                    int p = a + b - c;
+                    int pa = Math.abs(p - a);
+                    int pb = Math.abs(p - b);
+                    int pc = Math.abs(p - c);
+                    row[i] += (byte) (pa <= pb && pa <= pc ? a : pb <= pc ? b : c);
+                }
+                break;
+            default:
+                throw new IOException("PNG inválido: tipo de filtro " + type);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inflater != null) {
+            inflater.end();
+        }
+        in.close();
+    }
+
+    // conteúdo dos chunks IDAT consecutivos, pulando os chunks auxiliares anteriores
+    private static final class IdatInputStream extends InputStream {
+        private final DataInputStream in;
+        private int remaining;
+        private boolean started;
+        private boolean finished;
+
+        IdatInputStream(DataInputStream in) {
+            this.in = in;
+        }
+
+        // posiciona no próximo IDAT; false quando os IDAT acabam
+        private boolean nextChunk() throws IOException {
+            while (remaining == 0 && !finished) {
+                if (started) {
+                    in.readInt(); // CRC do IDAT anterior
+                }
+                int length = in.readInt();
+                int type = in.readInt();
+                if (type == IDAT) {
+                    started = true;
+                    remaining = length;
+                } else if (started || type == IEND) {
+                    finished = true;
+                } else {
+                    in.skipNBytes(length + 4L); // chunk auxiliar e o CRC
+                }
+            }
+            return !finished;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            remaining--;
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException("PNG truncado dentro de um chunk IDAT.");
+            }
+            remaining -= n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.steganography;
+
+import java.util.zip.Deflater;
+
+/**
+ * Opções de gravação do PNG: nível e estratégia do deflate, filtro das linhas e compressão das faixas
+ * da imagem em paralelo.
+ * <p>
+ * Os dados ocultos ficam nos pixels, então qualquer combinação gera um PNG sem perdas equivalente;
+ * só muda o tempo de gravação e o tamanho do arquivo.
+ */
+public class PngWriteOptions {
+
+    public enum Filter {
+        NONE(0), SUB(1), UP(2), AVERAGE(3), PAETH(4),
+        // escolhe por linha o filtro com a menor soma dos valores absolutos (mesma heurística do libpng)
+        ADAPTIVE(-1);
+
+        final int type;
+
+        Filter(int type) {
+            this.type = type;
+        }
+    }
+
+    private int compressionLevel = 4; // mesmo padrão do gravador PNG do ImageIO
+    private int strategy = Deflater.DEFAULT_STRATEGY;
+    private Filter filter = Filter.ADAPTIVE;
+    private int parallelism = 1;
+
+    public static PngWriteOptions defaults() {
+        return new PngWriteOptions();
+    }
+
+    // prioriza velocidade: deflate nível 1, filtro SUB e compressão das faixas em todos os processadores
+    public static PngWriteOptions fast() {
+        return new PngWriteOptions()
+                .setCompressionLevel(Deflater.BEST_SPEED)
+                .setFilter(Filter.SUB)
+                .setParallelism(Runtime.getRuntime().availableProcessors());
+    }
+
+    // prioriza tamanho: deflate nível 9 com filtro adaptativo
+    public static PngWriteOptions archival() {
+        return new PngWriteOptions()
+                .setCompressionLevel(Deflater.BEST_COMPRESSION)
+                .setFilter(Filter.ADAPTIVE);
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public PngWriteOptions setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Nível de compressão deve estar entre 0 e 9: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    public int getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @param strategy Deflater.DEFAULT_STRATEGY, Deflater.FILTERED ou Deflater.HUFFMAN_ONLY.
+     */
+    public PngWriteOptions setStrategy(int strategy) {
+        if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY) {
+            throw new IllegalArgumentException("Estratégia de deflate inválida: " + strategy);
+        }
+        this.strategy = strategy;
+        return this;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    public PngWriteOptions setFilter(Filter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // threads usadas para comprimir faixas da imagem ao mesmo tempo; 1 = sequencial
+    public PngWriteOptions setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("O paralelismo deve ser pelo menos 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+}
@@ -1,197 +1,587 @@
 package com.example.steganography;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 
 import com.example.steganography.exceptions.SteganographyException;
+import com.example.steganography.metrics.Instrumentation;
+import com.example.steganography.metrics.Stage;
+import com.example.steganography.metrics.StageTimer;
 
 public class SteganographyUtils {
 
+    // um ZIP vazio já tem os 22 bytes do registro final
+    private static final int MIN_ZIP_SIZE = 22;
+
     private final ImageProcessor imageProcessor;
     private final DataConverter dataConverter;
+    private final ParallelLsbEngine parallelEngine; // null = modo sequencial
+    private final TiledCarrierProcessor tiledProcessor;
+    private final StripedCarrierProcessor stripedProcessor;
+    private volatile boolean verbose = true;
+    private volatile Instrumentation instrumentation = Instrumentation.noOp();
+    private volatile CarrierCache carrierCache; // null = sempre decodifica a imagem
+    private volatile BufferPool bufferPool; // null = aloca os buffers a cada operação
 
     public SteganographyUtils(ImageProcessor imageProcessor, DataConverter dataConverter) {
+        this(imageProcessor, dataConverter, 1);
+    }
+
+    /**
+     * @param parallelism número de threads usadas para gravar/ler os bits em faixas de linhas da imagem;
+     *                    1 mantém o processamento sequencial.
+     */
+    public SteganographyUtils(ImageProcessor imageProcessor, DataConverter dataConverter, int parallelism) {
         this.imageProcessor = imageProcessor;
         this.dataConverter = dataConverter;
+        this.parallelEngine = parallelism > 1 ? new ParallelLsbEngine(parallelism) : null;
+        this.tiledProcessor = new TiledCarrierProcessor(dataConverter);
+        this.stripedProcessor = new StripedCarrierProcessor(imageProcessor, dataConverter);
+    }
+
+    // liga/desliga as mensagens de progresso no console (o modo em lote desliga)
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Destino das medições de cada etapa (duração, bytes, bits, alocação). O padrão não mede nada.
+     */
+    public void setInstrumentation(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Cache das imagens portadoras decodificadas, para ocultações repetidas nas mesmas imagens de modelo.
+     */
+    public void setCarrierCache(CarrierCache carrierCache) {
+        this.carrierCache = carrierCache;
+    }
+
+    // pool dos buffers dos streams de pixels
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    static void checkNotStriped(StegoHeader header, String imagePath) throws SteganographyException {
+        if (header.isStriped()) {
+            throw new SteganographyException("A imagem é a parte " + header.getStripeIndex() + " de um conjunto de "
+                    + header.getStripeCount() + " imagens; informe todas as imagens do conjunto: " + imagePath);
+        }
     }
 
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * @deprecated o ZIP agora é gravado direto nos pixels, sem arquivo temporário; zipTempPath é ignorado.
+     *             Use {@link #embedData(String, String, String)}.
+     */
+    @Deprecated
     public void embedData(String originalImagePath, String dataToHidePath, String zipTempPath, String outputImagePath)
             throws SteganographyException {
-        System.out.println("Iniciando ocultação de dados...");
+        embedData(originalImagePath, dataToHidePath, outputImagePath);
+    }
+
+    public StegoHeader embedData(String originalImagePath, String dataToHidePath, String outputImagePath)
+            throws SteganographyException {
+        return embedData(originalImagePath, dataToHidePath, outputImagePath, EmbedOptions.defaults());
+    }
+
+    /**
+     * @return cabeçalho gravado na imagem (layout e tamanho do ZIP).
+     */
+    public StegoHeader embedData(String originalImagePath, String dataToHidePath, String outputImagePath, EmbedOptions options)
+            throws SteganographyException {
+        log("Iniciando ocultação de dados...");
+
+        Instrumentation metrics = instrumentation;
 
         //carrega a imagem original
-        BufferedImage image = imageProcessor.loadImage(originalImagePath);
-        System.out.println("Imagem original carregada: " + originalImagePath);
-
-        // compacta em zip
-        byte[] zipBytes = dataConverter.zipFolder(dataToHidePath, zipTempPath);
-        System.out.println("Dados compactados em ZIP. Tamanho: " + zipBytes.length + " bytes.");
-
-        // cabeçalho com o tamanho do zip
-        byte[] headerBytes = dataConverter.generateHeader(zipBytes.length);
-        System.out.println("Cabeçalho gerado. Tamanho: " + headerBytes.length + " bytes.");
-
-        // concatenar cabeçalho e dados ZIP
-        byte[] dataWithHeader = new byte[headerBytes.length + zipBytes.length];
-        System.arraycopy(headerBytes, 0, dataWithHeader, 0, headerBytes.length);
-        System.arraycopy(zipBytes, 0, dataWithHeader, headerBytes.length, zipBytes.length);
-
-        // Converter os dados em bits
-        boolean[] dataBits = dataConverter.bytesToBits(dataWithHeader);
-        System.out.println("Dados (com cabeçalho) convertidos para " + dataBits.length + " bits.");
-
-        // verificar a capacidade da imagem
-        long imageCapacityBits = (long) image.getWidth() * image.getHeight() * 3; // os 3 canais RGB
-        if (dataBits.length > imageCapacityBits) {
-            throw new SteganographyException(
-                    "A imagem é muito pequena para ocultar os dados. " +
-                            "Bits necessários: " + dataBits.length +
-                            ", Capacidade da imagem: " + imageCapacityBits
-            );
-        }
-        System.out.println("Capacidade da imagem suficiente. Bits a ocultar: " + dataBits.length +
-                        ", Capacidade disponível: " + imageCapacityBits);
-
-        // ocultar os bits LSB da img
-        int bitIndex = 0;
-        outerLoop:
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                int pixel = imageProcessor.getPixel(image, x, y);
-
-                int alpha = (pixel >> 24) & 0xFF;
-                int red = (pixel >> 16) & 0xFF;
-                int green = (pixel >> 8) & 0xFF;
-                int blue = pixel & 0xFF;
-
-                // Ocultar BITS: 
-
-                //vermelho
-                if (bitIndex < dataBits.length) {
-                    red = (red & 0xFE) | (dataBits[bitIndex] ? 1 : 0);
-                    bitIndex++;
-                } else 
-                    break outerLoop;
-
-                //verde
-                if (bitIndex < dataBits.length) {
-                    green = (green & 0xFE) | (dataBits[bitIndex] ? 1 : 0);
-                    bitIndex++;
-                } else 
-                    break outerLoop;
-
-                //azul
-                if (bitIndex < dataBits.length) {
-                    blue = (blue & 0xFE) | (dataBits[bitIndex] ? 1 : 0);
-                    bitIndex++;
-                } else 
-                    break outerLoop;
-
-                int newPixel = (alpha << 24) | (red << 16) | (green << 8) | blue;
-                imageProcessor.setPixel(image, x, y, newPixel);
+        CarrierRaster carrier;
+        try (StageTimer timer = StageTimer.start(metrics, Stage.LOAD)) {
+            // com cache, a imagem é uma cópia própria e pode ser alterada à vontade
+            CarrierCache cache = carrierCache;
+            BufferedImage image = cache != null ? cache.checkout(originalImagePath, imageProcessor)
+                    : imageProcessor.loadImage(originalImagePath);
+            carrier = CarrierRaster.wrap(image);
+            timer.bytes(new File(originalImagePath).length());
+        }
+        log("Imagem original carregada: " + originalImagePath);
+
+        if (options.isUseAlpha() && !carrier.hasAlpha()) {
+            throw new SteganographyException("A imagem não tem canal alfa: " + originalImagePath);
+        }
+        long reservedBits = StegoHeader.reservedBits();
+        if (carrier.getCapacityBits() < reservedBits) {
+            throw new SteganographyException("A imagem é muito pequena para ocultar até mesmo o cabeçalho. " +
+                    "Capacidade da imagem: " + carrier.getCapacityBits());
+        }
+
+        // escolhe quantos bits por canal usar
+        int bitsPerChannel = options.getBitsPerChannel();
+        if (bitsPerChannel == EmbedOptions.AUTO) {
+            long estimatedBytes = StegoHeader.containerSize(dataConverter.estimateZipSize(dataToHidePath), options.getChunkSize());
+            bitsPerChannel = chooseBitsPerChannel(carrier, options.isUseAlpha(), estimatedBytes);
+            log("Tamanho máximo estimado do ZIP: " + estimatedBytes + " bytes. Bits por canal escolhidos: " + bitsPerChannel);
+        }
+        CarrierRaster payloadRaster = carrier.withLayout(bitsPerChannel, options.isUseAlpha());
+        long startBit = (long) StegoHeader.HEADER_PIXELS * payloadRaster.getBitsPerPixel();
+        long imageCapacityBits = payloadRaster.getCapacityBits() - startBit;
+        log("Capacidade disponível: " + imageCapacityBits + " bits (" + bitsPerChannel + " bit(s) por canal"
+                + (options.isUseAlpha() ? ", com alfa" : "") + ").");
+
+        // com chave, os pixels depois do cabeçalho são percorridos na ordem da permutação (sal novo a cada imagem)
+        PixelPermutation permutation = null;
+        if (options.getKey() != null) {
+            permutation = PixelPermutation.random(options.getKey(), StegoHeader.HEADER_PIXELS,
+                    (long) carrier.getWidth() * carrier.getHeight());
+            payloadRaster = payloadRaster.withPermutation(permutation);
+        }
+
+        // compacta em zip direto nos pixels, logo depois dos pixels reservados para o cabeçalho,
+        // em blocos com tamanho e CRC; o buffer volta ao pool mesmo que a compactação falhe
+        LsbOutputStream pixelOut = new LsbOutputStream(payloadRaster, startBit, parallelEngine, bufferPool);
+        long zipSize;
+        try (pixelOut; StageTimer timer = StageTimer.start(metrics, Stage.ZIP)) {
+            ChunkedOutputStream chunkedOut = new ChunkedOutputStream(pixelOut, options.getChunkSize());
+            zipSize = dataConverter.zipFolder(dataToHidePath, chunkedOut, options.getZipOptions());
+            chunkedOut.close();
+            timer.bytes(zipSize).excludeNanos(pixelOut.getPixelNanos());
+        } catch (SteganographyException | IOException e) {
+            if (pixelOut.hasOverflowed()) {
+                throw new SteganographyException(
+                        "A imagem é muito pequena para ocultar os dados. " +
+                                "Bits necessários: mais de " + (pixelOut.getNextBit() - startBit) +
+                                ", Capacidade da imagem: " + imageCapacityBits
+                );
+            }
+            if (e instanceof SteganographyException se) {
+                throw se;
             }
+            throw new SteganographyException("Erro ao gravar o ZIP na imagem.", e);
         }
-        System.out.println("Dados ocultados na imagem. Bits processados: " + bitIndex);
+        long containerSize = pixelOut.getBytesWritten();
+        metrics.record(Stage.PIXEL_PASS, pixelOut.getPixelNanos(), containerSize, containerSize * 8, -1);
+        log("Dados compactados em ZIP direto na imagem. Tamanho: " + zipSize + " bytes ("
+                + (containerSize - zipSize) / StegoHeader.CHUNK_FRAME_BYTES + " bloco(s)).");
+
+        // cabeçalho com o layout e o tamanho do zip, gravado nos pixels reservados no início
+        StegoHeader header = new StegoHeader(bitsPerChannel, options.isUseAlpha(), options.getZipOptions().codec(), zipSize,
+                options.getChunkSize());
+        if (permutation != null) {
+            header = header.scatteredBy(permutation);
+        }
+        try (StageTimer timer = StageTimer.start(metrics, Stage.HEADER)) {
+            header.writeTo(carrier);
+            timer.bytes(StegoHeader.SIZE_BYTES).bits(reservedBits);
+        }
+        log("Cabeçalho gerado. Tamanho: " + StegoHeader.SIZE_BYTES + " bytes.");
 
-        //salva a imagem com os dados ocultos
-        imageProcessor.saveImage(image, outputImagePath);
-        System.out.println("Imagem com dados ocultos salva em: " + outputImagePath);
+        log("Dados ocultados na imagem. Bits processados: " + (reservedBits + containerSize * 8));
+
+        //salva a imagem com os dados ocultos (pode ser a cópia normalizada)
+        try (StageTimer timer = StageTimer.start(metrics, Stage.SAVE)) {
+            imageProcessor.saveImage(carrier.getImage(), outputImagePath, options.getPngOptions());
+            timer.bytes(new File(outputImagePath).length());
+        }
+        log("Imagem com dados ocultos salva em: " + outputImagePath);
+        return header;
     }
 
-    public void extractData(String stegoImagePath, String outputDirectory)
+    /**
+     * Atualiza os dados ocultos de uma imagem que já tem um cabeçalho atual: o ZIP novo é comparado com o que
+     * já está nos pixels e só os trechos diferentes são regravados (o cabeçalho também, se o tamanho mudou).
+     * Mantém o layout da imagem (bits por canal e alfa); das opções só valem as do ZIP e do PNG e a chave, se os
+     * dados foram espalhados com uma.
+     * <p>
+     * As entradas do ZIP são comprimidas uma a uma e com a data de modificação dos arquivos, então arquivos que
+     * não mudaram geram os mesmos bytes; o ganho é maior quando os arquivos alterados mantêm o tamanho ou
+     * ficam no fim da pasta (um arquivo que cresce desloca as entradas seguintes).
+     *
+     * @return cabeçalho gravado na imagem.
+     */
+    public StegoHeader updateData(String stegoImagePath, String dataToHidePath, String outputImagePath, EmbedOptions options)
             throws SteganographyException {
-        System.out.println("Iniciando extração de dados...");
+        log("Iniciando atualização dos dados ocultos...");
 
-        // carrega a imagem salva
-        BufferedImage image = imageProcessor.loadImage(stegoImagePath);
-        System.out.println("Imagem esteganografada carregada: " + stegoImagePath);
-
-        // extrai os bits
-        boolean[] headerBits = new boolean[dataConverter.getHeaderSizeInBits()];
-        int bitCount = 0;
-        extractLoop:
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                int pixel = imageProcessor.getPixel(image, x, y);
-
-                int red = (pixel >> 16) & 0xFF;
-                int green = (pixel >> 8) & 0xFF;
-                int blue = pixel & 0xFF;
-
-                // vermelho
-                if (bitCount < headerBits.length) {
-                    headerBits[bitCount++] = (red & 1) == 1;
-                } else break extractLoop;
-
-                // verde
-                if (bitCount < headerBits.length) {
-                    headerBits[bitCount++] = (green & 1) == 1;
-                } else break extractLoop;
-
-                // azul
-                if (bitCount < headerBits.length) {
-                    headerBits[bitCount++] = (blue & 1) == 1;
-                } else break extractLoop;
+        Instrumentation metrics = instrumentation;
+
+        CarrierRaster carrier;
+        try (StageTimer timer = StageTimer.start(metrics, Stage.LOAD)) {
+            BufferedImage image = imageProcessor.loadImage(stegoImagePath);
+            carrier = CarrierRaster.wrap(image);
+            timer.bytes(new File(stegoImagePath).length());
+        }
+        log("Imagem esteganografada carregada: " + stegoImagePath);
+
+        StegoHeader oldHeader;
+        try (StageTimer timer = StageTimer.start(metrics, Stage.HEADER)) {
+            oldHeader = StegoHeader.readFrom(carrier, options.getKey());
+            timer.bytes(StegoHeader.SIZE_BYTES).bits(StegoHeader.reservedBits());
+        }
+        // no legado o ZIP começa logo depois do tamanho, onde o cabeçalho atual ficaria: não dá para aproveitar nada
+        if (oldHeader.isLegacy()) {
+            throw new SteganographyException("A imagem está no formato legado e não pode ser atualizada; use a ocultação completa: "
+                    + stegoImagePath);
+        }
+
+        checkNotStriped(oldHeader, stegoImagePath);
+
+        CarrierRaster payloadRaster = oldHeader.payloadLayout(carrier);
+        long startBit = oldHeader.payloadStartBit(payloadRaster);
+        long imageCapacityBits = payloadRaster.getCapacityBits() - startBit;
+
+        // mantém também o formato: na versão 2 o ZIP novo vai nos mesmos blocos, do mesmo tamanho
+        LsbPatchOutputStream patchOut = new LsbPatchOutputStream(payloadRaster, startBit, parallelEngine);
+        long zipSize;
+        try (StageTimer timer = StageTimer.start(metrics, Stage.ZIP)) {
+            if (oldHeader.isChunked()) {
+                ChunkedOutputStream chunkedOut = new ChunkedOutputStream(patchOut, oldHeader.getChunkSize(), oldHeader.getChecksum());
+                zipSize = dataConverter.zipFolder(dataToHidePath, chunkedOut, options.getZipOptions());
+                chunkedOut.close();
+            } else {
+                zipSize = dataConverter.zipFolder(dataToHidePath, patchOut, options.getZipOptions());
+                patchOut.close();
+            }
+            timer.bytes(zipSize).excludeNanos(patchOut.getPixelNanos());
+        } catch (SteganographyException | IOException e) {
+            if (patchOut.hasOverflowed()) {
+                throw new SteganographyException(
+                        "O novo ZIP não cabe no layout atual da imagem (" + oldHeader.getBitsPerChannel() + " bit(s) por canal). " +
+                                "Bits necessários: mais de " + (patchOut.getNextBit() - startBit) +
+                                ", Capacidade da imagem: " + imageCapacityBits + ". Use a ocultação completa."
+                );
+            }
+            if (e instanceof SteganographyException se) {
+                throw se;
+            }
+            throw new SteganographyException("Erro ao gravar o ZIP na imagem.", e);
+        }
+        metrics.record(Stage.PIXEL_PASS, patchOut.getPixelNanos(), patchOut.getBytesChanged(), patchOut.getBytesChanged() * 8, -1);
+        if (!oldHeader.isChunked() && zipSize > Integer.MAX_VALUE) {
+            throw new SteganographyException("O ZIP gerado é grande demais para o cabeçalho da versão 1: " + zipSize + " bytes.");
+        }
+        log("ZIP novo: " + zipSize + " bytes (antes: " + oldHeader.getPayloadSize() + "). Bytes regravados: "
+                + patchOut.getBytesChanged() + " em " + patchOut.getRuns() + " trecho(s).");
+
+        // os bytes depois do fim do ZIP novo ficam como estão: o tamanho no cabeçalho delimita o que vale
+        StegoHeader header = oldHeader.withPayload(options.getZipOptions().codec(), zipSize);
+        if (header.getPayloadSize() != oldHeader.getPayloadSize() || header.getCodec() != oldHeader.getCodec()) {
+            try (StageTimer timer = StageTimer.start(metrics, Stage.HEADER)) {
+                header.writeTo(carrier);
+                timer.bytes(StegoHeader.SIZE_BYTES).bits(StegoHeader.reservedBits());
             }
+            log("Cabeçalho atualizado.");
         }
 
-        if (bitCount < headerBits.length) {
-            throw new SteganographyException("Não foi possível extrair o cabeçalho completo da imagem. Imagem muito pequena ou corrompida.");
+        try (StageTimer timer = StageTimer.start(metrics, Stage.SAVE)) {
+            imageProcessor.saveImage(carrier.getImage(), outputImagePath, options.getPngOptions());
+            timer.bytes(new File(outputImagePath).length());
         }
-        System.out.println("Cabeçalho (bits) extraído.");
+        log("Imagem atualizada salva em: " + outputImagePath);
+        return header;
+    }
 
-        // converter os bits para bytes
-        byte[] headerBytes = dataConverter.bitsToBytes(headerBits);
-        int zipSize = dataConverter.extractHeader(headerBytes);
-        System.out.println("Tamanho do arquivo ZIP a ser extraído: " + zipSize + " bytes.");
+    // menor quantidade de bits por canal em que o tamanho estimado cabe (ou o máximo, se não couber em nenhuma)
+    private int chooseBitsPerChannel(CarrierRaster carrier, boolean useAlpha, long estimatedBytes) {
+        for (int bits = 1; bits < CarrierRaster.MAX_BITS_PER_CHANNEL; bits++) {
+            CarrierRaster layout = carrier.withLayout(bits, useAlpha);
+            long available = layout.getCapacityBits() - (long) StegoHeader.HEADER_PIXELS * layout.getBitsPerPixel();
+            if (estimatedBytes * 8 <= available) {
+                return bits;
+            }
+        }
+        return CarrierRaster.MAX_BITS_PER_CHANNEL;
+    }
 
-        // calcular o total para extrair
-        long totalBitsToExtract = (long) dataConverter.getHeaderSizeInBits() + (long) zipSize * 8;
-        System.out.println("Total de bits a extrair: " + totalBitsToExtract);
-
-        // extrair todos os dados ocultos
-        boolean[] allDataBits = new boolean[(int) totalBitsToExtract];
-        bitCount = 0;
-        outerLoop:
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                int pixel = imageProcessor.getPixel(image, x, y);
-
-                int red = (pixel >> 16) & 0xFF;
-                int green = (pixel >> 8) & 0xFF;
-                int blue = pixel & 0xFF;
-
-                // vermelho
-                if (bitCount < allDataBits.length) {
-                    allDataBits[bitCount++] = (red & 1) == 1;
-                } else break outerLoop;
-
-                // verde
-                if (bitCount < allDataBits.length) {
-                    allDataBits[bitCount++] = (green & 1) == 1;
-                } else break outerLoop;
-
-                // azul
-                if (bitCount < allDataBits.length) {
-                    allDataBits[bitCount++] = (blue & 1) == 1;
-                } else break outerLoop;
+    /**
+     * Escolhe no índice a menor imagem que comporta os dados, pelo tamanho máximo estimado do ZIP e só com o IHDR
+     * das imagens: nada é carregado nem compactado antes de se saber que os dados cabem.
+     */
+    public CarrierIndex.Choice chooseCarrier(CarrierIndex carriers, String dataToHidePath, EmbedOptions options)
+            throws SteganographyException {
+        long estimatedBytes = StegoHeader.containerSize(dataConverter.estimateZipSize(dataToHidePath), options.getChunkSize());
+        CarrierIndex.Choice choice = carriers.select(estimatedBytes, options.getBitsPerChannel(), options.isUseAlpha());
+        if (choice == null) {
+            throw new SteganographyException("Nenhuma imagem de " + carriers.getDirectory() + " comporta os dados"
+                    + (options.isUseAlpha() ? " com o canal alfa" : "") + ". Tamanho máximo estimado do ZIP: "
+                    + estimatedBytes + " bytes (" + carriers.getEntries().size() + " imagem(ns) no índice).");
+        }
+        log("Imagem escolhida: " + choice.getEntry().getPath() + " (" + choice.getEntry().getWidth() + "x"
+                + choice.getEntry().getHeight() + ", " + choice.getBitsPerChannel() + " bit(s) por canal).");
+        return choice;
+    }
+
+    // oculta os dados na menor imagem do índice que os comporta
+    public StegoHeader embedData(CarrierIndex carriers, String dataToHidePath, String outputImagePath, EmbedOptions options)
+            throws SteganographyException {
+        CarrierIndex.Choice choice = chooseCarrier(carriers, dataToHidePath, options);
+        return embedData(choice.getEntry().getPath().toString(), dataToHidePath, outputImagePath, options);
+    }
+
+    /**
+     * Ocultação por faixas de linhas, sem carregar a imagem inteira (ver {@link TiledCarrierProcessor}).
+     * Gera o mesmo formato de {@link #embedData(String, String, String, EmbedOptions)}.
+     */
+    public StegoHeader embedDataTiled(String originalImagePath, String dataToHidePath, String outputImagePath,
+            EmbedOptions options) throws SteganographyException {
+        log("Iniciando ocultação de dados por faixas...");
+        StegoHeader header = tiledProcessor.embed(originalImagePath, dataToHidePath, outputImagePath, options);
+        log("Dados ocultados (" + (header.isTerminated() ? "até " : "") + header.getPayloadSize() + " bytes de ZIP, " + header.getBitsPerChannel()
+                + " bit(s) por canal). Imagem salva em: " + outputImagePath);
+        return header;
+    }
+
+    // extração por faixas de linhas, sem carregar a imagem inteira
+    public StegoHeader extractDataTiled(String stegoImagePath, String outputDirectory) throws SteganographyException {
+        log("Iniciando extração de dados por faixas...");
+        StegoHeader header = tiledProcessor.extract(stegoImagePath, outputDirectory);
+        log("Dados descompactados com sucesso para: " + outputDirectory + " (" + (header.isTerminated() ? "até " : "")
+                + header.getPayloadSize() + " bytes de ZIP).");
+        return header;
+    }
+
+    /**
+     * Divide os dados entre várias imagens, gravadas ao mesmo tempo (ver {@link StripedCarrierProcessor}).
+     * Cada imagem guarda só uma parte; a extração precisa de todas.
+     *
+     * @return cabeçalhos gravados, na ordem das imagens.
+     */
+    public List<StegoHeader> embedDataStriped(List<String> originalImagePaths, String dataToHidePath,
+            List<String> outputImagePaths, EmbedOptions options) throws SteganographyException {
+        log("Iniciando ocultação de dados em " + originalImagePaths.size() + " imagens...");
+        List<StegoHeader> headers = stripedProcessor.embed(originalImagePaths, dataToHidePath, outputImagePaths, options);
+        long zipSize = headers.stream().mapToLong(StegoHeader::getPayloadSize).sum();
+        log("Dados ocultados (" + zipSize + " bytes de ZIP em " + headers.size() + " imagens).");
+        return headers;
+    }
+
+    // junta as partes de um conjunto (as imagens podem vir em qualquer ordem) e descompacta
+    public List<StegoHeader> extractDataStriped(List<String> stegoImagePaths, String outputDirectory)
+            throws SteganographyException {
+        log("Iniciando extração de dados de " + stegoImagePaths.size() + " imagens...");
+        List<StegoHeader> headers = stripedProcessor.extract(stegoImagePaths, outputDirectory);
+        log("Dados descompactados com sucesso para: " + outputDirectory);
+        return headers;
+    }
+
+    /**
+     * Resultado de {@link #verify(String)}: cabeçalho da imagem, blocos conferidos e entradas do ZIP lidas.
+     */
+    public static final class VerifyResult {
+        private final StegoHeader header;
+        private final long chunksChecked;
+        private final long zipEntries;
+
+        VerifyResult(StegoHeader header, long chunksChecked, long zipEntries) {
+            this.header = header;
+            this.chunksChecked = chunksChecked;
+            this.zipEntries = zipEntries;
+        }
+
+        public StegoHeader getHeader() {
+            return header;
+        }
+
+        // 0 nas imagens sem blocos (legado e versão 1)
+        public long getChunksChecked() {
+            return chunksChecked;
+        }
+
+        // -1 numa parte de conjunto, que não tem o ZIP inteiro
+        public long getZipEntries() {
+            return zipEntries;
+        }
+    }
+
+    /**
+     * Confere a integridade dos dados ocultos em uma única passagem, sem gravar nenhum arquivo: o checksum de cada
+     * bloco (versão 2) e o CRC de cada entrada do ZIP. Para no primeiro bloco corrompido. PNGs RGB/RGBA de 8 bits
+     * são lidos linha a linha, só até o fim dos dados; os demais formatos são carregados inteiros.
+     *
+     * @throws SteganographyException na primeira falha encontrada, com o bloco ou a entrada corrompida.
+     */
+    public VerifyResult verify(String stegoImagePath) throws SteganographyException {
+        return verify(stegoImagePath, null);
+    }
+
+    /**
+     * @param key chave usada na ocultação, se os dados foram espalhados com uma (ignorada nas demais imagens).
+     */
+    public VerifyResult verify(String stegoImagePath, String key) throws SteganographyException {
+        try (StageTimer timer = StageTimer.start(instrumentation, Stage.VERIFY)) {
+            VerifyResult result;
+            // com chave os dados podem estar na imagem inteira: não há o que ganhar lendo por faixas
+            if (key == null && TiledCarrierProcessor.canRead(stegoImagePath)) {
+                result = tiledProcessor.verify(stegoImagePath);
+            } else {
+                CarrierRaster carrier = CarrierRaster.wrap(imageProcessor.loadImage(stegoImagePath));
+                StegoHeader header = StegoHeader.readFrom(carrier, key);
+                CarrierRaster payloadRaster = header.payloadLayout(carrier);
+                long startBit = header.payloadStartBit(payloadRaster);
+                if (startBit + header.getContainerSize() * 8 > payloadRaster.getCapacityBits()) {
+                    throw new SteganographyException("Tamanho do cabeçalho fora da capacidade da imagem: "
+                            + header.getPayloadSize() + " bytes" + (header.isLegacy() && key == null
+                                    ? " (se os dados foram ocultados com chave, informe a chave)." : "."));
+                }
+                result = verifyPayload(header,
+                        new LsbInputStream(payloadRaster, startBit, header.getContainerSize(), parallelEngine), dataConverter);
             }
+            timer.bytes(result.getHeader().getContainerSize());
+            return result;
         }
+    }
 
-        if (bitCount < totalBitsToExtract) {
-            throw new SteganographyException("Não foi possível extrair todos os dados. Imagem muito pequena ou dados corrompidos.");
+    // confere os bytes gravados depois do cabeçalho (blocos e/ou ZIP), sem gravar nada
+    static VerifyResult verifyPayload(StegoHeader header, InputStream payload, DataConverter dataConverter)
+            throws SteganographyException {
+        if (!header.isChunked()) {
+            return new VerifyResult(header, 0, dataConverter.verifyZip(payload));
+        }
+        ChunkedInputStream chunks = new ChunkedInputStream(payload, header);
+        long entries = header.isStriped() ? -1 : dataConverter.verifyZip(chunks);
+        try {
+            // os blocos que sobraram depois do fim do ZIP (numa parte de conjunto, todos)
+            chunks.skip(Long.MAX_VALUE);
+        } catch (IOException e) {
+            throw new SteganographyException("Dados corrompidos: " + e.getMessage(), e);
+        }
+        return new VerifyResult(header, chunks.getChunksRead(), entries);
+    }
+
+    /**
+     * Lê só o cabeçalho da imagem, decodificando apenas as primeiras linhas, para saber se ela contém dados
+     * ocultos e de que tamanho, sem extrair nada.
+     *
+     * @return cabeçalho lido (layout e tamanho do ZIP).
+     * @throws SteganographyException se a imagem não contém dados ocultos reconhecíveis.
+     */
+    public StegoHeader probe(String imagePath) throws SteganographyException {
+        ImageProcessor.TopRows top;
+        CarrierRaster carrier;
+        StegoHeader header;
+        try (StageTimer timer = StageTimer.start(instrumentation, Stage.PROBE)) {
+            top = imageProcessor.loadTopRows(imagePath, StegoHeader.HEADER_PIXELS);
+            carrier = CarrierRaster.wrap(top.getRows());
+            header = StegoHeader.readFrom(carrier);
+            timer.bytes(StegoHeader.SIZE_BYTES);
+        }
+
+        // o formato legado não tem identificador: só um tamanho plausível indica que há dados
+        long startBit = header.payloadStartBit(header.payloadLayout(carrier));
+        long capacityBits = CarrierRaster.capacityBits(top.getImageWidth(), top.getImageHeight(),
+                header.getBitsPerChannel(), header.usesAlpha());
+        if (startBit + header.getContainerSize() * 8 > capacityBits
+                || (header.isLegacy() && header.getPayloadSize() < MIN_ZIP_SIZE)) {
+            throw new SteganographyException("A imagem não contém dados ocultos (tamanho lido do cabeçalho: "
+                    + header.getPayloadSize() + " bytes, fora da capacidade da imagem).");
         }
-        System.out.println("Todos os " + bitCount + " bits de dados (cabeçalho + ZIP) extraídos.");
+        return header;
+    }
 
-        // converter a sequencia de bits de dados (menos cabeçalho)
-        // pula o cabeçalho
-        boolean[] zipDataBits = new boolean[zipSize * 8];
-        System.arraycopy(allDataBits, dataConverter.getHeaderSizeInBits(), zipDataBits, 0, zipDataBits.length);
+    /**
+     * @return cabeçalho lido da imagem (layout e tamanho do ZIP).
+     */
+    public StegoHeader extractData(String stegoImagePath, String outputDirectory)
+            throws SteganographyException {
+        return extractData(stegoImagePath, outputDirectory, null);
+    }
 
-        byte[] extractedZipBytes = dataConverter.bitsToBytes(zipDataBits);
-        System.out.println("Dados ZIP convertidos para bytes. Tamanho: " + extractedZipBytes.length + " bytes.");
+    /**
+     * @param key chave usada na ocultação, se os dados foram espalhados com uma (ignorada nas demais imagens).
+     * @return cabeçalho lido da imagem (layout e tamanho do ZIP).
+     */
+    public StegoHeader extractData(String stegoImagePath, String outputDirectory, String key)
+            throws SteganographyException {
+        log("Iniciando extração de dados...");
+        StegoHeader header = readPayload(stegoImagePath, key, zipIn -> dataConverter.unzipToFolder(zipIn, outputDirectory));
+        log("Dados descompactados com sucesso para: " + outputDirectory);
+        return header;
+    }
 
-        // descompactar ZIP
-        dataConverter.unzipToFolder(extractedZipBytes, outputDirectory);
-        System.out.println("Dados descompactados com sucesso para: " + outputDirectory);
+    /**
+     * Extrai o ZIP oculto sem descompactar: os bytes do ZIP são copiados para out à medida que os pixels são lidos,
+     * conferindo o checksum de cada bloco. O stream não é fechado.
+     *
+     * @return cabeçalho lido da imagem (layout e tamanho do ZIP).
+     */
+    public StegoHeader extractZip(String stegoImagePath, OutputStream out, String key) throws SteganographyException {
+        return readPayload(stegoImagePath, key, zipIn -> {
+            try {
+                zipIn.transferTo(out);
+            } catch (IOException e) {
+                throw new SteganographyException("Erro ao extrair o ZIP: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // destino dos bytes do ZIP lidos da imagem
+    private interface PayloadReader {
+        void read(InputStream zipIn) throws SteganographyException;
+    }
+
+    private StegoHeader readPayload(String stegoImagePath, String key, PayloadReader reader) throws SteganographyException {
+        Instrumentation metrics = instrumentation;
+
+        // carrega a imagem salva
+        CarrierRaster carrier;
+        try (StageTimer timer = StageTimer.start(metrics, Stage.LOAD)) {
+            BufferedImage image = imageProcessor.loadImage(stegoImagePath);
+            carrier = CarrierRaster.wrap(image);
+            timer.bytes(new File(stegoImagePath).length());
+        }
+        log("Imagem esteganografada carregada: " + stegoImagePath);
+
+        // le o cabeçalho (legado ou atual) para saber o layout e o tamanho do ZIP
+        StegoHeader header;
+        try (StageTimer timer = StageTimer.start(metrics, Stage.HEADER)) {
+            header = StegoHeader.readFrom(carrier, key);
+            timer.bytes(StegoHeader.SIZE_BYTES).bits(StegoHeader.reservedBits());
+        }
+        checkNotStriped(header, stegoImagePath);
+        long zipSize = header.getPayloadSize();
+        log("Cabeçalho extraído. Tamanho do arquivo ZIP a ser extraído: " + zipSize + " bytes"
+                + (header.isLegacy() ? " (formato legado)." : " (" + header.getBitsPerChannel() + " bit(s) por canal"
+                        + (header.usesAlpha() ? ", com alfa" : "")
+                        + (header.getCodec() == StegoHeader.CODEC_STORED ? ", sem compressão" : "") + ")."));
+
+        CarrierRaster payloadRaster = header.payloadLayout(carrier);
+        long startBit = header.payloadStartBit(payloadRaster);
+
+        // calcular o total para extrair
+        long containerSize = header.getContainerSize();
+        if (startBit + containerSize * 8 > payloadRaster.getCapacityBits()) {
+            throw new SteganographyException("Não foi possível extrair todos os dados. Imagem muito pequena ou dados corrompidos"
+                    + (header.isLegacy() && key == null ? " (se foram ocultados com chave, informe a chave)." : "."));
+        }
+        log("Total de bits de ZIP a extrair: " + containerSize * 8);
+
+        // continua a leitura logo após o cabeçalho e entrega os bytes direto ao descompactador (ou ao destino),
+        // que grava os arquivos enquanto os pixels ainda estão sendo lidos (conferindo o checksum de cada bloco)
+        // fechar o stream devolve o buffer ao pool, mesmo que o leitor não feche
+        LsbInputStream zipIn = new LsbInputStream(payloadRaster, startBit, containerSize, parallelEngine, bufferPool);
+        try (zipIn;
+                InputStream payloadIn = header.isChunked() ? new ChunkedInputStream(zipIn, header) : zipIn;
+                StageTimer timer = StageTimer.start(metrics, Stage.UNZIP)) {
+            reader.read(payloadIn);
+            timer.bytes(zipSize).excludeNanos(zipIn.getPixelNanos());
+        } catch (IOException e) {
+            throw new SteganographyException("Erro ao fechar a leitura dos dados da imagem.", e);
+        }
+        metrics.record(Stage.PIXEL_PASS, zipIn.getPixelNanos(), zipIn.getBytesRead(), zipIn.getBytesRead() * 8, -1);
+        log("Bits de dados do ZIP extraídos: " + zipIn.getBytesRead() * 8);
+        return header;
     }
 }
\ No newline at end of file
@@ -0,0 +1,492 @@
+package com.example.steganography;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+/**
+ * Cabeçalho gravado no início da imagem, sempre com 1 LSB por canal RGB, para que a extração descubra
+ * sozinha como os dados foram gravados.
+ * <p>
+ * Formatos:
+ * <ul>
+ * <li>legado (versão 0): 4 bytes com o tamanho do ZIP; o ZIP vem logo em seguida, também com 1 LSB RGB.</li>
+ * <li>versão 1: "STEG" + versão + bits por canal + flags + codec + tamanho do ZIP (int). O cabeçalho ocupa
+ * os primeiros {@link #V1_HEADER_PIXELS} pixels e o ZIP começa no pixel seguinte, no layout indicado.</li>
+ * <li>versão 2 (atual): "STEG" + versão + bits por canal + flags + codec + tamanho do ZIP (long) + tamanho
+ * dos blocos (int) + conjunto (long) + índice (short) + quantidade de imagens do conjunto (short) + checksum
+ * dos blocos + sal (int) + bytes reservados (zero) + CRC32 dos bytes anteriores, em {@link #HEADER_PIXELS} pixels.
+ * Os campos do conjunto só valem com {@link #FLAG_STRIPED}: o ZIP foi dividido entre várias imagens
+ * ({@link StripedCarrierProcessor}). O sal só vale com {@link #FLAG_SCATTERED}: os pixels dos dados seguem a ordem
+ * de uma {@link PixelPermutation} gerada pela chave. Nesse caso o cabeçalho é gravado mascarado: o sal vai em claro
+ * nos 4 primeiros bytes e o resto (com o "STEG" e as flags) é combinado com a máscara da chave, de modo que sem a
+ * chave ele não se distingue de LSBs quaisquer (e é lido como legado, fora da capacidade). Com {@link #FLAG_TERMINATED}, o
+ * tamanho do ZIP é só o máximo reservado e o fim é marcado por um bloco vazio: é o que permite gravar o cabeçalho
+ * antes de o ZIP ser gerado ({@link TiledCarrierProcessor}).
+ * O ZIP é gravado em blocos, cada um precedido do seu tamanho e checksum ({@link ChunkedOutputStream}), e é
+ * conferido bloco a bloco na leitura. O tamanho é long, mas o ZIP gerado ({@link ParallelZipWriter}, sem ZIP64)
+ * fica limitado a 4 GB e 65535 entradas.</li>
+ * </ul>
+ * O valor de "STEG" lido como tamanho legado passaria de 1 GB, mais do que qualquer BufferedImage comporta
+ * com 1 LSB por canal, então os dois formatos não se confundem.
+ */
+public final class StegoHeader {
+
+    public static final int MAGIC = 0x53544547; // "STEG"
+    public static final int VERSION = 2;
+    public static final int VERSION_1 = 1;
+
+    public static final int LEGACY_SIZE_BYTES = 4;
+    public static final int V1_SIZE_BYTES = 12;
+    public static final int SIZE_BYTES = 48;
+
+    // pixels reservados para o cabeçalho; múltiplo de 8 para que o ZIP comece em um byte inteiro em qualquer layout
+    public static final int V1_HEADER_PIXELS = 32;
+    public static final int HEADER_PIXELS = 128; // SIZE_BYTES * 8 / 3 canais
+
+    // bytes que precedem cada bloco do ZIP na versão 2: tamanho do bloco + checksum
+    public static final int CHUNK_FRAME_BYTES = 8;
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int CRC_OFFSET = SIZE_BYTES - 4;
+    private static final int SALT_OFFSET = 33;
+
+    public static final int FLAG_ALPHA = 1;
+    public static final int FLAG_STRIPED = 2; // só na versão 2
+    public static final int FLAG_SCATTERED = 4; // só na versão 2
+    public static final int FLAG_TERMINATED = 8; // só na versão 2
+    public static final int MAX_STRIPES = 0xFFFF;
+
+    // compressão das entradas do ZIP; imagens antigas têm 0 neste byte (antes reservado), que é o deflate
+    public static final int CODEC_DEFLATE = 0;
+    public static final int CODEC_STORED = 1;
+
+    // algoritmo do checksum dos blocos; por enquanto só existe o CRC32C
+    public static final int CHECKSUM_CRC32C = 1;
+
+    private final int version;
+    private final int bitsPerChannel;
+    private final boolean useAlpha;
+    private final int codec;
+    private final long payloadSize;
+    private final int chunkSize; // 0 = ZIP gravado sem blocos (legado e versão 1)
+    private final long setId;
+    private final int stripeIndex;
+    private final int stripeCount; // 0 = imagem avulsa
+    private final int checksum;
+    private final PixelPermutation permutation; // null = pixels dos dados em ordem de linha
+    private final boolean terminated; // payloadSize é o máximo; o ZIP termina no bloco vazio
+
+    public StegoHeader(int bitsPerChannel, boolean useAlpha, long payloadSize) {
+        this(bitsPerChannel, useAlpha, CODEC_DEFLATE, payloadSize);
+    }
+
+    public StegoHeader(int bitsPerChannel, boolean useAlpha, int codec, long payloadSize) {
+        this(bitsPerChannel, useAlpha, codec, payloadSize, DEFAULT_CHUNK_SIZE);
+    }
+
+    public StegoHeader(int bitsPerChannel, boolean useAlpha, int codec, long payloadSize, int chunkSize) {
+        this(VERSION, bitsPerChannel, useAlpha, codec, payloadSize, chunkSize);
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Tamanho de bloco inválido: " + chunkSize);
+        }
+    }
+
+    private StegoHeader(int version, int bitsPerChannel, boolean useAlpha, int codec, long payloadSize, int chunkSize) {
+        this(version, bitsPerChannel, useAlpha, codec, payloadSize, chunkSize, 0, 0, 0, CHECKSUM_CRC32C, null, false);
+    }
+
+    private StegoHeader(int version, int bitsPerChannel, boolean useAlpha, int codec, long payloadSize, int chunkSize,
+            long setId, int stripeIndex, int stripeCount, int checksum, PixelPermutation permutation, boolean terminated) {
+        this.version = version;
+        this.bitsPerChannel = bitsPerChannel;
+        this.useAlpha = useAlpha;
+        this.codec = codec;
+        this.payloadSize = payloadSize;
+        this.chunkSize = chunkSize;
+        this.setId = setId;
+        this.stripeIndex = stripeIndex;
+        this.stripeCount = stripeCount;
+        this.checksum = checksum;
+        this.permutation = permutation;
+        this.terminated = terminated;
+    }
+
+    /**
+     * Mesmo cabeçalho, marcado como a parte stripeIndex de um conjunto de stripeCount imagens.
+     */
+    public StegoHeader asStripe(long setId, int stripeIndex, int stripeCount) {
+        if (version != VERSION) {
+            throw new IllegalStateException("Só a versão " + VERSION + " do cabeçalho tem os campos de conjunto.");
+        }
+        if (stripeCount < 1 || stripeCount > MAX_STRIPES || stripeIndex < 0 || stripeIndex >= stripeCount) {
+            throw new IllegalArgumentException("Parte inválida: " + stripeIndex + " de " + stripeCount);
+        }
+        return new StegoHeader(version, bitsPerChannel, useAlpha, codec, payloadSize, chunkSize, setId, stripeIndex, stripeCount, checksum,
+                permutation, terminated);
+    }
+
+    /**
+     * Mesmo formato e layout, com outro ZIP (usado ao atualizar os dados de uma imagem). O tamanho passa a ser o
+     * exato, mesmo que o cabeçalho antigo só tivesse o máximo ({@link #isTerminated()}).
+     */
+    public StegoHeader withPayload(int codec, long payloadSize) {
+        if (isLegacy()) {
+            throw new IllegalStateException("O formato legado não pode ser regravado.");
+        }
+        if (version == VERSION_1 && payloadSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("O cabeçalho da versão 1 só guarda tamanhos de até 2 GB: " + payloadSize);
+        }
+        return new StegoHeader(version, bitsPerChannel, useAlpha, codec, payloadSize, chunkSize, setId, stripeIndex, stripeCount, checksum,
+                permutation, false);
+    }
+
+    /**
+     * Mesmo cabeçalho, com o tamanho do ZIP valendo só como máximo: o {@link ChunkedOutputStream} termina os dados
+     * com um bloco vazio. Serve para gravar o cabeçalho antes de o ZIP ser gerado.
+     */
+    public StegoHeader terminated() {
+        if (version != VERSION) {
+            throw new IllegalStateException("Só a versão " + VERSION + " do cabeçalho marca o fim do ZIP.");
+        }
+        return new StegoHeader(version, bitsPerChannel, useAlpha, codec, payloadSize, chunkSize, setId, stripeIndex, stripeCount, checksum,
+                permutation, true);
+    }
+
+    /**
+     * Mesmo cabeçalho, marcado com os pixels dos dados na ordem da permutação. Guarda só o sal, nunca a chave, e é
+     * gravado mascarado pela chave.
+     */
+    public StegoHeader scatteredBy(PixelPermutation permutation) {
+        if (version != VERSION) {
+            throw new IllegalStateException("Só a versão " + VERSION + " do cabeçalho guarda a permutação.");
+        }
+        return new StegoHeader(version, bitsPerChannel, useAlpha, codec, payloadSize, chunkSize, setId, stripeIndex, stripeCount,
+                checksum, permutation, terminated);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public boolean isLegacy() {
+        return version == 0;
+    }
+
+    public int getBitsPerChannel() {
+        return bitsPerChannel;
+    }
+
+    public boolean usesAlpha() {
+        return useAlpha;
+    }
+
+    public int getCodec() {
+        return codec;
+    }
+
+    // tamanho do ZIP em bytes (com isTerminated(), o máximo reservado para ele)
+    public long getPayloadSize() {
+        return payloadSize;
+    }
+
+    // true se o ZIP foi gravado em blocos com tamanho e CRC
+    public boolean isChunked() {
+        return chunkSize > 0;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    // true se a imagem tem só uma parte do ZIP (as outras estão nas demais imagens do conjunto)
+    public boolean isStriped() {
+        return stripeCount > 0;
+    }
+
+    // identificador aleatório, igual em todas as imagens do conjunto
+    public long getSetId() {
+        return setId;
+    }
+
+    // posição da imagem no conjunto, de 0 a getStripeCount() - 1
+    public int getStripeIndex() {
+        return stripeIndex;
+    }
+
+    public int getStripeCount() {
+        return stripeCount;
+    }
+
+    // true se os dados foram espalhados pela imagem com uma chave
+    public boolean isScattered() {
+        return permutation != null;
+    }
+
+    // true se o fim do ZIP é marcado por um bloco vazio (o tamanho gravado é só o máximo)
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    // algoritmo do checksum de cada bloco
+    public int getChecksum() {
+        return checksum;
+    }
+
+    public static Checksum newChecksum(int checksum) {
+        if (checksum != CHECKSUM_CRC32C) {
+            throw new IllegalArgumentException("Checksum de bloco desconhecido: " + checksum);
+        }
+        return new CRC32C();
+    }
+
+    // bytes gravados depois do cabeçalho: o ZIP mais o tamanho/CRC de cada bloco (e o bloco vazio do fim)
+    public long getContainerSize() {
+        if (!isChunked()) {
+            return payloadSize;
+        }
+        return containerSize(payloadSize, chunkSize) + (terminated ? CHUNK_FRAME_BYTES : 0);
+    }
+
+    public static long containerSize(long payloadSize, int chunkSize) {
+        long chunks = (payloadSize + chunkSize - 1) / chunkSize;
+        return payloadSize + chunks * CHUNK_FRAME_BYTES;
+    }
+
+    // maior ZIP cujos blocos (mais o bloco vazio do fim) cabem em containerBytes; o inverso de containerSize
+    public static long maxPayloadSize(long containerBytes, int chunkSize) {
+        long available = containerBytes - CHUNK_FRAME_BYTES;
+        if (available <= 0) {
+            return 0;
+        }
+        long fullChunks = available / (chunkSize + CHUNK_FRAME_BYTES);
+        long rest = available - fullChunks * (chunkSize + CHUNK_FRAME_BYTES);
+        return fullChunks * chunkSize + Math.max(0, rest - CHUNK_FRAME_BYTES);
+    }
+
+    // pixels no início da imagem ocupados pelo cabeçalho
+    public int getHeaderPixels() {
+        return version == VERSION_1 ? V1_HEADER_PIXELS : HEADER_PIXELS;
+    }
+
+    // visão da imagem no layout e na ordem de pixels em que o ZIP foi gravado
+    public CarrierRaster payloadLayout(CarrierRaster carrier) {
+        CarrierRaster layout = carrier.withLayout(bitsPerChannel, useAlpha);
+        return permutation == null ? layout : layout.withPermutation(permutation);
+    }
+
+    // posição de bit (no layout do ZIP) onde o ZIP começa
+    public long payloadStartBit(CarrierRaster payloadRaster) {
+        if (isLegacy()) {
+            return LEGACY_SIZE_BYTES * 8L;
+        }
+        return (long) getHeaderPixels() * payloadRaster.getBitsPerPixel();
+    }
+
+    // bits (com 1 LSB RGB) que o cabeçalho ocupa no início da imagem
+    public static long reservedBits() {
+        return (long) HEADER_PIXELS * CarrierRaster.CHANNELS;
+    }
+
+    public byte[] toBytes() {
+        if (isLegacy()) {
+            throw new IllegalStateException("O formato legado não pode ser regravado.");
+        }
+        if (version == VERSION_1) {
+            if (payloadSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Tamanho grande demais para o cabeçalho: " + payloadSize);
+            }
+            return ByteBuffer.allocate(V1_SIZE_BYTES)
+                    .putInt(MAGIC)
+                    .put((byte) version)
+                    .put((byte) bitsPerChannel)
+                    .put((byte) (useAlpha ? FLAG_ALPHA : 0))
+                    .put((byte) codec)
+                    .putInt((int) payloadSize)
+                    .array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE_BYTES)
+                .putInt(MAGIC)
+                .put((byte) version)
+                .put((byte) bitsPerChannel)
+                .put((byte) ((useAlpha ? FLAG_ALPHA : 0) | (isStriped() ? FLAG_STRIPED : 0) | (isScattered() ? FLAG_SCATTERED : 0)
+                        | (terminated ? FLAG_TERMINATED : 0)))
+                .put((byte) codec)
+                .putLong(payloadSize)
+                .putInt(chunkSize)
+                .putLong(setId)
+                .putShort((short) stripeIndex)
+                .putShort((short) stripeCount)
+                .put((byte) checksum)
+                .putInt(isScattered() ? permutation.getSalt() : 0);
+        buffer.putInt(CRC_OFFSET, crc(buffer.array()));
+        return buffer.array();
+    }
+
+    // com chave: o sal vai em claro no início e os outros bytes (na ordem de toBytes()) vão combinados com a máscara
+    private static byte[] mask(byte[] headerBytes, PixelPermutation permutation) {
+        byte[] mask = permutation.headerMask();
+        byte[] masked = new byte[SIZE_BYTES];
+        ByteBuffer.wrap(masked).putInt(permutation.getSalt());
+        System.arraycopy(headerBytes, 0, masked, 4, SALT_OFFSET);
+        System.arraycopy(headerBytes, SALT_OFFSET + 4, masked, SALT_OFFSET + 4, SIZE_BYTES - SALT_OFFSET - 4);
+        for (int i = 4; i < SIZE_BYTES; i++) {
+            masked[i] ^= mask[i - 4];
+        }
+        return masked;
+    }
+
+    private static byte[] unmask(byte[] masked, PixelPermutation permutation) {
+        byte[] mask = permutation.headerMask();
+        byte[] headerBytes = new byte[SIZE_BYTES];
+        for (int i = 4; i < SIZE_BYTES; i++) {
+            int j = i < SALT_OFFSET + 4 ? i - 4 : i;
+            headerBytes[j] = (byte) (masked[i] ^ mask[i - 4]);
+        }
+        ByteBuffer.wrap(headerBytes).putInt(SALT_OFFSET, permutation.getSalt());
+        return headerBytes;
+    }
+
+    private static int crc(byte[] headerBytes) {
+        CRC32 crc = new CRC32();
+        crc.update(headerBytes, 0, CRC_OFFSET);
+        return (int) crc.getValue();
+    }
+
+    // grava o cabeçalho no início da imagem (1 LSB RGB)
+    public void writeTo(CarrierRaster carrier) throws SteganographyException {
+        CarrierRaster base = carrier.withLayout(1, false);
+        if (base.getCapacityBits() < (long) getHeaderPixels() * CarrierRaster.CHANNELS) {
+            throw new SteganographyException("A imagem é muito pequena para ocultar até mesmo o cabeçalho. " +
+                    "Capacidade da imagem: " + base.getCapacityBits());
+        }
+        base.embedBits(new BitReader(isScattered() ? mask(toBytes(), permutation) : toBytes()), 0);
+    }
+
+    /**
+     * Lê o cabeçalho com a chave usada na ocultação: primeiro como cabeçalho mascarado por ela e, se não for,
+     * como um cabeçalho sem chave (a chave é ignorada nas imagens gravadas sem ela).
+     *
+     * @throws SteganographyException se a chave está errada (ou a imagem não contém dados ocultos).
+     */
+    public static StegoHeader readFrom(CarrierRaster carrier, String key) throws SteganographyException {
+        if (key == null || key.isEmpty()) {
+            return readFrom(carrier);
+        }
+        byte[] masked = readBytes(carrier.withLayout(1, false), SIZE_BYTES);
+        ByteBuffer buffer = ByteBuffer.wrap(masked);
+        PixelPermutation permutation = new PixelPermutation(key, buffer.getInt(0), HEADER_PIXELS,
+                (long) carrier.getWidth() * carrier.getHeight());
+        byte[] headerBytes = unmask(masked, permutation);
+        ByteBuffer unmasked = ByteBuffer.wrap(headerBytes);
+        if (unmasked.getInt(0) == MAGIC && headerBytes[LEGACY_SIZE_BYTES] == VERSION
+                && unmasked.getInt(CRC_OFFSET) == crc(headerBytes)) {
+            return parse(headerBytes, carrier, permutation);
+        }
+        // sem a chave não há como distinguir uma chave errada de uma imagem sem dados: só o "STEG" em claro indica
+        // que a imagem foi gravada sem chave
+        if (buffer.getInt(0) == MAGIC) {
+            return readFrom(carrier);
+        }
+        throw new SteganographyException("Chave incorreta, ou a imagem não contém dados ocultos.");
+    }
+
+    /**
+     * Lê o cabeçalho do início da imagem, reconhecendo o formato legado e as versões 1 e 2.
+     */
+    public static StegoHeader readFrom(CarrierRaster carrier) throws SteganographyException {
+        CarrierRaster base = carrier.withLayout(1, false);
+
+        BitWriter first = new BitWriter(LEGACY_SIZE_BYTES);
+        base.extractBits(first, 0);
+        if (first.hasRemaining()) {
+            throw new SteganographyException("Não foi possível extrair o cabeçalho completo da imagem. Imagem muito pequena ou corrompida.");
+        }
+        int firstInt = ByteBuffer.wrap(first.array()).getInt();
+        if (firstInt != MAGIC) {
+            if (firstInt < 0) {
+                throw new SteganographyException("Cabeçalho inválido: tamanho negativo (" + firstInt + "). A imagem não contém "
+                        + "dados ocultos (se foram ocultados com chave, informe a chave).");
+            }
+            return new StegoHeader(0, 1, false, CODEC_DEFLATE, firstInt, 0);
+        }
+
+        BitWriter versionByte = new BitWriter(1);
+        base.extractBits(versionByte, LEGACY_SIZE_BYTES * 8L);
+        int version = versionByte.array()[0] & 0xFF;
+        if (version != VERSION && version != VERSION_1) {
+            throw new SteganographyException("Versão de cabeçalho não suportada: " + version);
+        }
+
+        return parse(readBytes(base, version == VERSION_1 ? V1_SIZE_BYTES : SIZE_BYTES), carrier, null);
+    }
+
+    private static byte[] readBytes(CarrierRaster base, int length) throws SteganographyException {
+        BitWriter all = new BitWriter(length);
+        base.extractBits(all, 0);
+        if (all.hasRemaining()) {
+            throw new SteganographyException("Não foi possível extrair o cabeçalho completo da imagem. Imagem muito pequena ou corrompida.");
+        }
+        return all.array();
+    }
+
+    // bytes do cabeçalho da versão 1 ou 2 (já sem a máscara); permutation é a da chave, se ele estava mascarado
+    private static StegoHeader parse(byte[] bytes, CarrierRaster carrier, PixelPermutation permutation)
+            throws SteganographyException {
+        int version = bytes[LEGACY_SIZE_BYTES] & 0xFF;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, LEGACY_SIZE_BYTES + 1, bytes.length - LEGACY_SIZE_BYTES - 1);
+        int bitsPerChannel = buffer.get() & 0xFF;
+        int flags = buffer.get() & 0xFF;
+        int codec = buffer.get() & 0xFF;
+        long size = version == VERSION_1 ? buffer.getInt() : buffer.getLong();
+        int chunkSize = 0;
+        long setId = 0;
+        int stripeIndex = 0;
+        int stripeCount = 0;
+        int checksum = CHECKSUM_CRC32C;
+        if (version == VERSION) {
+            chunkSize = buffer.getInt();
+            setId = buffer.getLong();
+            stripeIndex = buffer.getShort() & 0xFFFF;
+            stripeCount = buffer.getShort() & 0xFFFF;
+            checksum = buffer.get() & 0xFF;
+            if (ByteBuffer.wrap(bytes).getInt(CRC_OFFSET) != crc(bytes)) {
+                throw new SteganographyException("Cabeçalho corrompido: o CRC não confere.");
+            }
+            if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+                throw new SteganographyException("Cabeçalho inválido: tamanho de bloco " + chunkSize + ".");
+            }
+            if (checksum != CHECKSUM_CRC32C) {
+                throw new SteganographyException("Cabeçalho inválido: checksum desconhecido (" + checksum + ").");
+            }
+            if ((flags & FLAG_STRIPED) == 0) {
+                stripeCount = 0;
+            } else if (stripeCount < 1 || stripeIndex >= stripeCount) {
+                throw new SteganographyException("Cabeçalho inválido: parte " + stripeIndex + " de " + stripeCount + ".");
+            }
+        }
+        // o cabeçalho mascarado é o único que indica dados espalhados
+        if (((flags & FLAG_SCATTERED) != 0) != (permutation != null)) {
+            throw new SteganographyException("Cabeçalho inválido: a marca de dados espalhados não confere.");
+        }
+
+        if (bitsPerChannel < 1 || bitsPerChannel > CarrierRaster.MAX_BITS_PER_CHANNEL) {
+            throw new SteganographyException("Cabeçalho inválido: " + bitsPerChannel + " bits por canal.");
+        }
+        boolean useAlpha = (flags & FLAG_ALPHA) != 0;
+        if (useAlpha && !carrier.hasAlpha()) {
+            throw new SteganographyException("Cabeçalho indica uso do canal alfa, mas a imagem não tem canal alfa.");
+        }
+        if (codec != CODEC_DEFLATE && codec != CODEC_STORED) {
+            throw new SteganographyException("Cabeçalho inválido: codec desconhecido (" + codec + ").");
+        }
+        if (size < 0) {
+            throw new SteganographyException("Cabeçalho inválido: tamanho negativo (" + size + ").");
+        }
+        return new StegoHeader(version, bitsPerChannel, useAlpha, codec, size, chunkSize, setId, stripeIndex, stripeCount,
+                checksum, permutation, version == VERSION && (flags & FLAG_TERMINATED) != 0);
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.steganography;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.example.steganography.exceptions.SteganographyException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Modo serviço: mantém a JVM (e os caminhos já compilados pelo JIT) no ar e atende ocultação, extração, consulta
+ * e verificação por HTTP local, com as imagens e os dados enviados no corpo das requisições.
+ * <pre>
+ * POST /embed?name=arquivo.txt[&amp;bits=N][&amp;alpha=true][&amp;key=...][&amp;pngLevel=N]
+ *      corpo: PNG portador seguido dos dados (cabeçalho X-Carrier-Length com o tamanho do PNG) -&gt; PNG gerado
+ * POST /extract[?key=...]   corpo: PNG com dados ocultos -&gt; ZIP oculto (application/zip)
+ * POST /probe               corpo: PNG -&gt; cabeçalho (texto)
+ * POST /verify[?key=...]    corpo: PNG -&gt; resultado da verificação (texto)
+ * </pre>
+ * Cada requisição roda em uma thread de plataforma própria: no JDK 21 o HttpServer lê o corpo dentro de um método
+ * synchronized, o que prende o carrier de uma thread virtual enquanto o cliente envia, e poucos clientes lentos
+ * parariam o serviço inteiro (inclusive o 503). No máximo maxInFlight requisições são processadas ao mesmo tempo;
+ * as demais esperam antes de ler o corpo (o TCP segura o cliente) e, depois de queueTimeoutMillis, recebem 503.
+ * Os corpos vão para arquivos temporários, apagados no fim de cada requisição, e passam de maxBodyBytes só com
+ * 413: pelo Content-Length antes de esperar a vaga, pelo X-Carrier-Length e, sem tamanho declarado (chunked), na
+ * cópia, que para no limite. As conexões são mantidas abertas
+ * entre requisições (keep-alive), então um cliente pode enviar várias em sequência pela mesma conexão.
+ */
+public class StegoServer {
+
+    private static final String CARRIER_LENGTH_HEADER = "X-Carrier-Length";
+    public static final long DEFAULT_MAX_BODY_BYTES = 256L * 1024 * 1024;
+
+    private final SteganographyUtils steganography;
+    private final Semaphore inFlight;
+    private final long queueTimeoutMillis;
+    private final int threadsPerRequest;
+    private final long maxBodyBytes;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path tempDirectory;
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param address            endereço de escuta; use o loopback para não expor o serviço na rede.
+     * @param maxInFlight        requisições processadas ao mesmo tempo (limita a memória das imagens carregadas).
+     * @param queueTimeoutMillis quanto uma requisição espera por uma vaga antes de receber 503.
+     */
+    public StegoServer(SteganographyUtils steganography, InetSocketAddress address, int maxInFlight, long queueTimeoutMillis)
+            throws SteganographyException {
+        this(steganography, address, maxInFlight, 1, queueTimeoutMillis);
+    }
+
+    /**
+     * @param threadsPerRequest entradas do ZIP comprimidas ao mesmo tempo em cada embed (o padrão do ZipOptions,
+     *                          um por núcleo, vezes maxInFlight requisições passaria do número de núcleos).
+     */
+    public StegoServer(SteganographyUtils steganography, InetSocketAddress address, int maxInFlight, int threadsPerRequest,
+            long queueTimeoutMillis) throws SteganographyException {
+        this(steganography, address, maxInFlight, threadsPerRequest, queueTimeoutMillis, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    /**
+     * @param maxBodyBytes maior corpo aceito (no embed, o PNG portador mais os dados); acima disso a resposta é 413
+     *                     e o corpo não é gravado em disco.
+     */
+    public StegoServer(SteganographyUtils steganography, InetSocketAddress address, int maxInFlight, int threadsPerRequest,
+            long queueTimeoutMillis, long maxBodyBytes) throws SteganographyException {
+        if (maxInFlight < 1 || threadsPerRequest < 1) {
+            throw new IllegalArgumentException("A quantidade de requisições simultâneas e de threads por requisição deve ser "
+                    + "pelo menos 1: " + maxInFlight + ", " + threadsPerRequest);
+        }
+        if (maxBodyBytes < 1) {
+            throw new IllegalArgumentException("O tamanho máximo do corpo deve ser positivo: " + maxBodyBytes);
+        }
+        this.maxBodyBytes = maxBodyBytes;
+        this.steganography = steganography;
+        this.inFlight = new Semaphore(maxInFlight, true);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.threadsPerRequest = threadsPerRequest;
+        try {
+            this.tempDirectory = Files.createTempDirectory("esteganografia-servico");
+            this.server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new SteganographyException("Não foi possível iniciar o serviço em " + address, e);
+        }
+        this.executor = Executors.newCachedThreadPool(Thread.ofPlatform().name("servico-", 0).daemon(true).factory());
+        server.setExecutor(executor);
+        server.createContext("/embed", exchange -> handle(exchange, this::embed));
+        server.createContext("/extract", exchange -> handle(exchange, this::extract));
+        server.createContext("/probe", exchange -> handle(exchange, this::probe));
+        server.createContext("/verify", exchange -> handle(exchange, this::verify));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Para de aceitar conexões, espera até delaySeconds pelas requisições em andamento e apaga os temporários.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.close();
+        deleteRecursively(tempDirectory);
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    // requisições atendidas (com sucesso ou com erro dos dados) e recusadas por falta de vaga
+    public long getServed() {
+        return served.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    // corpo maior que maxBodyBytes (declarado ou já recebido): vira 413
+    private static final class BodyTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BodyTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    // operação de um endpoint: lê a requisição, grava a resposta
+    private interface Operation {
+        void run(HttpExchange exchange, Map<String, String> params, Path workDirectory)
+                throws SteganographyException, IOException;
+    }
+
+    private void handle(HttpExchange exchange, Operation operation) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendText(exchange, 405, "Use POST.");
+                return;
+            }
+            Map<String, String> params;
+            try {
+                params = parseQuery(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage());
+                return;
+            }
+
+            // um corpo declarado grande demais é recusado sem ocupar vaga; o resto dele é descartado pelo HttpServer
+            String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+            try {
+                if (contentLength != null && Long.parseLong(contentLength.trim()) > maxBodyBytes) {
+                    sendText(exchange, 413, tooLarge("O corpo"));
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                sendText(exchange, 400, "Content-Length inválido: " + contentLength);
+                return;
+            }
+
+            // espera uma vaga antes de ler o corpo: enquanto isso o cliente fica parado no envio
+            boolean acquired;
+            try {
+                acquired = inFlight.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+            if (!acquired) {
+                rejected.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, 503, "Serviço ocupado; tente novamente.");
+                return;
+            }
+
+            Path workDirectory = null;
+            try {
+                workDirectory = Files.createTempDirectory(tempDirectory, "req");
+                operation.run(exchange, params, workDirectory);
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage());
+            } catch (BodyTooLargeException e) {
+                sendText(exchange, 413, e.getMessage());
+            } catch (SteganographyException e) {
+                sendText(exchange, 422, e.getMessage() + (e.getCause() != null ? " Causa: " + e.getCause().getMessage() : ""));
+            } catch (IOException e) {
+                // corpo interrompido, disco cheio...; se a resposta já começou, só resta fechar a conexão
+                if (exchange.getResponseCode() != -1) {
+                    throw e;
+                }
+                sendText(exchange, 500, "Erro de IO: " + e.getMessage());
+            } catch (RuntimeException e) {
+                sendText(exchange, 500, "Erro inesperado: " + e);
+            } finally {
+                inFlight.release();
+                served.incrementAndGet();
+                if (workDirectory != null) {
+                    deleteRecursively(workDirectory);
+                }
+            }
+        }
+    }
+
+    private void embed(HttpExchange exchange, Map<String, String> params, Path workDirectory)
+            throws SteganographyException, IOException {
+        String carrierLength = exchange.getRequestHeaders().getFirst(CARRIER_LENGTH_HEADER);
+        if (carrierLength == null) {
+            throw new IllegalArgumentException("Informe o tamanho do PNG portador no cabeçalho " + CARRIER_LENGTH_HEADER + ".");
+        }
+        long carrierBytes = Long.parseLong(carrierLength.trim());
+        if (carrierBytes < 0) {
+            throw new IllegalArgumentException("Tamanho do PNG portador inválido: " + carrierBytes);
+        }
+        if (carrierBytes > maxBodyBytes) {
+            throw new BodyTooLargeException(tooLarge("O PNG portador"));
+        }
+        String name = params.getOrDefault("name", "dados.bin");
+        if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.equals(".") || name.equals("..")) {
+            throw new IllegalArgumentException("Nome de arquivo inválido: " + name);
+        }
+
+        EmbedOptions options = EmbedOptions.defaults();
+        options.getZipOptions().setParallelism(threadsPerRequest);
+        if (params.containsKey("bits")) {
+            options.setBitsPerChannel(Integer.parseInt(params.get("bits")));
+        }
+        options.setUseAlpha(Boolean.parseBoolean(params.getOrDefault("alpha", "false")));
+        if (params.containsKey("key")) {
+            options.setKey(params.get("key"));
+        }
+        if (params.containsKey("pngLevel")) {
+            options.setPngOptions(PngWriteOptions.defaults().setCompressionLevel(Integer.parseInt(params.get("pngLevel"))));
+        }
+
+        // o corpo é o PNG portador e, logo depois, os dados a ocultar
+        Path carrier = workDirectory.resolve("portador.png");
+        Path payloadDirectory = Files.createDirectory(workDirectory.resolve("dados"));
+        Path payload = payloadDirectory.resolve(name);
+        try (InputStream body = exchange.getRequestBody()) {
+            try (OutputStream out = Files.newOutputStream(carrier)) {
+                if (copy(body, out, carrierBytes) != carrierBytes) {
+                    throw new IllegalArgumentException("O corpo terminou antes do fim do PNG portador.");
+                }
+            }
+            try (OutputStream out = Files.newOutputStream(payload)) {
+                copyAtMost(body, out, maxBodyBytes - carrierBytes, "O corpo");
+            }
+        }
+
+        Path output = workDirectory.resolve("saida.png");
+        StegoHeader header = steganography.embedData(carrier.toString(), payload.toString(), output.toString(), options);
+        exchange.getResponseHeaders().set("Content-Type", "image/png");
+        exchange.getResponseHeaders().set("X-Payload-Size", Long.toString(header.getPayloadSize()));
+        exchange.getResponseHeaders().set("X-Bits-Per-Channel", Integer.toString(header.getBitsPerChannel()));
+        exchange.sendResponseHeaders(200, Files.size(output));
+        try (OutputStream out = exchange.getResponseBody()) {
+            Files.copy(output, out);
+        }
+    }
+
+    private void extract(HttpExchange exchange, Map<String, String> params, Path workDirectory)
+            throws SteganographyException, IOException {
+        Path image = receiveImage(exchange, workDirectory);
+        // o ZIP vai para um temporário antes da resposta: um bloco corrompido no meio vira 422, não um 200 cortado
+        Path zip = workDirectory.resolve("dados.zip");
+        try (OutputStream out = Files.newOutputStream(zip)) {
+            steganography.extractZip(image.toString(), out, params.get("key"));
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/zip");
+        exchange.sendResponseHeaders(200, Files.size(zip));
+        try (OutputStream out = exchange.getResponseBody()) {
+            Files.copy(zip, out);
+        }
+    }
+
+    private void probe(HttpExchange exchange, Map<String, String> params, Path workDirectory)
+            throws SteganographyException, IOException {
+        StegoHeader header = steganography.probe(receiveImage(exchange, workDirectory).toString());
+        sendText(exchange, 200, describe(header));
+    }
+
+    private void verify(HttpExchange exchange, Map<String, String> params, Path workDirectory)
+            throws SteganographyException, IOException {
+        SteganographyUtils.VerifyResult result = steganography.verify(receiveImage(exchange, workDirectory).toString(),
+                params.get("key"));
+        sendText(exchange, 200, describe(result.getHeader())
+                + "\nblocos=" + result.getChunksChecked()
+                + "\narquivos=" + result.getZipEntries());
+    }
+
+    private Path receiveImage(HttpExchange exchange, Path workDirectory) throws IOException {
+        Path image = workDirectory.resolve("imagem.png");
+        try (InputStream body = exchange.getRequestBody(); OutputStream out = Files.newOutputStream(image)) {
+            copyAtMost(body, out, maxBodyBytes, "A imagem");
+        }
+        return image;
+    }
+
+    // copia o resto do corpo, parando assim que passar de limit bytes
+    private void copyAtMost(InputStream in, OutputStream out, long limit, String what) throws IOException {
+        if (copy(in, out, limit < Long.MAX_VALUE ? limit + 1 : limit) > limit) {
+            throw new BodyTooLargeException(tooLarge(what));
+        }
+    }
+
+    private String tooLarge(String what) {
+        return what + " passa do limite de " + maxBodyBytes + " bytes.";
+    }
+
+    // campo=valor, um por linha
+    private static String describe(StegoHeader header) {
+        return "tamanho=" + header.getPayloadSize()
+                + "\nversao=" + header.getVersion()
+                + "\nbitsPorCanal=" + header.getBitsPerChannel()
+                + "\nalfa=" + header.usesAlpha()
+                + "\ncodec=" + (header.getCodec() == StegoHeader.CODEC_STORED ? "stored" : "deflate")
+                + "\nchave=" + header.isScattered()
+                + "\ntamanhoMaximo=" + header.isTerminated()
+                + (header.isStriped() ? "\nparte=" + header.getStripeIndex() + "/" + header.getStripeCount()
+                        + "\nconjunto=" + Long.toHexString(header.getSetId()) : "");
+    }
+
+    private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long copied = 0;
+        while (copied < limit) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, limit - copied));
+            if (n < 0) {
+                break;
+            }
+            out.write(buffer, 0, n);
+            copied += n;
+        }
+        return copied;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Parâmetro sem valor: " + pair);
+            }
+            params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void deleteRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // temporário: o que sobrar fica para o sistema limpar
+        }
+    }
+}
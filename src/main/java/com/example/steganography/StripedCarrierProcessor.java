@@ -0,0 +1,533 @@
+package com.example.steganography;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+/**
+ * Divide um ZIP entre várias imagens, como um RAID-0: os blocos do ZIP (de até {@link EmbedOptions#getChunkSize()}
+ * bytes, menores se o ZIP for pequeno para a quantidade de imagens) são distribuídos em rodízio, o bloco j vai
+ * para a imagem j % n. Cada imagem recebe um cabeçalho da
+ * versão 2 com o identificador do conjunto, a sua posição e a quantidade de imagens, e os seus blocos com
+ * tamanho e CRC, como uma imagem avulsa.
+ * <p>
+ * O ZIP não passa pelo disco. Na ocultação ele é gerado direto nos pixels das imagens: o tamanho dos blocos e os
+ * bits por canal saem do tamanho máximo estimado do ZIP, e o tamanho de cada parte só vai para os cabeçalhos no
+ * fim, como no modo de uma imagem. Na extração cada imagem é lida em uma thread virtual, que deixa os próximos
+ * blocos dela prontos, e os blocos são entregues ao descompactador na ordem do ZIP. Como todas as imagens recebem
+ * blocos do começo ao fim do ZIP, o conjunto inteiro fica carregado na memória; maxConcurrent limita só quantas
+ * imagens são decodificadas ou gravadas ao mesmo tempo.
+ */
+public class StripedCarrierProcessor {
+
+    // blocos que cada parte deixa prontos, adiantados, na extração
+    private static final int PREFETCH_CHUNKS = 2;
+
+    private final ImageProcessor imageProcessor;
+    private final DataConverter dataConverter;
+    private final int maxConcurrent;
+
+    public StripedCarrierProcessor(ImageProcessor imageProcessor, DataConverter dataConverter) {
+        this(imageProcessor, dataConverter, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param maxConcurrent imagens decodificadas ou gravadas ao mesmo tempo.
+     */
+    public StripedCarrierProcessor(ImageProcessor imageProcessor, DataConverter dataConverter, int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("A quantidade de imagens simultâneas deve ser pelo menos 1: " + maxConcurrent);
+        }
+        this.imageProcessor = imageProcessor;
+        this.dataConverter = dataConverter;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * @param carrierPaths imagens originais, na ordem do conjunto.
+     * @param outputPaths  imagens de saída, uma para cada imagem original.
+     * @return cabeçalhos gravados, na ordem do conjunto.
+     */
+    public List<StegoHeader> embed(List<String> carrierPaths, String dataToHidePath, List<String> outputPaths,
+            EmbedOptions options) throws SteganographyException {
+        if (carrierPaths.isEmpty() || carrierPaths.size() != outputPaths.size()) {
+            throw new SteganographyException("Informe uma imagem de saída para cada imagem original ("
+                    + carrierPaths.size() + " originais, " + outputPaths.size() + " saídas).");
+        }
+        if (carrierPaths.size() > StegoHeader.MAX_STRIPES) {
+            throw new SteganographyException("No máximo " + StegoHeader.MAX_STRIPES + " imagens por conjunto.");
+        }
+        if (options.getKey() != null) {
+            throw new SteganographyException("Um conjunto de imagens não espalha os dados com chave.");
+        }
+        int count = carrierPaths.size();
+        long setId = ThreadLocalRandom.current().nextLong();
+
+        // confere todas as imagens pelo cabeçalho do PNG antes de carregar qualquer uma; o tamanho real das partes
+        // só é conhecido depois de gerar o ZIP, então o planejamento usa o máximo estimado
+        long estimatedSize = dataConverter.estimateZipSize(dataToHidePath);
+        int chunkSize = stripeUnit(estimatedSize, count, options.getChunkSize());
+        int[] bitsPerChannel = new int[count];
+        for (int i = 0; i < count; i++) {
+            bitsPerChannel[i] = planStripe(carrierPaths.get(i), stripeShare(estimatedSize, chunkSize, count, i), chunkSize,
+                    options);
+        }
+
+        List<Callable<EmbedStripe>> loads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            loads.add(() -> new EmbedStripe(CarrierRaster.wrap(imageProcessor.loadImage(carrierPaths.get(index))),
+                    bitsPerChannel[index], options.isUseAlpha(), chunkSize));
+        }
+        List<EmbedStripe> stripes = runAll(loads);
+
+        // o ZIP vai direto para os pixels, o bloco j na parte j % n
+        long zipSize;
+        try {
+            StripeOutputStream zipOut = new StripeOutputStream(stripes, chunkSize);
+            zipSize = dataConverter.zipFolder(dataToHidePath, zipOut, options.getZipOptions());
+            zipOut.close();
+        } catch (SteganographyException | IOException e) {
+            for (int i = 0; i < count; i++) {
+                EmbedStripe stripe = stripes.get(i);
+                if (stripe.pixels.hasOverflowed()) {
+                    throw new SteganographyException("A imagem " + carrierPaths.get(i) + " (parte " + i + " de " + count
+                            + ") é muito pequena para a sua parte dos dados. Bits necessários: mais de "
+                            + (stripe.pixels.getNextBit() - stripe.startBit) + ", Capacidade da imagem: "
+                            + (stripe.payloadRaster.getCapacityBits() - stripe.startBit));
+                }
+            }
+            if (e instanceof SteganographyException se) {
+                throw se;
+            }
+            throw new SteganographyException("Erro ao gravar o ZIP nas imagens.", e);
+        }
+
+        // com o tamanho de cada parte, grava os cabeçalhos e salva as imagens
+        List<Callable<StegoHeader>> saves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            saves.add(() -> {
+                EmbedStripe stripe = stripes.get(index);
+                StegoHeader header = new StegoHeader(bitsPerChannel[index], options.isUseAlpha(), options.getZipOptions().codec(),
+                        stripeShare(zipSize, chunkSize, count, index), chunkSize).asStripe(setId, index, count);
+                header.writeTo(stripe.carrier);
+                imageProcessor.saveImage(stripe.carrier.getImage(), outputPaths.get(index), options.getPngOptions());
+                return header;
+            });
+        }
+        return runAll(saves);
+    }
+
+    // bits por canal da parte (o escolhido nas opções ou o menor em que o tamanho estimado cabe), pelas dimensões
+    // da imagem; se o ZIP real não couber, a gravação para com o nome da imagem
+    private int planStripe(String carrierPath, long estimatedShare, int chunkSize, EmbedOptions options)
+            throws SteganographyException {
+        ImageProcessor.TopRows top = imageProcessor.loadTopRows(carrierPath, StegoHeader.HEADER_PIXELS);
+        int width = top.getImageWidth();
+        int height = top.getImageHeight();
+        boolean useAlpha = options.isUseAlpha();
+        if (useAlpha && !CarrierRaster.wrap(top.getRows()).hasAlpha()) {
+            throw new SteganographyException("A imagem não tem canal alfa: " + carrierPath);
+        }
+        if (CarrierRaster.capacityBits(width, height, 1, false) < StegoHeader.reservedBits()) {
+            throw new SteganographyException("A imagem é muito pequena para ocultar até mesmo o cabeçalho: " + carrierPath);
+        }
+
+        int bitsPerChannel = options.getBitsPerChannel();
+        if (bitsPerChannel == EmbedOptions.AUTO) {
+            long containerSize = StegoHeader.containerSize(estimatedShare, chunkSize);
+            bitsPerChannel = CarrierRaster.MAX_BITS_PER_CHANNEL;
+            for (int bits = 1; bits < CarrierRaster.MAX_BITS_PER_CHANNEL; bits++) {
+                if (payloadEndBit(bits, useAlpha, containerSize) <= CarrierRaster.capacityBits(width, height, bits, useAlpha)) {
+                    bitsPerChannel = bits;
+                    break;
+                }
+            }
+        }
+        return bitsPerChannel;
+    }
+
+    /**
+     * Junta as partes de um conjunto (em qualquer ordem) e descompacta o ZIP no diretório de saída.
+     *
+     * @return cabeçalhos lidos, na ordem do conjunto.
+     */
+    public List<StegoHeader> extract(List<String> imagePaths, String outputDirectory) throws SteganographyException {
+        if (imagePaths.isEmpty()) {
+            throw new SteganographyException("Nenhuma imagem informada.");
+        }
+
+        // primeiro só os cabeçalhos, para conferir o conjunto antes de decodificar as imagens inteiras
+        StegoHeader[] byIndex = null;
+        List<String> pathsByIndex = new ArrayList<>(imagePaths);
+        for (String path : imagePaths) {
+            ImageProcessor.TopRows top = imageProcessor.loadTopRows(path, StegoHeader.HEADER_PIXELS);
+            StegoHeader header = StegoHeader.readFrom(CarrierRaster.wrap(top.getRows()));
+            if (!header.isStriped()) {
+                throw new SteganographyException("A imagem não faz parte de um conjunto: " + path);
+            }
+            if (byIndex == null) {
+                if (header.getStripeCount() != imagePaths.size()) {
+                    throw new SteganographyException("O conjunto tem " + header.getStripeCount() + " imagens, mas foram informadas "
+                            + imagePaths.size() + ".");
+                }
+                byIndex = new StegoHeader[header.getStripeCount()];
+            }
+            StegoHeader first = firstNonNull(byIndex);
+            if (first != null && (header.getSetId() != first.getSetId() || header.getStripeCount() != first.getStripeCount()
+                    || header.getChunkSize() != first.getChunkSize())) {
+                throw new SteganographyException("A imagem é de outro conjunto: " + path);
+            }
+            if (byIndex[header.getStripeIndex()] != null) {
+                throw new SteganographyException("Parte " + header.getStripeIndex() + " informada duas vezes: " + path);
+            }
+            byIndex[header.getStripeIndex()] = header;
+            pathsByIndex.set(header.getStripeIndex(), path);
+        }
+
+        int count = byIndex.length;
+        int chunkSize = byIndex[0].getChunkSize();
+        long zipSize = 0;
+        for (StegoHeader header : byIndex) {
+            zipSize += header.getPayloadSize();
+        }
+        for (int i = 0; i < count; i++) {
+            if (byIndex[i].getPayloadSize() != stripeShare(zipSize, chunkSize, count, i)) {
+                throw new SteganographyException("Tamanhos das partes inconsistentes: parte " + i + " com "
+                        + byIndex[i].getPayloadSize() + " bytes.");
+            }
+        }
+
+        // cada parte é lida em uma thread virtual e entrega os seus blocos, na ordem, ao descompactador
+        StripeInputStream zipIn = new StripeInputStream(count, chunkSize, zipSize);
+        Semaphore slots = new Semaphore(maxConcurrent);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                String path = pathsByIndex.get(i);
+                executor.submit(() -> readStripe(zipIn, index, path, slots));
+            }
+            try {
+                dataConverter.unzipToFolder(zipIn, outputDirectory);
+            } catch (SteganographyException e) {
+                SteganographyException failure = zipIn.getFailure();
+                throw failure != null ? failure : e;
+            } finally {
+                executor.shutdownNow(); // libera as partes que ainda esperam para entregar blocos
+            }
+        }
+        return List.of(byIndex);
+    }
+
+    // lê os blocos da parte index e os entrega ao zipIn; um erro é repassado para quem lê o zipIn
+    private void readStripe(StripeInputStream zipIn, int index, String imagePath, Semaphore slots) {
+        try {
+            CarrierRaster carrier;
+            slots.acquire();
+            try {
+                carrier = CarrierRaster.wrap(imageProcessor.loadImage(imagePath));
+            } finally {
+                slots.release();
+            }
+            StegoHeader header = StegoHeader.readFrom(carrier);
+            CarrierRaster payloadRaster = header.payloadLayout(carrier);
+            long startBit = header.payloadStartBit(payloadRaster);
+            if (startBit + header.getContainerSize() * 8 > payloadRaster.getCapacityBits()) {
+                throw new SteganographyException("Não foi possível extrair a parte " + index
+                        + ". Imagem muito pequena ou dados corrompidos: " + imagePath);
+            }
+
+            int chunkSize = header.getChunkSize();
+            try (ChunkedInputStream in = new ChunkedInputStream(
+                    new LsbInputStream(payloadRaster, startBit, header.getContainerSize()), header)) {
+                for (long remaining = header.getPayloadSize(); remaining > 0; ) {
+                    int length = (int) Math.min(chunkSize, remaining);
+                    byte[] chunk = zipIn.takeBuffer(index);
+                    if (in.readNBytes(chunk, 0, length) != length) {
+                        throw new SteganographyException("A parte " + index + " terminou antes do esperado.");
+                    }
+                    zipIn.deliver(index, chunk);
+                    remaining -= length;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // a extração terminou (ou falhou) e não espera mais blocos
+        } catch (SteganographyException e) {
+            zipIn.fail(index, e);
+        } catch (IOException | RuntimeException | Error e) {
+            zipIn.fail(index, new SteganographyException("Erro ao ler a parte " + index + " (" + imagePath + "): "
+                    + e.getMessage(), e));
+        }
+    }
+
+    // bytes do ZIP que ficam na imagem index: blocos index, index + count, index + 2 * count...
+    static long stripeShare(long zipSize, int chunkSize, int count, int index) {
+        long chunks = (zipSize + chunkSize - 1) / chunkSize;
+        if (index >= chunks) {
+            return 0;
+        }
+        long mine = (chunks - 1 - index) / count + 1;
+        long share = mine * chunkSize;
+        if ((chunks - 1) % count == index) {
+            share -= chunks * chunkSize - zipSize; // o último bloco do ZIP é menor
+        }
+        return share;
+    }
+
+    private static long payloadEndBit(int bitsPerChannel, boolean useAlpha, long containerSize) {
+        long bitsPerPixel = (long) bitsPerChannel * (useAlpha ? CarrierRaster.CHANNELS + 1 : CarrierRaster.CHANNELS);
+        return StegoHeader.HEADER_PIXELS * bitsPerPixel + containerSize * 8;
+    }
+
+    // tamanho dos blocos do conjunto: o das opções, mas pequeno o bastante para que todas as imagens recebam
+    // uma parte parecida mesmo com poucos blocos
+    static int stripeUnit(long zipSize, int count, int chunkSize) {
+        long even = (zipSize + count - 1) / count;
+        return (int) Math.max(1, Math.min(chunkSize, even));
+    }
+
+    // executa as tarefas em threads virtuais, no máximo maxConcurrent ao mesmo tempo
+    private <T> List<T> runAll(List<Callable<T>> tasks) throws SteganographyException {
+        Semaphore slots = new Semaphore(maxConcurrent);
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Callable<T> task : tasks) {
+                slots.acquireUninterruptibly();
+                futures.add(executor.submit(() -> {
+                    try {
+                        return task.call();
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SteganographyException se) {
+                    throw se;
+                }
+                throw new SteganographyException("Erro ao processar uma das imagens: " + cause, cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SteganographyException("Processamento interrompido.", e);
+            }
+        }
+        return results;
+    }
+
+    private static StegoHeader firstNonNull(StegoHeader[] headers) {
+        for (StegoHeader header : headers) {
+            if (header != null) {
+                return header;
+            }
+        }
+        return null;
+    }
+
+    // parte da ocultação: a imagem carregada e os blocos que vão para ela
+    private static final class EmbedStripe {
+        final CarrierRaster carrier;
+        final CarrierRaster payloadRaster;
+        final long startBit;
+        final LsbOutputStream pixels;
+        final ChunkedOutputStream chunks;
+
+        EmbedStripe(CarrierRaster carrier, int bitsPerChannel, boolean useAlpha, int chunkSize) {
+            this.carrier = carrier;
+            this.payloadRaster = carrier.withLayout(bitsPerChannel, useAlpha);
+            this.startBit = (long) StegoHeader.HEADER_PIXELS * payloadRaster.getBitsPerPixel();
+            this.pixels = new LsbOutputStream(payloadRaster, startBit);
+            this.chunks = new ChunkedOutputStream(pixels, chunkSize);
+        }
+    }
+
+    // distribui o ZIP entre as partes: chunkSize bytes para a parte 0, os seguintes para a 1, e assim por diante
+    private static final class StripeOutputStream extends OutputStream {
+        private final List<EmbedStripe> stripes;
+        private final int chunkSize;
+        private int current;
+        private int written; // bytes do bloco atual
+
+        StripeOutputStream(List<EmbedStripe> stripes, int chunkSize) {
+            this.stripes = stripes;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            stripes.get(current).chunks.write(b);
+            advance(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, chunkSize - written);
+                stripes.get(current).chunks.write(b, off, n);
+                off += n;
+                len -= n;
+                advance(n);
+            }
+        }
+
+        private void advance(int n) {
+            written += n;
+            if (written == chunkSize) {
+                written = 0;
+                current = (current + 1) % stripes.size();
+            }
+        }
+
+        // grava o último bloco de cada parte
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (EmbedStripe stripe : stripes) {
+                try {
+                    stripe.chunks.close();
+                } catch (IOException e) {
+                    if (error == null) {
+                        error = e;
+                    } else {
+                        error.addSuppressed(e);
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    // entrega os blocos das partes na ordem do ZIP (o bloco j vem da parte j % n); cada parte tem
+    // PREFETCH_CHUNKS buffers, que a thread dela preenche enquanto os anteriores são descompactados
+    private static final class StripeInputStream extends InputStream {
+        private static final byte[] FAILED = new byte[0];
+
+        private final List<BlockingQueue<byte[]>> ready;
+        private final List<BlockingQueue<byte[]>> free;
+        private final int chunkSize;
+        private final long zipSize;
+        private volatile SteganographyException failure;
+        private long position; // bytes do ZIP já entregues
+        private byte[] chunk;
+        private int chunkStripe;
+        private int chunkPosition;
+        private int chunkLimit;
+
+        StripeInputStream(int count, int chunkSize, long zipSize) {
+            this.chunkSize = chunkSize;
+            this.zipSize = zipSize;
+            this.ready = new ArrayList<>(count);
+            this.free = new ArrayList<>(count);
+            int bufferSize = (int) Math.min(chunkSize, Math.max(zipSize, 1));
+            for (int i = 0; i < count; i++) {
+                ready.add(new ArrayBlockingQueue<>(PREFETCH_CHUNKS));
+                BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(PREFETCH_CHUNKS);
+                for (int j = 0; j < PREFETCH_CHUNKS; j++) {
+                    buffers.add(new byte[bufferSize]);
+                }
+                free.add(buffers);
+            }
+        }
+
+        // buffer livre da parte index (espera o descompactador liberar um)
+        byte[] takeBuffer(int index) throws InterruptedException {
+            return free.get(index).take();
+        }
+
+        void deliver(int index, byte[] chunk) throws InterruptedException {
+            ready.get(index).put(chunk);
+        }
+
+        void fail(int index, SteganographyException e) {
+            if (failure == null) {
+                failure = e;
+            }
+            try {
+                ready.get(index).put(FAILED);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // erro da primeira parte que falhou, ou null
+        SteganographyException getFailure() {
+            return failure;
+        }
+
+        // false quando o ZIP acabou
+        private boolean fill() throws IOException {
+            if (chunkPosition < chunkLimit) {
+                return true;
+            }
+            if (position == zipSize) {
+                return false;
+            }
+            if (chunk != null) {
+                free.get(chunkStripe).add(chunk);
+                chunk = null;
+            }
+            chunkStripe = (int) (position / chunkSize % ready.size());
+            byte[] next;
+            try {
+                next = ready.get(chunkStripe).take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Extração interrompida.");
+            }
+            if (next == FAILED) {
+                throw new IOException(failure.getMessage(), failure);
+            }
+            chunk = next;
+            chunkPosition = 0;
+            chunkLimit = (int) Math.min(chunkSize, zipSize - position);
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            position++;
+            return chunk[chunkPosition++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, chunkLimit - chunkPosition);
+            System.arraycopy(chunk, chunkPosition, b, off, n);
+            chunkPosition += n;
+            position += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.steganography;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+/**
+ * Ocultação/extração por faixas de linhas, para imagens maiores que o heap: o PNG é lido linha a linha pelo
+ * {@link PngRowReader}, os bits são gravados/lidos em uma faixa por vez e as linhas já processadas são
+ * regravadas pelo {@link PngEncoder.RowWriter}. A memória usada depende do tamanho da faixa, não da imagem.
+ * <p>
+ * O formato gravado é o mesmo do modo normal, então as imagens são intercambiáveis entre os dois modos.
+ * Como o cabeçalho fica nas primeiras linhas, que precisam ser gravadas antes de o ZIP ficar pronto, ele guarda
+ * só o tamanho máximo estimado do ZIP e os blocos terminam num bloco vazio ({@link StegoHeader#isTerminated()}):
+ * o ZIP é gravado direto nas faixas, sem arquivo temporário.
+ */
+public class TiledCarrierProcessor {
+
+    public static final int DEFAULT_STRIP_BYTES = 8 * 1024 * 1024;
+
+    private final DataConverter dataConverter;
+    private final int stripBytes;
+
+    public TiledCarrierProcessor(DataConverter dataConverter) {
+        this(dataConverter, DEFAULT_STRIP_BYTES);
+    }
+
+    /**
+     * @param stripBytes memória aproximada de cada faixa de pixels (4 bytes por pixel).
+     */
+    public TiledCarrierProcessor(DataConverter dataConverter, int stripBytes) {
+        if (stripBytes < 1) {
+            throw new IllegalArgumentException("O tamanho da faixa deve ser positivo: " + stripBytes);
+        }
+        this.dataConverter = dataConverter;
+        this.stripBytes = stripBytes;
+    }
+
+    // linhas por faixa: múltiplo de 8 (toda faixa termina em um byte inteiro em qualquer layout)
+    // e com pelo menos os pixels do cabeçalho na primeira
+    int stripRows(int width) {
+        long rows = Math.max(stripBytes / (4L * width), ((long) StegoHeader.HEADER_PIXELS + width - 1) / width);
+        rows = (rows + 7) / 8 * 8;
+        return (int) Math.min(rows, Integer.MAX_VALUE - 7);
+    }
+
+    public StegoHeader embed(String originalImagePath, String dataToHidePath, String outputImagePath, EmbedOptions options)
+            throws SteganographyException {
+        // a permutação espalha os dados pela imagem inteira, o que não combina com a leitura em faixas
+        if (options.getKey() != null) {
+            throw new SteganographyException("O modo por faixas não espalha os dados com chave; use a ocultação normal.");
+        }
+        long estimatedSize = dataConverter.estimateZipSize(dataToHidePath);
+        try (PngRowReader reader = openReader(originalImagePath)) {
+            return embed(reader, dataToHidePath, estimatedSize, outputImagePath, options);
+        } catch (IOException e) {
+            throw new SteganographyException("Erro de IO na ocultação por faixas.", e);
+        }
+    }
+
+    private StegoHeader embed(PngRowReader reader, String dataToHidePath, long estimatedSize, String outputImagePath,
+            EmbedOptions options) throws SteganographyException, IOException {
+        long estimatedContainer = StegoHeader.containerSize(estimatedSize, options.getChunkSize()) + StegoHeader.CHUNK_FRAME_BYTES;
+        int width = reader.getWidth();
+        int height = reader.getHeight();
+        boolean alpha = reader.hasAlpha();
+        if (options.isUseAlpha() && !alpha) {
+            throw new SteganographyException("A imagem não tem canal alfa.");
+        }
+        if (CarrierRaster.capacityBits(width, height, 1, false) < StegoHeader.reservedBits()) {
+            throw new SteganographyException("A imagem é muito pequena para ocultar até mesmo o cabeçalho.");
+        }
+
+        // como no modo normal, o automático usa o tamanho máximo estimado; se não couber em nenhum, tenta com o máximo
+        int bitsPerChannel = options.getBitsPerChannel();
+        if (bitsPerChannel == EmbedOptions.AUTO) {
+            bitsPerChannel = CarrierRaster.MAX_BITS_PER_CHANNEL;
+            for (int bits = 1; bits < CarrierRaster.MAX_BITS_PER_CHANNEL; bits++) {
+                if (payloadEndBit(width, bits, options.isUseAlpha(), estimatedContainer)
+                        <= CarrierRaster.capacityBits(width, height, bits, options.isUseAlpha())) {
+                    bitsPerChannel = bits;
+                    break;
+                }
+            }
+        }
+        // o cabeçalho guarda o menor entre o estimado e o que cabe na imagem; passar disso é falta de espaço
+        long capacityBytes = (CarrierRaster.capacityBits(width, height, bitsPerChannel, options.isUseAlpha())
+                - payloadEndBit(width, bitsPerChannel, options.isUseAlpha(), 0)) / 8;
+        long maxPayload = Math.min(estimatedSize, StegoHeader.maxPayloadSize(capacityBytes, options.getChunkSize()));
+        StegoHeader header = new StegoHeader(bitsPerChannel, options.isUseAlpha(), options.getZipOptions().codec(), maxPayload,
+                options.getChunkSize()).terminated();
+
+        Path outputPath = Paths.get(outputImagePath);
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+        boolean complete = false;
+        try (FileChannel channel = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1024 * 1024);
+                PngEncoder.RowWriter writer = new PngEncoder.RowWriter(out, width, height, alpha, options.getPngOptions())) {
+            StripOutputStream pixels = new StripOutputStream(reader, writer, header, stripRows(width));
+            try {
+                ChunkedOutputStream chunks = new ChunkedOutputStream(pixels, header.getChunkSize(), header.getChecksum(), true);
+                dataConverter.zipFolder(dataToHidePath, chunks, options.getZipOptions());
+                chunks.close(); // bloco vazio do fim e as linhas que sobraram
+            } catch (SteganographyException | IOException e) {
+                if (pixels.overflowed) {
+                    throw new SteganographyException("A imagem é muito pequena para ocultar os dados. Bytes disponíveis: "
+                            + header.getContainerSize() + " (" + bitsPerChannel + " bit(s) por canal).");
+                }
+                throw e;
+            }
+            complete = true;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(outputPath); // não deixa um PNG truncado no lugar da saída
+            }
+        }
+        return header;
+    }
+
+    private static long payloadEndBit(int width, int bitsPerChannel, boolean useAlpha, long containerSize) {
+        long bitsPerPixel = (long) bitsPerChannel * (useAlpha ? CarrierRaster.CHANNELS + 1 : CarrierRaster.CHANNELS);
+        return StegoHeader.HEADER_PIXELS * bitsPerPixel + containerSize * 8;
+    }
+
+    public StegoHeader extract(String stegoImagePath, String outputDirectory) throws SteganographyException {
+        try (PngRowReader reader = openReader(stegoImagePath)) {
+            StripInputStream zipIn = new StripInputStream(reader, stripRows(reader.getWidth()));
+            StegoHeader header = zipIn.header;
+            SteganographyUtils.checkNotStriped(header, stegoImagePath);
+            if (header.isScattered()) {
+                throw new SteganographyException("Os dados foram espalhados pela imagem com uma chave; use a extração normal,"
+                        + " com a chave: " + stegoImagePath);
+            }
+            dataConverter.unzipToFolder(header.isChunked()
+                    ? new ChunkedInputStream(zipIn, header) : zipIn, outputDirectory);
+            return header;
+        } catch (IOException e) {
+            throw new SteganographyException("Erro de IO na extração por faixas: " + stegoImagePath, e);
+        }
+    }
+
+    /**
+     * Confere os dados ocultos lendo a imagem faixa a faixa, sem gravar nada. Só as linhas até o fim dos dados
+     * são descomprimidas, e a leitura para no primeiro bloco corrompido.
+     */
+    public SteganographyUtils.VerifyResult verify(String stegoImagePath) throws SteganographyException {
+        try (PngRowReader reader = openReader(stegoImagePath)) {
+            StripInputStream payload = new StripInputStream(reader, stripRows(reader.getWidth()));
+            if (payload.header.isScattered()) {
+                throw new SteganographyException("Os dados foram espalhados pela imagem com uma chave; informe a chave.");
+            }
+            return SteganographyUtils.verifyPayload(payload.header, payload, dataConverter);
+        } catch (IOException e) {
+            throw new SteganographyException("Erro de IO na verificação: " + stegoImagePath, e);
+        }
+    }
+
+    // true se a imagem pode ser lida linha a linha (PNG RGB/RGBA de 8 bits sem entrelaçamento)
+    static boolean canRead(String imagePath) {
+        Path path = Paths.get(imagePath);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try (PngRowReader reader = new PngRowReader(new BufferedInputStream(Files.newInputStream(path), 1024))) {
+            return reader.isSupported();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static PngRowReader openReader(String imagePath) throws SteganographyException, IOException {
+        Path path = Paths.get(imagePath);
+        if (!Files.isRegularFile(path)) {
+            throw new SteganographyException("Arquivo de imagem não encontrado: " + imagePath);
+        }
+        PngRowReader reader = new PngRowReader(new BufferedInputStream(Files.newInputStream(path), 256 * 1024));
+        if (!reader.isSupported()) {
+            reader.close();
+            throw new SteganographyException("O modo por faixas só aceita PNG RGB/RGBA de 8 bits sem entrelaçamento: " + imagePath);
+        }
+        return reader;
+    }
+
+    // recebe os bytes gravados depois do cabeçalho e grava cada faixa assim que ela se completa; no fechamento,
+    // grava a faixa atual e copia as linhas que sobraram
+    private static final class StripOutputStream extends OutputStream {
+        private final PngRowReader reader;
+        private final PngEncoder.RowWriter writer;
+        private final StegoHeader header;
+        private final int stripRows;
+        private final byte[] row;
+        private long remaining; // bytes que ainda cabem no que o cabeçalho reservou
+        private long stripFirstBit;
+        private CarrierRaster strip;
+        private CarrierRaster layout;
+        private long localStart;
+        private byte[] buffer = new byte[0];
+        private int position;
+        private int limit;
+        private boolean overflowed;
+        private boolean failed; // depois de um erro, o close() não grava mais nada
+        private boolean closed;
+
+        StripOutputStream(PngRowReader reader, PngEncoder.RowWriter writer, StegoHeader header, int stripRows)
+                throws SteganographyException, IOException {
+            this.reader = reader;
+            this.writer = writer;
+            this.header = header;
+            this.stripRows = stripRows;
+            this.row = writer.newRowBuffer();
+            this.remaining = header.getContainerSize();
+            readStrip();
+            header.writeTo(strip);
+        }
+
+        private void readStrip() throws SteganographyException, IOException {
+            strip = CarrierRaster.wrap(reader.readRows(Math.min(stripRows, reader.getHeight() - reader.getRowsRead())));
+            layout = header.payloadLayout(strip);
+            localStart = Math.max(0, header.payloadStartBit(layout) - stripFirstBit);
+            long stripBits = layout.getCapacityBits();
+            limit = localStart < stripBits ? (int) Math.min(remaining, (stripBits - localStart) / 8) : 0;
+            position = 0;
+            remaining -= limit;
+            stripFirstBit += stripBits;
+        }
+
+        // grava os bytes recebidos na faixa atual e regrava as linhas dela
+        private void writeStrip() throws IOException {
+            if (position > 0) {
+                layout.embedBits(new BitReader(buffer, 0, position), localStart);
+            }
+            for (int i = 0; i < strip.getHeight(); i++) {
+                strip.copyRowSamples(i, row, reader.hasAlpha());
+                writer.writeRow(row);
+            }
+        }
+
+        private void nextStrip() throws IOException {
+            writeStrip();
+            if (remaining == 0 || reader.getRowsRead() == reader.getHeight()) {
+                overflowed = true;
+                throw new IOException("Os dados passaram do espaço reservado na imagem.");
+            }
+            try {
+                readStrip();
+            } catch (SteganographyException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                while (len > 0) {
+                    if (position == limit) {
+                        nextStrip();
+                    }
+                    if (buffer.length < limit) {
+                        buffer = new byte[limit];
+                    }
+                    int n = Math.min(len, limit - position);
+                    System.arraycopy(b, off, buffer, position, n);
+                    position += n;
+                    off += n;
+                    len -= n;
+                }
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed || failed) {
+                return;
+            }
+            closed = true;
+            writeStrip();
+            try {
+                while (reader.getRowsRead() < reader.getHeight()) {
+                    readStrip(); // depois do fim dos dados: position fica em 0 e as linhas vão como estão
+                    writeStrip();
+                }
+            } catch (SteganographyException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+    }
+
+    // bytes gravados depois do cabeçalho (ZIP, em blocos na versão 2) lidos faixa a faixa, sob demanda
+    private static final class StripInputStream extends InputStream {
+        private final PngRowReader reader;
+        private final int stripRows;
+        private StegoHeader header;
+        private long stripFirstBit;
+        private long remaining;
+        private byte[] buffer = new byte[0];
+        private int position;
+        private int limit;
+
+        StripInputStream(PngRowReader reader, int stripRows) throws SteganographyException, IOException {
+            this.reader = reader;
+            this.stripRows = stripRows;
+            readStrip();
+        }
+
+        private void readStrip() throws SteganographyException, IOException {
+            int rows = Math.min(stripRows, reader.getHeight() - reader.getRowsRead());
+            BufferedImage image = reader.readRows(rows);
+            CarrierRaster strip = CarrierRaster.wrap(image);
+            if (header == null) {
+                header = StegoHeader.readFrom(strip);
+                CarrierRaster layout = header.payloadLayout(strip);
+                long capacityBits = CarrierRaster.capacityBits(reader.getWidth(), reader.getHeight(),
+                        header.getBitsPerChannel(), header.usesAlpha());
+                if (header.payloadStartBit(layout) + header.getContainerSize() * 8 > capacityBits) {
+                    throw new SteganographyException("Não foi possível extrair todos os dados. Imagem muito pequena ou dados corrompidos"
+                            + (header.isLegacy() ? " (se foram ocultados com chave, informe a chave)." : "."));
+                }
+                remaining = header.getContainerSize();
+            }
+            CarrierRaster layout = header.payloadLayout(strip);
+            long localStart = Math.max(0, header.payloadStartBit(layout) - stripFirstBit);
+            long stripBits = layout.getCapacityBits();
+            int count = localStart < stripBits ? (int) Math.min(remaining, (stripBits - localStart) / 8) : 0;
+            if (buffer.length < count) {
+                buffer = new byte[count];
+            }
+            if (count > 0) {
+                layout.extractBits(new BitWriter(buffer, 0, count), localStart);
+            }
+            position = 0;
+            limit = count;
+            remaining -= count;
+            stripFirstBit += stripBits;
+        }
+
+        // false quando o ZIP acabou
+        private boolean fill() throws IOException {
+            while (position == limit) {
+                if (remaining == 0) {
+                    return false;
+                }
+                try {
+                    readStrip();
+                } catch (SteganographyException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? buffer[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - position);
+            System.arraycopy(buffer, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
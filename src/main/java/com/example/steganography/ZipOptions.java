@@ -0,0 +1,68 @@
+package com.example.steganography;
+
+import java.util.zip.Deflater;
+
+/**
+ * Opções da compactação do payload: nível do deflate (0 = STORED, sem compressão), se arquivos que já são
+ * comprimidos (jpg, mp4, zip...) vão sem compressão e quantas entradas são comprimidas ao mesmo tempo.
+ */
+public class ZipOptions {
+
+    public static final int STORED = Deflater.NO_COMPRESSION;
+
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private boolean storeCompressedFiles = true;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public static ZipOptions defaults() {
+        return new ZipOptions();
+    }
+
+    // nenhuma entrada comprimida: o mais rápido, e o ZIP fica do tamanho dos arquivos
+    public static ZipOptions stored() {
+        return new ZipOptions().setCompressionLevel(STORED);
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @param compressionLevel de 0 ({@link #STORED}) a 9, ou Deflater.DEFAULT_COMPRESSION (-1).
+     */
+    public ZipOptions setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Nível de compressão do ZIP deve estar entre -1 e 9: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    public boolean isStoreCompressedFiles() {
+        return storeCompressedFiles;
+    }
+
+    // grava sem compressão os arquivos que já são comprimidos (pela extensão ou pelos primeiros bytes)
+    public ZipOptions setStoreCompressedFiles(boolean storeCompressedFiles) {
+        this.storeCompressedFiles = storeCompressedFiles;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // entradas comprimidas ao mesmo tempo; 1 = sequencial
+    public ZipOptions setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("O paralelismo deve ser pelo menos 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    // codec gravado no cabeçalho da imagem
+    public int codec() {
+        return compressionLevel == STORED ? StegoHeader.CODEC_STORED : StegoHeader.CODEC_DEFLATE;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.steganography.metrics;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Acumula as medições em memória, com um histograma de durações por etapa (faixas em potências de 2), e
+ * imprime um resumo no final do lote. Os percentis são aproximados pelo limite superior da faixa.
+ */
+public final class HistogramInstrumentation implements Instrumentation {
+
+    private static final int BUCKETS = 64;
+
+    private static final class StageStats {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder bytes = new LongAdder();
+        final LongAdder bits = new LongAdder();
+        final LongAdder allocated = new LongAdder();
+        final LongAdder allocationSamples = new LongAdder();
+    }
+
+    private final Map<Stage, StageStats> stats = new EnumMap<>(Stage.class);
+
+    public HistogramInstrumentation() {
+        for (Stage stage : Stage.values()) {
+            stats.put(stage, new StageStats());
+        }
+    }
+
+    @Override
+    public void record(Stage stage, long nanos, long bytes, long bits, long allocatedBytes) {
+        StageStats s = stats.get(stage);
+        s.buckets.incrementAndGet(bucket(nanos));
+        s.count.increment();
+        s.totalNanos.add(nanos);
+        s.maxNanos.accumulate(nanos);
+        s.bytes.add(bytes);
+        s.bits.add(bits);
+        if (allocatedBytes >= 0) {
+            s.allocated.add(allocatedBytes);
+            s.allocationSamples.increment();
+        }
+    }
+
+    public long getCount(Stage stage) {
+        return stats.get(stage).count.sum();
+    }
+
+    public long getTotalNanos(Stage stage) {
+        return stats.get(stage).totalNanos.sum();
+    }
+
+    // duração (ns) abaixo da qual ficam pelo menos a fração indicada das medições
+    public long percentileNanos(Stage stage, double fraction) {
+        StageStats s = stats.get(stage);
+        long count = s.count.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += s.buckets.get(i);
+            if (seen >= target) {
+                return Math.min(upperBound(i), s.maxNanos.get());
+            }
+        }
+        return s.maxNanos.get();
+    }
+
+    public void report(PrintStream out) {
+        out.println();
+        out.println("--- MÉTRICAS POR ETAPA ---");
+        out.printf("%-24s %7s %10s %10s %10s %10s %10s %12s %12s%n",
+                "etapa", "n", "média ms", "p50 ms", "p90 ms", "p99 ms", "máx ms", "MB", "alocado MB");
+        for (Stage stage : Stage.values()) {
+            StageStats s = stats.get(stage);
+            long count = s.count.sum();
+            if (count == 0) {
+                continue;
+            }
+            long samples = s.allocationSamples.sum();
+            out.printf("%-24s %7d %10.2f %10.2f %10.2f %10.2f %10.2f %12.2f %12s%n",
+                    stage.getDescription(), count,
+                    s.totalNanos.sum() / 1e6 / count,
+                    percentileNanos(stage, 0.50) / 1e6,
+                    percentileNanos(stage, 0.90) / 1e6,
+                    percentileNanos(stage, 0.99) / 1e6,
+                    s.maxNanos.get() / 1e6,
+                    s.bytes.sum() / (1024.0 * 1024.0),
+                    samples > 0 ? String.format("%.2f", s.allocated.sum() / (1024.0 * 1024.0)) : "n/d");
+        }
+    }
+
+    // faixa i: durações em [2^(i-1), 2^i) ns
+    private static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.steganography.metrics;
+
+/**
+ * Recebe as medições de cada etapa. As implementações precisam aceitar chamadas de várias threads ao mesmo
+ * tempo (o modo em lote compartilha uma instância entre todos os jobs).
+ *
+ * @see NoOpInstrumentation
+ * @see JfrInstrumentation
+ * @see HistogramInstrumentation
+ */
+public interface Instrumentation {
+
+    /**
+     * @param nanos          duração da etapa.
+     * @param bytes          bytes processados (0 se não se aplica).
+     * @param bits           bits gravados/lidos nos pixels (0 se não se aplica).
+     * @param allocatedBytes bytes alocados pela thread durante a etapa, ou -1 se a JVM não informa
+     *                       (por exemplo, em threads virtuais).
+     */
+    void record(Stage stage, long nanos, long bytes, long bits, long allocatedBytes);
+
+    // false evita até a medição (o padrão é não medir nada)
+    default boolean isEnabled() {
+        return true;
+    }
+
+    static Instrumentation noOp() {
+        return NoOpInstrumentation.INSTANCE;
+    }
+}
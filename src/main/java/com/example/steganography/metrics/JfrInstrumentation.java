@@ -0,0 +1,54 @@
+package com.example.steganography.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Publica cada etapa como um evento do JDK Flight Recorder ("com.example.steganography.Stage"). Os eventos
+ * só custam algo quando há uma gravação ativa, por exemplo com -XX:StartFlightRecording.
+ */
+public final class JfrInstrumentation implements Instrumentation {
+
+    @Name("com.example.steganography.Stage")
+    @Label("Etapa da esteganografia")
+    @Category("Esteganografia")
+    @Description("Duração, bytes, bits e alocação de uma etapa da ocultação/extração")
+    static final class StageEvent extends Event {
+        @Label("Etapa")
+        String stage;
+
+        @Label("Duração da etapa")
+        @Timespan(Timespan.NANOSECONDS)
+        long stageDuration;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Bits")
+        long bits;
+
+        @Label("Alocado")
+        @DataAmount
+        long allocated;
+    }
+
+    @Override
+    public void record(Stage stage, long nanos, long bytes, long bits, long allocatedBytes) {
+        StageEvent event = new StageEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.stage = stage.name();
+        event.stageDuration = nanos;
+        event.bytes = bytes;
+        event.bits = bits;
+        event.allocated = allocatedBytes;
+        event.commit();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.steganography.metrics;
+
+// padrão: descarta tudo, e o StageTimer nem chega a medir
+public final class NoOpInstrumentation implements Instrumentation {
+
+    static final NoOpInstrumentation INSTANCE = new NoOpInstrumentation();
+
+    private NoOpInstrumentation() {
+    }
+
+    @Override
+    public void record(Stage stage, long nanos, long bytes, long bits, long allocatedBytes) {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+}
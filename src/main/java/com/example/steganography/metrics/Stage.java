@@ -0,0 +1,27 @@
+package com.example.steganography.metrics;
+
+/**
+ * Etapas medidas na ocultação, extração, consulta e verificação.
+ * <p>
+ * A conversão byte/bit não aparece separada: ela acontece dentro da passagem pelos pixels.
+ */
+public enum Stage {
+    LOAD("carregar imagem"),
+    ZIP("compactar"),
+    HEADER("cabeçalho"),
+    PIXEL_PASS("passagem pelos pixels"),
+    SAVE("salvar imagem"),
+    UNZIP("descompactar"),
+    PROBE("consulta do cabeçalho"),
+    VERIFY("verificação");
+
+    private final String description;
+
+    Stage(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.steganography.metrics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mede uma etapa (tempo e bytes alocados pela thread) e entrega o resultado à {@link Instrumentation} no
+ * {@link #close()}. Com a instrumentação desligada não mede nada.
+ * <pre>
+ * try (StageTimer timer = StageTimer.start(instrumentation, Stage.SAVE)) {
+ *     ...
+ *     timer.bytes(tamanho);
+ * }
+ * </pre>
+ */
+public final class StageTimer implements AutoCloseable {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final Instrumentation instrumentation;
+    private final Stage stage;
+    private final long start;
+    private final long allocatedAtStart;
+    private long bytes;
+    private long bits;
+    private long excludedNanos;
+    private boolean closed;
+
+    private StageTimer(Instrumentation instrumentation, Stage stage) {
+        this.instrumentation = instrumentation;
+        this.stage = stage;
+        this.allocatedAtStart = instrumentation.isEnabled() ? allocatedBytes() : -1;
+        this.start = instrumentation.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    public static StageTimer start(Instrumentation instrumentation, Stage stage) {
+        return new StageTimer(instrumentation, stage);
+    }
+
+    public StageTimer bytes(long bytes) {
+        this.bytes = bytes;
+        return this;
+    }
+
+    public StageTimer bits(long bits) {
+        this.bits = bits;
+        return this;
+    }
+
+    // desconta o tempo de uma etapa medida à parte que aconteceu no meio desta (ex.: pixels durante o ZIP)
+    public StageTimer excludeNanos(long nanos) {
+        this.excludedNanos += nanos;
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (closed || !instrumentation.isEnabled()) {
+            return;
+        }
+        closed = true;
+        long nanos = System.nanoTime() - start - excludedNanos;
+        long allocatedAtEnd = allocatedBytes();
+        long allocated = allocatedAtStart >= 0 && allocatedAtEnd >= 0 ? allocatedAtEnd - allocatedAtStart : -1;
+        instrumentation.record(stage, Math.max(0, nanos), bytes, bits, allocated);
+    }
+
+    /**
+     * true se a JVM informa os bytes alocados por thread. Mesmo assim, só nas threads de plataforma (nas virtuais
+     * a alocação fica -1), e só os da thread que mede: o que as threads do ParallelLsbEngine e da compressão
+     * paralela do ZIP alocam não entra na etapa.
+     */
+    public static boolean measuresAllocation() {
+        return THREADS != null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // sem o módulo de gerenciamento: só não mede alocação
+        }
+        return null;
+    }
+}
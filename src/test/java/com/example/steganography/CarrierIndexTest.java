@@ -0,0 +1,170 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+class CarrierIndexTest {
+
+    @TempDir
+    Path temp;
+
+    private Path png(String name, int width, int height, int type) throws IOException {
+        Path file = temp.resolve(name);
+        Files.createDirectories(file.getParent());
+        ImageIO.write(new BufferedImage(width, height, type), "PNG", file.toFile());
+        return file;
+    }
+
+    private static CarrierIndex.Entry entry(CarrierIndex index, String name) {
+        return index.getEntries().stream().filter(e -> e.getPath().getFileName().toString().equals(name)).findFirst()
+                .orElseThrow(() -> new AssertionError("sem " + name));
+    }
+
+    // três RGB de tamanhos diferentes e uma ARGB entre a média e a grande
+    private CarrierIndex carriers() throws IOException, SteganographyException {
+        png("pequena.png", 20, 20, BufferedImage.TYPE_INT_RGB);
+        png("media.png", 60, 60, BufferedImage.TYPE_INT_RGB);
+        png("grande.png", 200, 200, BufferedImage.TYPE_INT_RGB);
+        png("alfa.png", 100, 100, BufferedImage.TYPE_INT_ARGB);
+        return CarrierIndex.scan(temp.toString());
+    }
+
+    @Test
+    void readsTheIhdrOfEachImage() throws IOException, SteganographyException {
+        Path rgb = png("rgb.png", 40, 30, BufferedImage.TYPE_INT_RGB);
+        png("argb.png", 50, 50, BufferedImage.TYPE_INT_ARGB);
+        png("cinza16.png", 20, 20, BufferedImage.TYPE_USHORT_GRAY);
+        png("paleta.png", 10, 10, BufferedImage.TYPE_BYTE_INDEXED);
+        png("sub/ignorada.png", 10, 10, BufferedImage.TYPE_INT_RGB);
+        Files.write(temp.resolve("quebrado.png"), new byte[] {1, 2, 3});
+
+        CarrierIndex index = CarrierIndex.scan(temp.toString());
+        assertEquals(4, index.getEntries().size());
+        assertEquals(1, index.getSkipped().size());
+        assertTrue(index.getSkipped().get(0).contains("quebrado.png"), index.getSkipped().get(0));
+
+        CarrierIndex.Entry entry = entry(index, "rgb.png");
+        assertEquals(40, entry.getWidth());
+        assertEquals(30, entry.getHeight());
+        assertEquals(8, entry.getBitDepth());
+        assertEquals(2, entry.getColorType());
+        assertEquals(24, entry.getBitsPerPixel());
+        assertFalse(entry.hasAlpha());
+        assertEquals(Files.size(rgb), entry.getFileSize());
+
+        entry = entry(index, "argb.png");
+        assertEquals(6, entry.getColorType());
+        assertEquals(32, entry.getBitsPerPixel());
+        assertTrue(entry.hasAlpha());
+
+        entry = entry(index, "cinza16.png");
+        assertEquals(0, entry.getColorType());
+        assertEquals(16, entry.getBitDepth());
+        assertEquals(16, entry.getBitsPerPixel());
+
+        entry = entry(index, "paleta.png");
+        assertEquals(3, entry.getColorType());
+        assertEquals(8, entry.getBitsPerPixel());
+        assertFalse(entry.hasAlpha());
+
+        // da menor para a maior
+        List<CarrierIndex.Entry> entries = index.getEntries();
+        for (int i = 1; i < entries.size(); i++) {
+            assertTrue(entries.get(i - 1).getPixels() <= entries.get(i).getPixels());
+        }
+    }
+
+    @Test
+    void capacityMatchesTheRaster() throws IOException, SteganographyException {
+        CarrierIndex index = carriers();
+        for (CarrierIndex.Entry entry : index.getEntries()) {
+            CarrierRaster raster = CarrierRaster.wrap(ImageIO.read(entry.getPath().toFile()));
+            for (int bits = 1; bits <= CarrierRaster.MAX_BITS_PER_CHANNEL; bits++) {
+                for (boolean alpha : new boolean[] {false, true}) {
+                    if (alpha && !entry.hasAlpha()) {
+                        assertEquals(0, entry.getCapacityBytes(bits, true));
+                        continue;
+                    }
+                    CarrierRaster layout = raster.withLayout(bits, alpha);
+                    long startBit = (long) StegoHeader.HEADER_PIXELS * layout.getBitsPerPixel();
+                    assertEquals(CarrierRaster.capacityBits(entry.getWidth(), entry.getHeight(), bits, alpha),
+                            layout.getCapacityBits());
+                    assertEquals((layout.getCapacityBits() - startBit) / 8, entry.getCapacityBytes(bits, alpha),
+                            entry.getPath() + " com " + bits + " bit(s), alfa " + alpha);
+                }
+            }
+        }
+    }
+
+    @Test
+    void selectsTheSmallestImageThatFits() throws IOException, SteganographyException {
+        CarrierIndex index = carriers();
+        CarrierIndex.Entry small = entry(index, "pequena.png");
+
+        // exatamente a capacidade da menor ainda cabe nela; um byte a mais já vai para a seguinte
+        CarrierIndex.Choice choice = index.select(small.getCapacityBytes(1, false), 1, false);
+        assertEquals(small, choice.getEntry());
+
+        long containerBytes = small.getCapacityBytes(1, false) + 1;
+        choice = index.select(containerBytes, 1, false);
+        assertEquals("media.png", choice.getEntry().getPath().getFileName().toString());
+        assertEquals(1, choice.getBitsPerChannel());
+        assertFalse(choice.usesAlpha());
+        assertEquals(containerBytes, choice.getContainerBytes());
+        assertEquals(StegoHeader.HEADER_PIXELS + (containerBytes * 8 + 2) / 3, choice.getPixelsTouched());
+    }
+
+    @Test
+    void autoPrefersTheLowestDepth() throws IOException, SteganographyException {
+        CarrierIndex index = carriers();
+        CarrierIndex.Entry large = entry(index, "grande.png");
+
+        // cabe na média com 2 bits, mas com 1 bit (que altera menos cada pixel) já cabe na de alfa, usada sem o alfa
+        CarrierIndex.Choice choice = index.select(entry(index, "media.png").getCapacityBytes(2, false), EmbedOptions.AUTO, false);
+        assertEquals(entry(index, "alfa.png"), choice.getEntry());
+        assertEquals(1, choice.getBitsPerChannel());
+        assertFalse(choice.usesAlpha());
+
+        // além da capacidade de 1 bit de todas: a menor profundidade em que alguma comporta
+        choice = index.select(large.getCapacityBytes(1, false) + 1, EmbedOptions.AUTO, false);
+        assertEquals(large, choice.getEntry());
+        assertEquals(2, choice.getBitsPerChannel());
+    }
+
+    @Test
+    void alphaOnlyConsidersImagesWithAlpha() throws IOException, SteganographyException {
+        CarrierIndex index = carriers();
+
+        CarrierIndex.Choice choice = index.select(100, EmbedOptions.AUTO, true);
+        assertEquals("alfa.png", choice.getEntry().getPath().getFileName().toString());
+        assertEquals(1, choice.getBitsPerChannel());
+        assertTrue(choice.usesAlpha());
+        assertEquals(0, entry(index, "grande.png").getCapacityBytes(1, true));
+    }
+
+    @Test
+    void returnsNullWhenNothingFits() throws IOException, SteganographyException {
+        CarrierIndex index = carriers();
+        int maxBits = CarrierRaster.MAX_BITS_PER_CHANNEL;
+
+        assertNull(index.select(entry(index, "grande.png").getCapacityBytes(maxBits, false) + 1, EmbedOptions.AUTO, false));
+        assertNull(index.select(entry(index, "alfa.png").getCapacityBytes(maxBits, true) + 1, EmbedOptions.AUTO, true));
+        assertNull(index.select(entry(index, "grande.png").getCapacityBytes(1, false) + 1, 1, false));
+        assertNull(CarrierIndex.scan(Files.createDirectory(temp.resolve("vazia")).toString()).select(1, EmbedOptions.AUTO, false));
+    }
+}
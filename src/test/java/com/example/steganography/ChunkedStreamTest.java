@@ -0,0 +1,109 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ChunkedStreamTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] chunked(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ChunkedOutputStream chunks = new ChunkedOutputStream(out, CHUNK_SIZE)) {
+            chunks.write(data, 0, 10);
+            chunks.write(data, 10, data.length - 10);
+            assertEquals(data.length, chunks.getPayloadBytes());
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void roundTripsAPartialLastChunk() throws IOException {
+        byte[] data = data(3 * CHUNK_SIZE + 17);
+        byte[] framed = chunked(data);
+        assertEquals(StegoHeader.containerSize(data.length, CHUNK_SIZE), framed.length);
+
+        try (ChunkedInputStream in = new ChunkedInputStream(new ByteArrayInputStream(framed), data.length, CHUNK_SIZE)) {
+            assertArrayEquals(data, in.readAllBytes());
+            assertEquals(4, in.getChunksRead());
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void stopsAtTheEndFrame() throws IOException {
+        byte[] data = data(2 * CHUNK_SIZE + 300);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ChunkedOutputStream chunks = new ChunkedOutputStream(out, CHUNK_SIZE, StegoHeader.CHECKSUM_CRC32C, true)) {
+            chunks.write(data);
+        }
+        byte[] framed = out.toByteArray();
+        assertEquals(StegoHeader.containerSize(data.length, CHUNK_SIZE) + StegoHeader.CHUNK_FRAME_BYTES, framed.length);
+
+        // o tamanho informado é só o máximo; o que vem depois do bloco vazio não é lido
+        byte[] padded = Arrays.copyOf(framed, framed.length + 100);
+        try (ChunkedInputStream in = new ChunkedInputStream(new ByteArrayInputStream(padded), 10 * CHUNK_SIZE, CHUNK_SIZE,
+                StegoHeader.CHECKSUM_CRC32C, true)) {
+            assertArrayEquals(data, in.readAllBytes());
+            assertEquals(3, in.getChunksRead());
+        }
+    }
+
+    @Test
+    void requiresTheEndFrame() throws IOException {
+        byte[] data = data(CHUNK_SIZE + 300);
+        // sem o bloco vazio, o que vem depois do bloco menor é lido como um bloco
+        byte[] chunks = chunked(data);
+        byte[] framed = Arrays.copyOf(chunks, chunks.length + 20);
+        Arrays.fill(framed, chunks.length, framed.length, (byte) 1);
+
+        try (InputStream in = new ChunkedInputStream(new ByteArrayInputStream(framed), 10 * CHUNK_SIZE, CHUNK_SIZE,
+                StegoHeader.CHECKSUM_CRC32C, true)) {
+            IOException e = assertThrows(IOException.class, in::readAllBytes);
+            assertTrue(e.getMessage().contains("Bloco 2"), e.getMessage());
+        }
+    }
+
+    @Test
+    void detectsACorruptedByte() throws IOException {
+        byte[] data = data(2 * CHUNK_SIZE);
+        byte[] framed = chunked(data);
+        // um byte de dados do segundo bloco
+        framed[StegoHeader.CHUNK_FRAME_BYTES * 2 + CHUNK_SIZE + 5] ^= 0x10;
+
+        try (InputStream in = new ChunkedInputStream(new ByteArrayInputStream(framed), data.length, CHUNK_SIZE)) {
+            byte[] first = in.readNBytes(CHUNK_SIZE);
+            assertArrayEquals(Arrays.copyOf(data, CHUNK_SIZE), first);
+            IOException e = assertThrows(IOException.class, in::read);
+            assertTrue(e.getMessage().contains("Bloco 1"), e.getMessage());
+        }
+    }
+
+    @Test
+    void detectsTruncatedData() throws IOException {
+        byte[] data = data(CHUNK_SIZE + 1);
+        byte[] framed = chunked(data);
+        InputStream truncated = new ByteArrayInputStream(framed, 0, framed.length - 1);
+
+        try (InputStream in = new ChunkedInputStream(truncated, data.length, CHUNK_SIZE)) {
+            assertThrows(IOException.class, in::readAllBytes);
+        }
+    }
+}
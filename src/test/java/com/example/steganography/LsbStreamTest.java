@@ -0,0 +1,136 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LsbStreamTest {
+
+    private static CarrierRaster carrier(int width, int height, int bits) {
+        return CarrierRaster.wrap(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)).withLayout(bits, false);
+    }
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    void writesWhereTheSequentialPassWould() throws IOException {
+        CarrierRaster raster = carrier(533, 401, 2);
+        byte[] data = data(100_000);
+        long startBit = 13; // fora de um byte inteiro: só o modo sequencial aceita
+
+        try (LsbOutputStream out = new LsbOutputStream(raster, startBit)) {
+            out.write(data[0]);
+            out.write(data, 1, 70_000); // maior que o buffer
+            for (int i = 70_001; i < data.length; i++) {
+                out.write(data[i]);
+            }
+            assertEquals(data.length, out.getBytesWritten());
+            assertEquals(startBit + data.length * 8L, out.getNextBit());
+        }
+
+        byte[] read = new byte[data.length];
+        raster.extractBits(new BitWriter(read, 0, read.length), startBit);
+        assertArrayEquals(data, read);
+    }
+
+    @Test
+    void flagsAnOverflow() throws IOException {
+        CarrierRaster raster = carrier(64, 64, 1);
+        byte[] data = data((int) (raster.getCapacityBits() / 8) + 1);
+
+        LsbOutputStream out = new LsbOutputStream(raster, 0);
+        out.write(data, 0, data.length - 1);
+        out.flush();
+        assertFalse(out.hasOverflowed());
+        out.write(data, data.length - 1, 1);
+        assertThrows(IOException.class, out::flush);
+        assertTrue(out.hasOverflowed());
+    }
+
+    @Test
+    void closesAfterAnOverflowWithoutThrowingAgain() throws IOException {
+        CarrierRaster raster = carrier(64, 64, 1);
+        BufferPool pool = new BufferPool(2);
+
+        LsbOutputStream out = new LsbOutputStream(raster, 0, null, pool);
+        out.write(data((int) (raster.getCapacityBits() / 8) + 1));
+        assertThrows(IOException.class, out::flush);
+        out.close();
+        assertTrue(out.hasOverflowed());
+
+        // o buffer voltou ao pool: o próximo stream o reaproveita
+        new LsbOutputStream(raster, 0, null, pool).close();
+        assertEquals(1, pool.getHits());
+    }
+
+    @Test
+    void returnsThePooledBufferOnClose() throws IOException {
+        CarrierRaster raster = carrier(64, 64, 1);
+        BufferPool pool = new BufferPool(2);
+        for (int i = 0; i < 3; i++) {
+            try (LsbOutputStream out = new LsbOutputStream(raster, 0, null, pool)) {
+                out.write(data(100));
+            }
+        }
+        assertEquals(1, pool.getMisses());
+        assertEquals(2, pool.getHits());
+    }
+
+    @Test
+    void readsBackByteByByteAndInBlocks() throws IOException {
+        CarrierRaster raster = carrier(533, 401, 3);
+        byte[] data = data(120_000);
+        long startBit = 21;
+        raster.embedBits(new BitReader(data), startBit);
+
+        try (LsbInputStream in = new LsbInputStream(raster, startBit, data.length)) {
+            byte[] read = new byte[data.length];
+            read[0] = (byte) in.read();
+            assertEquals(50_000, in.readNBytes(read, 1, 50_000));
+            for (int i = 50_001; i < data.length; i++) {
+                read[i] = (byte) in.read();
+            }
+            assertArrayEquals(data, read);
+            assertEquals(-1, in.read());
+            assertEquals(data.length, in.getBytesRead());
+        }
+    }
+
+    @Test
+    void parallelReadMatchesTheSequentialOne() throws IOException {
+        CarrierRaster raster = carrier(1201, 900, 2);
+        long startBit = (long) StegoHeader.HEADER_PIXELS * raster.getBitsPerPixel();
+        byte[] data = data(600_000);
+        raster.embedBits(new BitReader(data), startBit);
+
+        ParallelLsbEngine engine = new ParallelLsbEngine(3);
+        try (LsbInputStream in = new LsbInputStream(raster, startBit, data.length, engine)) {
+            byte[] read = new byte[data.length];
+            for (int i = 0; i < 1000; i++) {
+                read[i] = (byte) in.read();
+            }
+            assertEquals(data.length - 1000, in.readNBytes(read, 1000, data.length - 1000));
+            assertArrayEquals(data, read);
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void rejectsALengthPastTheCapacity() {
+        CarrierRaster raster = carrier(32, 32, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> new LsbInputStream(raster, 8, raster.getCapacityBits() / 8));
+    }
+}
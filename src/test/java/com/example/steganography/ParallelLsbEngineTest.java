@@ -0,0 +1,88 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+class ParallelLsbEngineTest {
+
+    private static final ParallelLsbEngine ENGINE = new ParallelLsbEngine(4);
+
+    @TempDir
+    Path temp;
+
+    private static BufferedImage noise(int width, int height, boolean alpha) {
+        BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(width * 31L + height);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return image;
+    }
+
+    private static int[] pixels(CarrierRaster raster) {
+        return ((DataBufferInt) raster.getImage().getRaster().getDataBuffer()).getData();
+    }
+
+    // largura ímpar: as faixas precisam de várias linhas para fechar um byte
+    @ParameterizedTest
+    @CsvSource({"1, false", "2, false", "3, false", "4, false", "1, true", "3, true", "4, true"})
+    void embedsAndExtractsLikeTheSequentialPass(int bits, boolean alpha) {
+        BufferedImage original = noise(997, 613, true);
+        CarrierRaster sequential = CarrierRaster.wrap(deepCopy(original)).withLayout(bits, alpha);
+        CarrierRaster parallel = CarrierRaster.wrap(deepCopy(original)).withLayout(bits, alpha);
+
+        long startBit = (long) StegoHeader.HEADER_PIXELS * sequential.getBitsPerPixel();
+        byte[] data = new byte[(int) ((sequential.getCapacityBits() - startBit) / 8) - 13];
+        new Random(bits).nextBytes(data);
+
+        sequential.embedBits(new BitReader(data), startBit);
+        ENGINE.embed(parallel, data, 0, data.length, startBit);
+        assertArrayEquals(pixels(sequential), pixels(parallel));
+
+        byte[] read = new byte[data.length];
+        ENGINE.extract(parallel, read, 0, read.length, startBit);
+        assertArrayEquals(data, read);
+    }
+
+    @Test
+    void parallelEmbedWritesTheSameImage() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 801, 500, false);
+        Path payload = TestFiles.payload(temp, "dados", 150_000);
+        EmbedOptions options = EmbedOptions.defaults().setBitsPerChannel(2);
+
+        Path sequential = temp.resolve("sequencial.png");
+        Path parallel = temp.resolve("paralelo.png");
+        steganography(1).embedData(carrier.toString(), payload.toString(), sequential.toString(), options);
+        steganography(4).embedData(carrier.toString(), payload.toString(), parallel.toString(), options);
+        assertArrayEquals(Files.readAllBytes(sequential), Files.readAllBytes(parallel));
+
+        steganography(4).extractData(parallel.toString(), temp.resolve("extraido").toString());
+        TestFiles.assertSameFiles(payload, temp.resolve("extraido"));
+    }
+
+    private static SteganographyUtils steganography(int parallelism) {
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter(), parallelism);
+        steganography.setVerbose(false);
+        return steganography;
+    }
+
+    private static BufferedImage deepCopy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        System.arraycopy(pixels(CarrierRaster.wrap(image)), 0, pixels(CarrierRaster.wrap(copy)), 0, image.getWidth() * image.getHeight());
+        return copy;
+    }
+}
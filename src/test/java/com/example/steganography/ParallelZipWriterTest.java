@@ -0,0 +1,128 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+class ParallelZipWriterTest {
+
+    @TempDir
+    static Path temp;
+
+    private static Path source;
+    private static final Map<String, byte[]> files = new TreeMap<>();
+
+    @BeforeAll
+    static void createFiles() throws IOException {
+        source = Files.createDirectories(temp.resolve("dados"));
+        Random random = new Random(7);
+
+        put("texto.txt", "olá, mundo\n".repeat(5000).getBytes(StandardCharsets.UTF_8));
+        put("vazio.txt", new byte[0]);
+        byte[] noise = new byte[200_000];
+        random.nextBytes(noise);
+        put("sub/ruido.bin", noise);
+        put("sub/foto.jpg", noise);
+
+        // acima do limite: vai pelo stream no writer, com descritor de dados quando comprimido
+        byte[] large = new byte[(int) ParallelZipWriter.STREAM_THRESHOLD + 123_457];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i % 251 < 200 ? i % 7 : random.nextInt());
+        }
+        put("sub/interna/grande.dat", large);
+        Files.createDirectories(source.resolve("pasta-vazia"));
+    }
+
+    private static void put(String name, byte[] content) throws IOException {
+        Path file = source.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+        files.put(name, content);
+    }
+
+    private static byte[] zip(ZipOptions options) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ParallelZipWriter(options).write(source, out);
+        return out.toByteArray();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1, -1", "4, -1", "1, 0", "4, 0", "3, 9"})
+    void readsBackWithZipInputStream(int parallelism, int level) throws IOException {
+        byte[] zip = zip(ZipOptions.defaults().setParallelism(parallelism).setCompressionLevel(level));
+
+        Map<String, byte[]> read = new TreeMap<>();
+        boolean emptyFolder = false;
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (ZipEntry entry; (entry = in.getNextEntry()) != null; ) {
+                if (entry.isDirectory()) {
+                    emptyFolder |= entry.getName().equals("pasta-vazia/");
+                } else {
+                    read.put(entry.getName(), in.readAllBytes());
+                }
+            }
+        }
+        assertTrue(emptyFolder);
+        assertEquals(files.keySet(), read.keySet());
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            assertArrayEquals(file.getValue(), read.get(file.getKey()), file.getKey());
+        }
+    }
+
+    @Test
+    void centralDirectoryMatchesTheEntries() throws IOException {
+        Path zipFile = temp.resolve("saida.zip");
+        try (OutputStream out = Files.newOutputStream(zipFile)) {
+            new ParallelZipWriter(ZipOptions.defaults().setParallelism(2)).write(source, out);
+        }
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                ZipEntry entry = zip.getEntry(file.getKey());
+                assertEquals(file.getValue().length, entry.getSize(), file.getKey());
+                try (InputStream in = zip.getInputStream(entry)) {
+                    assertArrayEquals(file.getValue(), in.readAllBytes(), file.getKey());
+                }
+            }
+            // já comprimido: sem compressão, mesmo com o nível padrão
+            assertEquals(ZipEntry.STORED, zip.getEntry("sub/foto.jpg").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("sub/interna/grande.dat").getMethod());
+        }
+    }
+
+    @Test
+    void unzipsWhatZipFolderWrote() throws SteganographyException, IOException {
+        DataConverter converter = new DataConverter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long size = converter.zipFolder(source.toString(), out);
+        assertEquals(out.size(), size);
+
+        Path target = temp.resolve("extraido");
+        converter.unzipToFolder(out.toByteArray(), target.toString());
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            assertArrayEquals(file.getValue(), Files.readAllBytes(target.resolve(file.getKey())), file.getKey());
+        }
+    }
+}
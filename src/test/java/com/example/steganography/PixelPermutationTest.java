@@ -0,0 +1,73 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PixelPermutationTest {
+
+    private static final int FIRST_PIXEL = StegoHeader.HEADER_PIXELS;
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 5, 7, 33, 1000})
+    void mapsEveryPixelOnce(int blocks) {
+        // pixels que sobram depois do último bloco inteiro ficam no lugar
+        long totalPixels = FIRST_PIXEL + (long) blocks * PixelPermutation.BLOCK_PIXELS + 77;
+        PixelPermutation permutation = new PixelPermutation("chave", 12345, FIRST_PIXEL, totalPixels);
+
+        BitSet seen = new BitSet((int) totalPixels);
+        for (long pixel = 0; pixel < totalPixels; pixel++) {
+            long mapped = permutation.map(pixel);
+            assertTrue(mapped >= 0 && mapped < totalPixels, "pixel " + pixel + " -> " + mapped);
+            assertFalse(seen.get((int) mapped), "pixel " + mapped + " usado duas vezes");
+            seen.set((int) mapped);
+            if (pixel < FIRST_PIXEL || pixel >= totalPixels - 77) {
+                assertEquals(pixel, mapped);
+            }
+        }
+        assertEquals(totalPixels, seen.cardinality());
+    }
+
+    @Test
+    void runsCoverWholeBlocks() {
+        long totalPixels = FIRST_PIXEL + 9L * PixelPermutation.BLOCK_PIXELS + 3;
+        PixelPermutation permutation = new PixelPermutation("chave", 1, FIRST_PIXEL, totalPixels);
+        long pixel = 0;
+        while (pixel < totalPixels) {
+            long run = permutation.runLength(pixel);
+            assertTrue(run > 0);
+            for (long i = 1; i < run; i++) {
+                assertEquals(permutation.map(pixel) + i, permutation.map(pixel + i));
+            }
+            pixel += run;
+        }
+        assertEquals(totalPixels, pixel);
+    }
+
+    @Test
+    void headerMaskDependsOnKeyAndSalt() {
+        long totalPixels = 100_000;
+        byte[] mask = new PixelPermutation("chave", 7, FIRST_PIXEL, totalPixels).headerMask();
+        assertArrayEquals(mask, new PixelPermutation("chave", 7, FIRST_PIXEL, totalPixels).headerMask());
+        assertFalse(Arrays.equals(mask, new PixelPermutation("chave2", 7, FIRST_PIXEL, totalPixels).headerMask()));
+        assertFalse(Arrays.equals(mask, new PixelPermutation("chave", 8, FIRST_PIXEL, totalPixels).headerMask()));
+    }
+
+    @Test
+    void sameKeyAndSaltGiveTheSameOrder() {
+        long totalPixels = FIRST_PIXEL + 50L * PixelPermutation.BLOCK_PIXELS;
+        PixelPermutation a = new PixelPermutation("chave", 99, FIRST_PIXEL, totalPixels);
+        PixelPermutation b = new PixelPermutation("chave", 99, FIRST_PIXEL, totalPixels);
+        for (long block = 0; block < 50; block++) {
+            assertEquals(a.permuteBlock(block), b.permuteBlock(block));
+        }
+    }
+}
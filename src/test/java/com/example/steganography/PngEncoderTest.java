@@ -0,0 +1,98 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class PngEncoderTest {
+
+    private static BufferedImage image(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(3);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // metade com ruído, metade com gradiente, para os filtros e o deflate terem o que fazer
+                image.setRGB(x, y, x < width / 2 ? random.nextInt() : (x * 31 + y * 17) * 0x010101 | (y << 24));
+            }
+        }
+        return image;
+    }
+
+    @ParameterizedTest
+    @CsvSource({"NONE, 1", "SUB, 1", "UP, 1", "AVERAGE, 1", "PAETH, 1", "ADAPTIVE, 1", "SUB, 4", "ADAPTIVE, 3"})
+    void readsBackWithImageIO(PngWriteOptions.Filter filter, int parallelism) throws IOException {
+        PngWriteOptions options = PngWriteOptions.defaults().setFilter(filter).setParallelism(parallelism);
+        for (int type : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB}) {
+            BufferedImage image = image(type, 301, 257);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new PngEncoder().write(image, out, options);
+
+            BufferedImage read = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(image.getWidth(), read.getWidth());
+            assertEquals(image.getHeight(), read.getHeight());
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    assertEquals(image.getRGB(x, y), read.getRGB(x, y), "pixel " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void closeRejectsMissingRows() throws IOException {
+        FailingTarget holder = new FailingTarget();
+        PngEncoder.RowWriter writer = new PngEncoder.RowWriter(holder.out, 10, 10, false, PngWriteOptions.defaults());
+        writer.writeRow(writer.newRowBuffer());
+        assertThrows(IllegalStateException.class, writer::close);
+    }
+
+    @Test
+    void closeKeepsTheWriteException() throws IOException {
+        FailingTarget holder = new FailingTarget();
+        Random random = new Random(5);
+
+        IOException e = assertThrows(IOException.class, () -> {
+            try (PngEncoder.RowWriter writer = new PngEncoder.RowWriter(holder.out, 2000, 2000, false,
+                    PngWriteOptions.defaults())) {
+                holder.failing = true;
+                byte[] row = writer.newRowBuffer();
+                for (int y = 0; y < 2000; y++) {
+                    random.nextBytes(row); // ruído em todas as linhas: o zlib precisa gravar antes do close()
+                    writer.writeRow(row);
+                }
+            }
+        });
+        assertEquals("disco cheio", e.getMessage());
+        assertEquals(0, e.getSuppressed().length);
+    }
+
+    // destino que passa a falhar depois do cabeçalho do PNG
+    private static final class FailingTarget {
+        boolean failing;
+        final OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (failing) {
+                    throw new IOException("disco cheio");
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipInputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+class SteganographyRoundTripTest {
+
+    @TempDir
+    Path temp;
+
+    private static SteganographyUtils steganography() {
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter());
+        steganography.setVerbose(false);
+        return steganography;
+    }
+
+    @Test
+    void extractsWhatWasEmbedded() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 300, 200, false);
+        Path payload = TestFiles.payload(temp, "dados", 5000);
+        Path output = temp.resolve("saida.png");
+
+        SteganographyUtils steganography = steganography();
+        StegoHeader written = steganography.embedData(carrier.toString(), payload.toString(), output.toString());
+        StegoHeader read = steganography.extractData(output.toString(), temp.resolve("extraido").toString());
+
+        assertEquals(written.getPayloadSize(), read.getPayloadSize());
+        assertEquals(1, read.getBitsPerChannel());
+        TestFiles.assertSameFiles(payload, temp.resolve("extraido"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1, false", "2, false", "3, false", "4, false", "1, true", "2, true", "3, true", "4, true"})
+    void extractsEveryBitDepth(int bits, boolean alpha) throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 257, 190, alpha);
+        Path payload = TestFiles.payload(temp, "dados", 8000 * bits);
+        Path output = temp.resolve("saida.png");
+
+        SteganographyUtils steganography = steganography();
+        steganography.embedData(carrier.toString(), payload.toString(), output.toString(),
+                EmbedOptions.defaults().setBitsPerChannel(bits).setUseAlpha(alpha));
+        StegoHeader read = steganography.extractData(output.toString(), temp.resolve("extraido").toString());
+
+        assertEquals(bits, read.getBitsPerChannel());
+        assertEquals(alpha, read.usesAlpha());
+        TestFiles.assertSameFiles(payload, temp.resolve("extraido"));
+    }
+
+    @Test
+    void autoPicksTheLowestDepthThatFits() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 200, 200, false);
+        // 200 x 200 x 3 bits = 15 KB com 1 bit por canal: 25 KB de ruído só cabem com 2
+        Path payload = TestFiles.payload(temp, "dados", 25_000);
+        Path output = temp.resolve("saida.png");
+
+        SteganographyUtils steganography = steganography();
+        StegoHeader header = steganography.embedData(carrier.toString(), payload.toString(), output.toString());
+        assertEquals(2, header.getBitsPerChannel());
+        steganography.extractData(output.toString(), temp.resolve("extraido").toString());
+        TestFiles.assertSameFiles(payload, temp.resolve("extraido"));
+    }
+
+    @Test
+    void rejectsAlphaOnAnRgbImage() throws IOException {
+        Path carrier = TestFiles.carrier(temp, "rgb.png", 100, 100, false);
+        Path payload = TestFiles.payload(temp, "dados", 100);
+
+        assertThrows(SteganographyException.class, () -> steganography().embedData(carrier.toString(), payload.toString(),
+                temp.resolve("saida.png").toString(), EmbedOptions.defaults().setUseAlpha(true)));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void embedsWithoutATemporaryZip() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 200, 200, false);
+        Path payload = TestFiles.payload(temp, "dados", 2000);
+        Path zipTemp = temp.resolve("temp.zip");
+        Path output = temp.resolve("saida.png");
+
+        // o ZIP vai direto para os pixels: o caminho do temporário é ignorado
+        steganography().embedData(carrier.toString(), payload.toString(), zipTemp.toString(), output.toString());
+        assertFalse(Files.exists(zipTemp));
+        steganography().extractData(output.toString(), temp.resolve("extraido").toString());
+        TestFiles.assertSameFiles(payload, temp.resolve("extraido"));
+    }
+
+    @Test
+    void failedEmbedsReturnTheBufferToThePool() throws IOException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 100, 100, false);
+        Path payload = TestFiles.payload(temp, "dados", 20_000);
+        BufferPool pool = new BufferPool(2);
+        SteganographyUtils steganography = steganography();
+        steganography.setBufferPool(pool);
+        EmbedOptions options = EmbedOptions.defaults().setBitsPerChannel(1);
+
+        // a compactação falha antes de gravar qualquer byte
+        assertThrows(SteganographyException.class, () -> steganography.embedData(carrier.toString(),
+                temp.resolve("nao-existe").toString(), temp.resolve("saida.png").toString(), options));
+        // sem espaço: o erro é o da capacidade, não o do close
+        SteganographyException e = assertThrows(SteganographyException.class, () -> steganography.embedData(carrier.toString(),
+                payload.toString(), temp.resolve("saida.png").toString(), options));
+        assertTrue(e.getMessage().contains("muito pequena"), e.getMessage());
+
+        assertEquals(1, pool.getMisses());
+        assertEquals(1, pool.getHits());
+    }
+
+    @Test
+    void updateMatchesAFreshEmbed() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 300, 200, false);
+        Path payload = TestFiles.payload(temp, "dados", 5000);
+        Path original = temp.resolve("original.png");
+        Path updated = temp.resolve("atualizada.png");
+        Path fresh = temp.resolve("nova.png");
+        SteganographyUtils steganography = steganography();
+        steganography.embedData(carrier.toString(), payload.toString(), original.toString());
+
+        // mesmo tamanho, um byte diferente: só os pixels desse trecho (e dos CRCs) mudam
+        byte[] text = Files.readAllBytes(payload.resolve("leia-me.txt"));
+        text[0] ^= 1;
+        Files.write(payload.resolve("leia-me.txt"), text);
+        steganography.updateData(original.toString(), payload.toString(), updated.toString(), EmbedOptions.defaults());
+        steganography.embedData(carrier.toString(), payload.toString(), fresh.toString());
+
+        ByteArrayOutputStream updatedZip = new ByteArrayOutputStream();
+        ByteArrayOutputStream freshZip = new ByteArrayOutputStream();
+        steganography.extractZip(updated.toString(), updatedZip, null);
+        steganography.extractZip(fresh.toString(), freshZip, null);
+        assertArrayEquals(freshZip.toByteArray(), updatedZip.toByteArray());
+        steganography.extractData(updated.toString(), temp.resolve("extraido").toString());
+        TestFiles.assertSameFiles(payload, temp.resolve("extraido"));
+
+        BufferedImage before = ImageIO.read(original.toFile());
+        BufferedImage after = ImageIO.read(updated.toFile());
+        int changed = 0;
+        for (int y = 0; y < before.getHeight(); y++) {
+            for (int x = 0; x < before.getWidth(); x++) {
+                if (before.getRGB(x, y) != after.getRGB(x, y)) {
+                    changed++;
+                }
+            }
+        }
+        assertTrue(changed > 0 && changed < 200, changed + " pixels alterados");
+    }
+
+    @Test
+    void verifyFindsAFlippedLsb() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 300, 200, false);
+        Path payload = TestFiles.payload(temp, "dados", 8000);
+        Path output = temp.resolve("saida.png");
+        SteganographyUtils steganography = steganography();
+        steganography.embedData(carrier.toString(), payload.toString(), output.toString(),
+                EmbedOptions.defaults().setBitsPerChannel(1).setChunkSize(1000));
+
+        SteganographyUtils.VerifyResult result = steganography.verify(output.toString());
+        assertTrue(result.getChunksChecked() > 2);
+        assertEquals(3, result.getZipEntries()); // os dois arquivos e a pasta sub
+
+        // 1 bit por canal RGB: o pixel HEADER_PIXELS + 3000 guarda os bits 9000 a 9002 dos dados, no bloco 1
+        BufferedImage image = ImageIO.read(output.toFile());
+        int pixel = StegoHeader.HEADER_PIXELS + 3000;
+        image.setRGB(pixel % 300, pixel / 300, image.getRGB(pixel % 300, pixel / 300) ^ 1);
+        ImageIO.write(image, "PNG", output.toFile());
+
+        SteganographyException e = assertThrows(SteganographyException.class, () -> steganography.verify(output.toString()));
+        assertTrue(e.getMessage().contains("Bloco 1"), e.getMessage());
+    }
+
+    @Test
+    void extractZipCopiesTheHiddenZip() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 200, 200, false);
+        Path payload = TestFiles.payload(temp, "dados", 1000);
+        Path output = temp.resolve("saida.png");
+
+        SteganographyUtils steganography = steganography();
+        StegoHeader header = steganography.embedData(carrier.toString(), payload.toString(), output.toString());
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        steganography.extractZip(output.toString(), zip, null);
+
+        assertEquals(header.getPayloadSize(), zip.size());
+        int entries = 0;
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+            while (in.getNextEntry() != null) {
+                entries++;
+            }
+        }
+        assertTrue(entries >= 2, "entradas: " + entries);
+    }
+
+    @Test
+    void extractsOnlyWithTheKey() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 300, 200, false);
+        Path payload = TestFiles.payload(temp, "dados", 5000);
+        Path changed = TestFiles.payload(temp, "novos", 4000);
+        Path output = temp.resolve("saida.png");
+        Path updated = temp.resolve("atualizada.png");
+
+        SteganographyUtils steganography = steganography();
+        steganography.embedData(carrier.toString(), payload.toString(), output.toString(),
+                EmbedOptions.defaults().setKey("segredo"));
+
+        // sem a chave a imagem não parece ter dados; com a errada, a chave é recusada antes de ler o ZIP
+        assertThrows(SteganographyException.class, () -> steganography.probe(output.toString()));
+        assertThrows(SteganographyException.class, () -> steganography.extractData(output.toString(),
+                temp.resolve("sem-chave").toString()));
+        SteganographyException e = assertThrows(SteganographyException.class, () -> steganography.extractData(
+                output.toString(), temp.resolve("errada").toString(), "outra"));
+        assertTrue(e.getMessage().contains("Chave incorreta"), e.getMessage());
+
+        assertTrue(steganography.extractData(output.toString(), temp.resolve("extraido").toString(), "segredo").isScattered());
+        TestFiles.assertSameFiles(payload, temp.resolve("extraido"));
+
+        // a atualização regrava o cabeçalho mascarado com o mesmo sal
+        steganography.updateData(output.toString(), changed.toString(), updated.toString(),
+                EmbedOptions.defaults().setKey("segredo"));
+        assertTrue(steganography.verify(updated.toString(), "segredo").getHeader().isScattered());
+        steganography.extractData(updated.toString(), temp.resolve("atualizado").toString(), "segredo");
+        TestFiles.assertSameFiles(changed, temp.resolve("atualizado"));
+    }
+
+    @Test
+    void rejectsAPayloadLargerThanTheImage() throws IOException {
+        Path carrier = TestFiles.carrier(temp, "pequena.png", 40, 40, false);
+        Path payload = TestFiles.payload(temp, "dados", 50_000);
+
+        SteganographyException e = assertThrows(SteganographyException.class, () -> steganography().embedData(
+                carrier.toString(), payload.toString(), temp.resolve("saida.png").toString(),
+                EmbedOptions.defaults().setBitsPerChannel(1)));
+        assertTrue(e.getMessage().contains("muito pequena"), e.getMessage());
+    }
+}
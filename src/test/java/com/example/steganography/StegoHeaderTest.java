@@ -0,0 +1,132 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+class StegoHeaderTest {
+
+    private static CarrierRaster carrier(int type) {
+        return CarrierRaster.wrap(new BufferedImage(32, 32, type));
+    }
+
+    @Test
+    void writesAndReadsVersion2() throws SteganographyException {
+        CarrierRaster raster = carrier(BufferedImage.TYPE_INT_ARGB);
+        new StegoHeader(3, true, StegoHeader.CODEC_STORED, 5_000_000_000L, 4096).writeTo(raster);
+
+        StegoHeader read = StegoHeader.readFrom(raster);
+        assertEquals(StegoHeader.VERSION, read.getVersion());
+        assertEquals(3, read.getBitsPerChannel());
+        assertTrue(read.usesAlpha());
+        assertEquals(StegoHeader.CODEC_STORED, read.getCodec());
+        assertEquals(5_000_000_000L, read.getPayloadSize());
+        assertEquals(4096, read.getChunkSize());
+        assertEquals(StegoHeader.CHECKSUM_CRC32C, read.getChecksum());
+        assertFalse(read.isStriped());
+        assertFalse(read.isScattered());
+        assertFalse(read.isTerminated());
+        assertEquals(StegoHeader.containerSize(5_000_000_000L, 4096), read.getContainerSize());
+    }
+
+    @Test
+    void keepsTheStripeFields() throws SteganographyException {
+        CarrierRaster raster = carrier(BufferedImage.TYPE_INT_RGB);
+        new StegoHeader(2, false, StegoHeader.CODEC_DEFLATE, 70_000, 1000).asStripe(0x1122334455667788L, 2, 5).writeTo(raster);
+
+        StegoHeader read = StegoHeader.readFrom(raster);
+        assertTrue(read.isStriped());
+        assertEquals(0x1122334455667788L, read.getSetId());
+        assertEquals(2, read.getStripeIndex());
+        assertEquals(5, read.getStripeCount());
+        assertEquals(70_000, read.getPayloadSize());
+    }
+
+    @Test
+    void keepsTheEndFrameFlag() throws SteganographyException {
+        CarrierRaster raster = carrier(BufferedImage.TYPE_INT_RGB);
+        new StegoHeader(1, false, StegoHeader.CODEC_DEFLATE, 10_000, 1000).terminated().writeTo(raster);
+
+        StegoHeader read = StegoHeader.readFrom(raster);
+        assertTrue(read.isTerminated());
+        assertEquals(10_000 + 10 * StegoHeader.CHUNK_FRAME_BYTES + StegoHeader.CHUNK_FRAME_BYTES, read.getContainerSize());
+        // o tamanho exato de uma atualização volta a valer sem o bloco vazio
+        assertFalse(read.withPayload(StegoHeader.CODEC_DEFLATE, 500).isTerminated());
+    }
+
+    @Test
+    void maxPayloadSizeInvertsTheContainerSize() {
+        for (long container = 0; container < 5000; container += 7) {
+            long payload = StegoHeader.maxPayloadSize(container, 1000);
+            long framed = payload == 0 ? StegoHeader.CHUNK_FRAME_BYTES
+                    : StegoHeader.containerSize(payload, 1000) + StegoHeader.CHUNK_FRAME_BYTES;
+            assertTrue(payload == 0 || framed <= container, container + ": " + payload);
+            assertTrue(StegoHeader.containerSize(payload + 1, 1000) + StegoHeader.CHUNK_FRAME_BYTES > container,
+                    container + ": " + payload);
+        }
+    }
+
+    @Test
+    void masksTheHeaderWithTheKey() throws SteganographyException {
+        CarrierRaster raster = carrier(BufferedImage.TYPE_INT_RGB);
+        PixelPermutation permutation = PixelPermutation.random("segredo", StegoHeader.HEADER_PIXELS, 32 * 32);
+        new StegoHeader(1, false, 100).scatteredBy(permutation).writeTo(raster);
+
+        // só o sal fica em claro: sem a chave não há "STEG" nem o tamanho
+        BitWriter raw = new BitWriter(StegoHeader.SIZE_BYTES);
+        raster.withLayout(1, false).extractBits(raw, 0);
+        assertEquals(permutation.getSalt(), ByteBuffer.wrap(raw.array()).getInt());
+        for (int i = 0; i + 4 <= StegoHeader.SIZE_BYTES; i++) {
+            assertNotEquals(StegoHeader.MAGIC, ByteBuffer.wrap(raw.array()).getInt(i));
+        }
+
+        StegoHeader read = StegoHeader.readFrom(raster, "segredo");
+        assertTrue(read.isScattered());
+        assertEquals(100, read.getPayloadSize());
+        assertTrue(read.payloadLayout(raster).isPermuted());
+        SteganographyException e = assertThrows(SteganographyException.class, () -> StegoHeader.readFrom(raster, "outra"));
+        assertTrue(e.getMessage().contains("Chave incorreta"), e.getMessage());
+    }
+
+    @Test
+    void ignoresTheKeyOnAnUnkeyedImage() throws SteganographyException {
+        CarrierRaster raster = carrier(BufferedImage.TYPE_INT_RGB);
+        new StegoHeader(2, false, 1234).writeTo(raster);
+
+        StegoHeader read = StegoHeader.readFrom(raster, "segredo");
+        assertFalse(read.isScattered());
+        assertEquals(1234, read.getPayloadSize());
+    }
+
+    @Test
+    void detectsACorruptedHeader() throws SteganographyException {
+        CarrierRaster raster = carrier(BufferedImage.TYPE_INT_RGB);
+        new StegoHeader(2, false, 1234).writeTo(raster);
+
+        // troca um LSB do pixel 20, que guarda bits do byte do codec
+        BufferedImage image = raster.getImage();
+        image.setRGB(20, 0, image.getRGB(20, 0) ^ 1);
+
+        SteganographyException e = assertThrows(SteganographyException.class, () -> StegoHeader.readFrom(raster));
+        assertTrue(e.getMessage().contains("CRC"), e.getMessage());
+    }
+
+    @Test
+    void readsTheLegacySize() throws SteganographyException {
+        CarrierRaster raster = carrier(BufferedImage.TYPE_INT_RGB);
+        raster.withLayout(1, false).embedBits(new BitReader(new byte[] {0, 0, 0x01, 0x00}), 0);
+
+        StegoHeader read = StegoHeader.readFrom(raster);
+        assertTrue(read.isLegacy());
+        assertEquals(256, read.getPayloadSize());
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+class StegoServerTest {
+
+    @TempDir
+    Path temp;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private StegoServer server;
+
+    private void start(int maxInFlight, long queueTimeoutMillis, long maxBodyBytes) throws SteganographyException {
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter());
+        steganography.setVerbose(false);
+        server = new StegoServer(steganography, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), maxInFlight, 1,
+                queueTimeoutMillis, maxBodyBytes);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private HttpResponse<byte[]> post(String path, HttpRequest.BodyPublisher body, String... headers)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://"
+                + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getAddress().getPort() + path)).POST(body);
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    // corpo sem Content-Length (enviado em chunked)
+    private static HttpRequest.BodyPublisher chunked(byte[] body) {
+        return HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(body));
+    }
+
+    // PNG preto: o "tamanho legado" lido dele é 0, então não tem dados ocultos
+    private static byte[] blackPng() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB), "PNG", png);
+        return png.toByteArray();
+    }
+
+    @Test
+    void embedsAndExtractsOverHttp() throws Exception {
+        start(2, 1000, StegoServer.DEFAULT_MAX_BODY_BYTES);
+        byte[] carrier = Files.readAllBytes(TestFiles.carrier(temp, "portador.png", 200, 200, false));
+        byte[] data = new byte[3000];
+        new Random(3).nextBytes(data);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(carrier);
+        body.write(data);
+
+        HttpResponse<byte[]> embedded = post("/embed?name=dados.bin", HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()),
+                "X-Carrier-Length", Integer.toString(carrier.length));
+        assertEquals(200, embedded.statusCode(), new String(embedded.body(), StandardCharsets.UTF_8));
+
+        HttpResponse<byte[]> extracted = post("/extract", HttpRequest.BodyPublishers.ofByteArray(embedded.body()));
+        assertEquals(200, extracted.statusCode());
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(extracted.body()))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertNotNull(entry);
+            assertEquals("dados.bin", entry.getName());
+            assertArrayEquals(data, zip.readAllBytes());
+        }
+    }
+
+    @Test
+    void mapsBadParametersTo400AndBadImagesTo422() throws Exception {
+        start(2, 1000, StegoServer.DEFAULT_MAX_BODY_BYTES);
+        byte[] png = blackPng();
+
+        assertEquals(400, post("/embed?name=dados.bin", HttpRequest.BodyPublishers.ofByteArray(png)).statusCode());
+        assertEquals(400, post("/embed?name=..", HttpRequest.BodyPublishers.ofByteArray(png),
+                "X-Carrier-Length", Integer.toString(png.length)).statusCode());
+        assertEquals(400, post("/probe?semvalor", HttpRequest.BodyPublishers.ofByteArray(png)).statusCode());
+
+        HttpResponse<byte[]> probe = post("/probe", HttpRequest.BodyPublishers.ofByteArray(png));
+        assertEquals(422, probe.statusCode());
+        assertEquals(422, post("/extract", HttpRequest.BodyPublishers.ofByteArray(new byte[100])).statusCode());
+    }
+
+    @Test
+    void answers503WhileTheOnlySlotIsTaken() throws Exception {
+        start(1, 100, StegoServer.DEFAULT_MAX_BODY_BYTES);
+        byte[] png = blackPng();
+
+        // a vaga é ocupada antes de o corpo ser lido: esta requisição fica com ela esperando o resto do corpo
+        try (Socket holder = new Socket(InetAddress.getLoopbackAddress(), server.getAddress().getPort())) {
+            OutputStream out = holder.getOutputStream();
+            out.write("POST /probe HTTP/1.1\r\nHost: localhost\r\nContent-Length: 100\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.write(new byte[10]);
+            out.flush();
+
+            // até a requisição acima pegar a vaga, as outras ainda podem ser atendidas
+            HttpResponse<byte[]> busy = null;
+            for (long deadline = System.nanoTime() + 10_000_000_000L; busy == null && System.nanoTime() < deadline; ) {
+                HttpResponse<byte[]> response = post("/probe", HttpRequest.BodyPublishers.ofByteArray(png));
+                if (response.statusCode() == 503) {
+                    busy = response;
+                }
+            }
+            assertNotNull(busy, "nenhuma requisição recebeu 503");
+            assertEquals("1", busy.headers().firstValue("Retry-After").orElse(null));
+        }
+        assertTrue(server.getRejected() >= 1);
+    }
+
+    @Test
+    void rejectsBodiesOverTheLimitWith413() throws Exception {
+        start(2, 1000, 1000);
+        byte[] big = new byte[5000];
+
+        // pelo Content-Length, pela cópia (sem tamanho declarado) e pelo tamanho do portador
+        assertEquals(413, post("/probe", HttpRequest.BodyPublishers.ofByteArray(big)).statusCode());
+        assertEquals(413, post("/verify", chunked(big)).statusCode());
+        assertEquals(413, post("/embed?name=dados.bin", chunked(new byte[10]), "X-Carrier-Length", "2000").statusCode());
+        assertEquals(413, post("/embed?name=dados.bin", chunked(new byte[2000]), "X-Carrier-Length", "500").statusCode());
+
+        // no limite ainda passa (e falha só por não ser um PNG)
+        assertEquals(422, post("/probe", chunked(new byte[1000])).statusCode());
+    }
+}
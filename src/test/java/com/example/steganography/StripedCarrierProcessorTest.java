@@ -0,0 +1,134 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+class StripedCarrierProcessorTest {
+
+    @TempDir
+    Path temp;
+
+    // uma imagem decodificada por vez: a leitura adiantada não pode depender de mais
+    private static StripedCarrierProcessor processor() {
+        return new StripedCarrierProcessor(new ImageProcessor(), new DataConverter(), 1);
+    }
+
+    // imagens de tamanhos diferentes, para que as partes usem layouts diferentes
+    private List<String> carriers(String prefix, int count) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            paths.add(TestFiles.carrier(temp, prefix + i + ".png", 120 + 20 * i, 100 + 10 * i, i % 2 == 1).toString());
+        }
+        return paths;
+    }
+
+    private List<String> outputs(String prefix, int count) {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            paths.add(temp.resolve(prefix + i + ".png").toString());
+        }
+        return paths;
+    }
+
+    @Test
+    void extractsInAnyOrder() throws IOException, SteganographyException {
+        Path payload = TestFiles.payload(temp, "dados", 40_000);
+        List<String> outputs = outputs("saida", 4);
+
+        List<StegoHeader> headers = processor().embed(carriers("portador", 4), payload.toString(), outputs,
+                EmbedOptions.defaults().setChunkSize(1000));
+        long zipSize = 0;
+        for (int i = 0; i < headers.size(); i++) {
+            assertEquals(i, headers.get(i).getStripeIndex());
+            assertEquals(headers.get(0).getSetId(), headers.get(i).getSetId());
+            assertTrue(headers.get(i).getPayloadSize() > 0);
+            zipSize += headers.get(i).getPayloadSize();
+        }
+
+        List<String> shuffled = List.of(outputs.get(2), outputs.get(0), outputs.get(3), outputs.get(1));
+        List<StegoHeader> read = processor().extract(shuffled, temp.resolve("extraido").toString());
+        assertEquals(zipSize, read.stream().mapToLong(StegoHeader::getPayloadSize).sum());
+        TestFiles.assertSameFiles(payload, temp.resolve("extraido"));
+    }
+
+    @Test
+    void rejectsAMissingPart() throws IOException, SteganographyException {
+        List<String> outputs = outputs("saida", 3);
+        processor().embed(carriers("portador", 3), TestFiles.payload(temp, "dados", 10_000).toString(), outputs,
+                EmbedOptions.defaults());
+
+        SteganographyException e = assertThrows(SteganographyException.class,
+                () -> processor().extract(outputs.subList(0, 2), temp.resolve("extraido").toString()));
+        assertTrue(e.getMessage().contains("3 imagens"), e.getMessage());
+    }
+
+    @Test
+    void rejectsAPartOfAnotherSet() throws IOException, SteganographyException {
+        Path payload = TestFiles.payload(temp, "dados", 10_000);
+        List<String> first = outputs("a", 3);
+        List<String> second = outputs("b", 3);
+        processor().embed(carriers("portador", 3), payload.toString(), first, EmbedOptions.defaults());
+        processor().embed(carriers("portador", 3), payload.toString(), second, EmbedOptions.defaults());
+
+        List<String> mixed = List.of(first.get(0), second.get(1), first.get(2));
+        SteganographyException e = assertThrows(SteganographyException.class,
+                () -> processor().extract(mixed, temp.resolve("extraido").toString()));
+        assertTrue(e.getMessage().contains("outro conjunto"), e.getMessage());
+    }
+
+    @Test
+    void reportsTheCorruptedPart() throws IOException, SteganographyException {
+        List<String> outputs = outputs("saida", 3);
+        processor().embed(carriers("portador", 3), TestFiles.payload(temp, "dados", 20_000).toString(), outputs,
+                EmbedOptions.defaults().setChunkSize(1000));
+
+        // um LSB logo depois do cabeçalho da parte 1, no primeiro bloco dela
+        BufferedImage image = ImageIO.read(new File(outputs.get(1)));
+        int pixel = StegoHeader.HEADER_PIXELS + 10;
+        int x = pixel % image.getWidth();
+        int y = pixel / image.getWidth();
+        image.setRGB(x, y, image.getRGB(x, y) ^ 1);
+        ImageIO.write(image, "PNG", new File(outputs.get(1)));
+
+        SteganographyException e = assertThrows(SteganographyException.class,
+                () -> processor().extract(outputs, temp.resolve("extraido").toString()));
+        assertTrue(e.getMessage().contains("parte 1"), e.getMessage());
+    }
+
+    @Test
+    void namesThePartThatDoesNotFit() throws IOException {
+        SteganographyException e = assertThrows(SteganographyException.class, () -> processor().embed(carriers("portador", 2),
+                TestFiles.payload(temp, "dados", 30_000).toString(), outputs("saida", 2),
+                EmbedOptions.defaults().setBitsPerChannel(1)));
+        assertTrue(e.getMessage().contains("muito pequena para a sua parte"), e.getMessage());
+    }
+
+    @Test
+    void sharesAddUpToTheZip() {
+        for (long zipSize : new long[] { 0, 1, 999, 1000, 1001, 25_000, 123_457 }) {
+            for (int count = 1; count <= 5; count++) {
+                int chunkSize = StripedCarrierProcessor.stripeUnit(zipSize, count, 1000);
+                long total = 0;
+                for (int i = 0; i < count; i++) {
+                    total += StripedCarrierProcessor.stripeShare(zipSize, chunkSize, count, i);
+                }
+                assertEquals(zipSize, total, zipSize + " bytes em " + count);
+            }
+        }
+    }
+}
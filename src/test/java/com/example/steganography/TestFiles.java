@@ -0,0 +1,63 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+// imagens e pastas sintéticas para os testes
+final class TestFiles {
+
+    private TestFiles() {
+    }
+
+    // PNG com ruído (RGB ou ARGB), como uma foto: os LSBs originais não têm padrão
+    static Path carrier(Path directory, String name, int width, int height, boolean alpha) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(name.hashCode());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        ImageIO.write(image, "PNG", file.toFile());
+        return file;
+    }
+
+    // pasta com um texto, um binário aleatório de randomBytes bytes e uma subpasta
+    static Path payload(Path directory, String name, int randomBytes) throws IOException {
+        Path folder = Files.createDirectories(directory.resolve(name));
+        Files.writeString(folder.resolve("leia-me.txt"), "dados de teste de " + name + "\n".repeat(50));
+        byte[] noise = new byte[randomBytes];
+        new Random(randomBytes).nextBytes(noise);
+        Files.createDirectories(folder.resolve("sub"));
+        Files.write(folder.resolve("sub/dados.bin"), noise);
+        return folder;
+    }
+
+    // mesmos arquivos (caminhos relativos e conteúdo) nas duas pastas
+    static void assertSameFiles(Path expected, Path actual) throws IOException {
+        List<Path> expectedFiles = files(expected);
+        assertEquals(expectedFiles, files(actual));
+        for (Path file : expectedFiles) {
+            assertArrayEquals(Files.readAllBytes(expected.resolve(file)), Files.readAllBytes(actual.resolve(file)), file.toString());
+        }
+    }
+
+    private static List<Path> files(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile).map(root::relativize).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.steganography;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.steganography.exceptions.SteganographyException;
+
+class TiledCarrierProcessorTest {
+
+    @TempDir
+    Path temp;
+
+    // faixas pequenas: a imagem de 300 pixels de largura passa por várias
+    private static TiledCarrierProcessor processor() {
+        return new TiledCarrierProcessor(new DataConverter(), 64 * 1024);
+    }
+
+    private static SteganographyUtils steganography() {
+        SteganographyUtils steganography = new SteganographyUtils(new ImageProcessor(), new DataConverter());
+        steganography.setVerbose(false);
+        return steganography;
+    }
+
+    @Test
+    void bothModesReadWhatTheStripsWrote() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 300, 400, false);
+        Path payload = TestFiles.payload(temp, "dados", 60_000);
+        Path output = temp.resolve("saida.png");
+
+        StegoHeader written = processor().embed(carrier.toString(), payload.toString(), output.toString(),
+                EmbedOptions.defaults().setChunkSize(4096));
+        assertTrue(written.isTerminated());
+        assertEquals(2, written.getBitsPerChannel());
+
+        processor().extract(output.toString(), temp.resolve("faixas").toString());
+        TestFiles.assertSameFiles(payload, temp.resolve("faixas"));
+        steganography().extractData(output.toString(), temp.resolve("normal").toString());
+        TestFiles.assertSameFiles(payload, temp.resolve("normal"));
+        assertTrue(processor().verify(output.toString()).getChunksChecked() > 1);
+    }
+
+    @Test
+    void triesTheDeepestLayoutWhenOnlyTheEstimateIsTooBig() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 200, 200, false);
+        // 200 KB de zeros: o máximo estimado não cabe em nenhum layout, o ZIP de verdade cabe com folga
+        Path payload = Files.createDirectories(temp.resolve("dados"));
+        Files.write(payload.resolve("zeros.bin"), new byte[200_000]);
+        Path output = temp.resolve("saida.png");
+
+        StegoHeader written = processor().embed(carrier.toString(), payload.toString(), output.toString(), EmbedOptions.defaults());
+        assertEquals(CarrierRaster.MAX_BITS_PER_CHANNEL, written.getBitsPerChannel());
+        processor().extract(output.toString(), temp.resolve("extraido").toString());
+        TestFiles.assertSameFiles(payload, temp.resolve("extraido"));
+    }
+
+    @Test
+    void removesTheOutputWhenTheDataDoesNotFit() throws IOException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 100, 100, false);
+        Path payload = TestFiles.payload(temp, "dados", 20_000);
+        Path output = temp.resolve("saida.png");
+
+        SteganographyException e = assertThrows(SteganographyException.class, () -> processor().embed(carrier.toString(),
+                payload.toString(), output.toString(), EmbedOptions.defaults().setBitsPerChannel(1)));
+        assertTrue(e.getMessage().contains("muito pequena"), e.getMessage());
+        assertFalse(Files.exists(output));
+    }
+
+    @Test
+    void updateWritesTheExactSize() throws IOException, SteganographyException {
+        Path carrier = TestFiles.carrier(temp, "portador.png", 300, 400, false);
+        Path output = temp.resolve("saida.png");
+        Path updated = temp.resolve("atualizada.png");
+        processor().embed(carrier.toString(), TestFiles.payload(temp, "dados", 30_000).toString(), output.toString(),
+                EmbedOptions.defaults());
+
+        Path payload = TestFiles.payload(temp, "novos", 20_000);
+        StegoHeader header = steganography().updateData(output.toString(), payload.toString(), updated.toString(),
+                EmbedOptions.defaults());
+        assertFalse(header.isTerminated());
+        processor().extract(updated.toString(), temp.resolve("extraido").toString());
+        TestFiles.assertSameFiles(payload, temp.resolve("extraido"));
+    }
+}